@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.util;
+
+import java.util.Arrays;
+import java.util.Map;
+
+
+/**
+ * Replaces any number of literal strings in a single pass over the text.
+ *
+ * The search strings are kept in a trie, and at each position of the text
+ * the longest search string starting there is replaced.  Text produced by a
+ * replacement is never searched again.  Instances are immutable and can be
+ * shared between threads.
+ */
+public final class LiteralReplacer {
+
+    private final Node root = new Node();
+
+    private final boolean ignoreCase;
+
+
+    /**
+     * @param replacements search string to replacement string
+     * @param ignoreCase   match US-ASCII letters regardless of case, like
+     *                     Pattern.CASE_INSENSITIVE does
+     */
+    public LiteralReplacer(Map<String, String> replacements, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        for (Map.Entry<String, String> entry : replacements.entrySet()) {
+            String search = entry.getKey();
+            if (search == null || search.isEmpty()) {
+                continue;
+            }
+            Node node = root;
+            for (int i = 0; i < search.length(); i++) {
+                node = node.add(fold(search.charAt(i)));
+            }
+            node.replacement = entry.getValue();
+        }
+    }
+
+
+    /**
+     * Replace all occurrences of the search strings in text.  Returns the
+     * same String instance if nothing was found.
+     */
+    public String replace(String text) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+
+        StringBuilder buf = null;
+        int copied = 0;
+        int len = text.length();
+        int pos = 0;
+        while (pos < len) {
+            // walk the trie as far as the text allows, remembering the longest match
+            Node node = root;
+            String replacement = null;
+            int matchEnd = -1;
+            for (int i = pos; i < len; i++) {
+                node = node.child(fold(text.charAt(i)));
+                if (node == null) {
+                    break;
+                }
+                if (node.replacement != null) {
+                    replacement = node.replacement;
+                    matchEnd = i + 1;
+                }
+            }
+
+            if (replacement == null) {
+                pos++;
+                continue;
+            }
+
+            if (buf == null) {
+                buf = new StringBuilder(len + 64);
+            }
+            buf.append(text, copied, pos).append(replacement);
+            copied = matchEnd;
+            pos = matchEnd;
+        }
+
+        if (buf == null) {
+            return text;
+        }
+        return buf.append(text, copied, len).toString();
+    }
+
+
+    private char fold(char c) {
+        if (ignoreCase && c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        return c;
+    }
+
+
+    private static final class Node {
+
+        private char[] chars = new char[0];
+        private Node[] children = new Node[0];
+        private String replacement = null;
+
+        Node child(char c) {
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node add(char c) {
+            Node node = child(c);
+            if (node == null) {
+                node = new Node();
+                chars = Arrays.copyOf(chars, chars.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                chars[chars.length - 1] = c;
+                children[children.length - 1] = node;
+            }
+            return node;
+        }
+    }
+
+}
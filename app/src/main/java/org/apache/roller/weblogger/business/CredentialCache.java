@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+
+package org.apache.roller.weblogger.business;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.User;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogBookmark;
+import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
+import org.apache.roller.weblogger.pojos.WeblogCategory;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.pojos.WeblogTemplate;
+import org.apache.roller.weblogger.util.cache.Cache;
+import org.apache.roller.weblogger.util.cache.CacheHandler;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+
+
+/**
+ * Remembers passwords recently verified for the web service APIs, so that
+ * clients calling them in a loop don't pay for the password encoder and
+ * the user lookup on every call.
+ *
+ * Only an HMAC of the password is kept, under a key generated at startup,
+ * along with the name of the enabled user it was verified for.  Saving or
+ * removing the user forgets it, which covers password changes and
+ * disabling, and bumps a generation number for the user.  Callers read the
+ * generation before looking the user up and pass it to the put, so that a
+ * check which raced a password change doesn't remember the old password.  Changes made on other nodes of a cluster show up once the
+ * cached entries time out.
+ */
+public final class CredentialCache implements CacheHandler {
+
+    private static final Log log = LogFactory.getLog(CredentialCache.class);
+
+    // a unique identifier for this cache, this is used as the prefix for
+    // roller config properties that apply to this cache
+    public static final String CACHE_ID = "cache.credentials";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    // keep verified credentials
+    private boolean cacheEnabled = true;
+    private Cache contentCache = null;
+
+    private final SecretKeySpec key;
+
+    // user name -> generation
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    // reference to our singleton instance
+    private static final CredentialCache singletonInstance = new CredentialCache();
+
+
+    private CredentialCache() {
+
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        key = new SecretKeySpec(secret, ALGORITHM);
+
+        cacheEnabled = WebloggerConfig.getBooleanProperty(CACHE_ID+".enabled");
+
+        Map<String, String> cacheProps = new HashMap<>();
+        cacheProps.put("id", CACHE_ID);
+
+        Enumeration<Object> allProps = WebloggerConfig.keys();
+        String prop;
+        while(allProps.hasMoreElements()) {
+            prop = (String) allProps.nextElement();
+
+            // we are only interested in props for this cache
+            if(prop.startsWith(CACHE_ID+".")) {
+                cacheProps.put(prop.substring(CACHE_ID.length()+1),
+                        WebloggerConfig.getProperty(prop));
+            }
+        }
+
+        log.info(cacheProps);
+
+        if(cacheEnabled) {
+            contentCache = CacheManager.constructCache(this, cacheProps);
+        } else {
+            log.warn("Caching has been DISABLED");
+        }
+    }
+
+
+    public static CredentialCache getInstance() {
+        return singletonInstance;
+    }
+
+
+    /**
+     * True if the password was recently verified for the enabled user.
+     */
+    public boolean isVerified(String userName, String password) {
+
+        if (!cacheEnabled || userName == null || password == null) {
+            return false;
+        }
+
+        byte[] cached = (byte[]) contentCache.get(userName);
+        return cached != null && MessageDigest.isEqual(cached, hash(userName, password));
+    }
+
+
+    /**
+     * Remember that the password is the enabled user's.
+     *
+     * @param generation the user's generation when the user was looked up,
+     *        nothing is remembered if it has changed since
+     */
+    public synchronized void putVerified(String userName, long generation, String password) {
+
+        if (!cacheEnabled || userName == null || password == null
+                || generation != getGeneration(userName)) {
+            return;
+        }
+
+        contentCache.put(userName, hash(userName, password));
+    }
+
+
+    /**
+     * Get the user's current generation, read it before looking the user up
+     * and pass it to putVerified().
+     */
+    public long getGeneration(String userName) {
+        return userName != null ? generations.getOrDefault(userName, 0L) : 0L;
+    }
+
+
+    /**
+     * Forget what was verified for the user.
+     */
+    public synchronized void invalidate(String userName) {
+
+        if (!cacheEnabled || userName == null) {
+            return;
+        }
+
+        generations.merge(userName, 1L, Long::sum);
+        contentCache.remove(userName);
+        log.debug("REMOVE " + userName);
+    }
+
+
+    private byte[] hash(String userName, String password) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            mac.update(userName.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            // every Java platform supports HmacSHA256
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    @Override
+    public void invalidate(User user) {
+        invalidate(user.getUserName());
+    }
+
+
+    @Override
+    public void invalidate(Weblog website) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogEntry entry) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogBookmark bookmark) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogBookmarkFolder folder) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogEntryComment comment) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogCategory category) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogTemplate template) {
+        // ignored
+    }
+
+}
@@ -27,6 +27,7 @@ import java.util.Properties;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.business.startup.StartupException;
@@ -56,7 +57,16 @@ import org.apache.roller.weblogger.config.WebloggerConfig;
  * database.jdbc.connectionURL=
  * database.jdbc.username=
  * database.jdbc.password=
+ *
+ * # Optional read-only replica, a JNDI name or JDBC connection parameters
+ * # matching the configuration type
+ * database.replica.jndi.name=
+ * database.replica.jdbc.connectionURL=
+ * database.replica.jdbc.username=
+ * database.replica.jdbc.password=
  * </pre>
+ *
+ * <p>A replica which can't be reached at startup is not used.</p>
  */
 public class DatabaseProvider  {
     
@@ -75,6 +85,11 @@ public class DatabaseProvider  {
     private String jdbcUsername = null;
     private Properties props = null;
     
+    private String replicaJndiName = null;
+    private String replicaJdbcConnectionURL = null;
+    private String replicaJdbcUsername = null;
+    private String replicaJdbcPassword = null;
+    
     
     /**
      * Reads configuraiton, loads driver or locates data-source and attempts
@@ -150,6 +165,65 @@ public class DatabaseProvider  {
             errorMessage(errorMsg);
             throw new StartupException(errorMsg, e, startupLog);
         }
+        
+        initReplica();
+    }
+    
+    
+    /**
+     * Read the replica configuration and check that the replica can be
+     * reached, forgetting about it if not.
+     */
+    private void initReplica() {
+        
+        if (getType() == ConfigurationType.JDBC_PROPERTIES) {
+            replicaJdbcConnectionURL = StringUtils.trimToNull(
+                    WebloggerConfig.getProperty("database.replica.jdbc.connectionURL"));
+            if (replicaJdbcConnectionURL == null) {
+                return;
+            }
+            replicaJdbcUsername = StringUtils.defaultIfEmpty(
+                    WebloggerConfig.getProperty("database.replica.jdbc.username"), jdbcUsername);
+            replicaJdbcPassword = StringUtils.defaultIfEmpty(
+                    WebloggerConfig.getProperty("database.replica.jdbc.password"), jdbcPassword);
+            successMessage("-- Using replica JDBC connection URL: " + replicaJdbcConnectionURL);
+            
+            Properties replicaProps = new Properties();
+            if (replicaJdbcUsername != null) {
+                replicaProps.setProperty("user", replicaJdbcUsername);
+            }
+            if (replicaJdbcPassword != null) {
+                replicaProps.setProperty("password", replicaJdbcPassword);
+            }
+            try {
+                Connection testcon = DriverManager.getConnection(replicaJdbcConnectionURL, replicaProps);
+                testcon.close();
+                successMessage("SUCCESS: connected to replica");
+            } catch (SQLException e) {
+                errorMessage("ERROR: unable to connect to replica, reading from database only: "
+                        + e.getMessage());
+                replicaJdbcConnectionURL = null;
+            }
+            
+        } else {
+            replicaJndiName = StringUtils.trimToNull(
+                    WebloggerConfig.getProperty("database.replica.jndi.name"));
+            if (replicaJndiName == null) {
+                return;
+            }
+            String name = getFullReplicaJndiName();
+            successMessage("-- Using replica JNDI datasource name: " + name);
+            try {
+                DataSource replica = (DataSource) new InitialContext().lookup(name);
+                Connection testcon = replica.getConnection();
+                testcon.close();
+                successMessage("SUCCESS: connected to replica");
+            } catch (NamingException | SQLException e) {
+                errorMessage("ERROR: unable to connect to replica, reading from database only: "
+                        + e.getMessage());
+                replicaJndiName = null;
+            }
+        }
     }
     
     
@@ -213,5 +287,34 @@ public class DatabaseProvider  {
         }
         return "java:comp/env/" + jndiName;
     }
+    
+    /**
+     * True if a read-only replica is configured and could be reached.
+     */
+    public boolean hasReplica() {
+        if (getType() == ConfigurationType.JDBC_PROPERTIES) {
+            return replicaJdbcConnectionURL != null;
+        }
+        return replicaJndiName != null;
+    }
+
+    public String getReplicaJdbcConnectionURL() {
+        return replicaJdbcConnectionURL;
+    }
+
+    public String getReplicaJdbcUsername() {
+        return replicaJdbcUsername;
+    }
+
+    public String getReplicaJdbcPassword() {
+        return replicaJdbcPassword;
+    }
+    
+    public String getFullReplicaJndiName() {
+        if (null != replicaJndiName && replicaJndiName.startsWith("java:")) {
+            return replicaJndiName;
+        }
+        return "java:comp/env/" + replicaJndiName;
+    }
 
 }
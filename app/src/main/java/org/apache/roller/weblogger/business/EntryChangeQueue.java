@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.util.RollerConstants;
+import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.business.search.IndexManager;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+
+
+/**
+ * Queue's up "entry changed" events so that re-indexing can happen off the
+ * request thread.
+ *
+ * Caches are invalidated right away on the calling thread, so that the
+ * redirect after posting a comment already shows it.  Events only carry
+ * ids, the single worker thread re-queries the entry when it gets to them.
+ * Events for the same entry which arrive before the worker wakes up are
+ * coalesced into one re-index.
+ *
+ * If the queue is disabled with entrychange.queue.enabled=false events are
+ * processed immediately on the calling thread.
+ */
+public final class EntryChangeQueue {
+
+    private static Log log = LogFactory.getLog(EntryChangeQueue.class);
+
+    private static EntryChangeQueue instance = null;
+
+    private final boolean enabled;
+    private final BlockingQueue<EntryChange> queue = new LinkedBlockingQueue<>();
+    private Thread worker = null;
+
+    // lag is the time between an event being queued and being processed
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalLag = new LongAdder();
+    private final AtomicLong maxLag = new AtomicLong();
+    private volatile long lastLag = 0;
+
+
+    static {
+        instance = new EntryChangeQueue();
+    }
+
+
+    // non-instantiable because we are a singleton
+    private EntryChangeQueue() {
+        enabled = WebloggerConfig.getBooleanProperty("entrychange.queue.enabled", true);
+
+        if (enabled) {
+            worker = new Thread(this::processEvents, "EntryChangeQueueProcessor");
+            worker.setDaemon(true);
+            worker.start();
+        } else {
+            log.warn("Entry change queue DISABLED, changes are processed inline");
+        }
+    }
+
+
+    public static EntryChangeQueue getInstance() {
+        return instance;
+    }
+
+
+    /**
+     * A comment on an entry has been added or changed.  Caches associated
+     * with the comment are invalidated now, the entry is re-indexed later.
+     */
+    public void entryChanged(WeblogEntry entry, WeblogEntryComment comment) {
+
+        if (entry == null || entry.getId() == null) {
+            return;
+        }
+
+        if (comment != null) {
+            CacheManager.invalidate(comment);
+        } else {
+            CacheManager.invalidate(entry);
+        }
+
+        EntryChange change = new EntryChange(entry.getId(), System.currentTimeMillis());
+        enqueued.increment();
+
+        if (enabled) {
+            queue.add(change);
+        } else {
+            List<EntryChange> changes = new ArrayList<>(1);
+            changes.add(change);
+            process(changes);
+        }
+    }
+
+
+    /**
+     * Queue statistics, times are in milliseconds.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long count = processed.sum();
+        stats.put("enqueued", enqueued.sum());
+        stats.put("processed", count);
+        stats.put("coalesced", coalesced.sum());
+        stats.put("errors", errors.sum());
+        stats.put("pending", queue.size());
+        stats.put("lastLag", lastLag);
+        stats.put("maxLag", maxLag.get());
+        stats.put("avgLag", count > 0 ? totalLag.sum() / count : 0);
+        return stats;
+    }
+
+
+    /**
+     * clean up.
+     */
+    public void shutdown() {
+
+        if(this.worker != null) {
+            log.info("stopping worker "+this.worker.getName());
+            worker.interrupt();
+            try {
+                worker.join(RollerConstants.GRACEFUL_SHUTDOWN_WAIT_IN_MILLISECONDS);
+            } catch (InterruptedException e) {
+                log.debug(e.getMessage(), e);
+            }
+        }
+
+    }
+
+
+    private void processEvents() {
+        List<EntryChange> changes = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                changes.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            queue.drainTo(changes);
+            process(changes);
+            changes.clear();
+        }
+        log.debug("worker stopped, "+queue.size()+" changes left unprocessed");
+    }
+
+
+    private void process(List<EntryChange> changes) {
+
+        // coalesce by entry
+        Map<String, EntryChange> byEntry = new LinkedHashMap<>();
+        for (EntryChange change : changes) {
+            EntryChange previous = byEntry.put(change.entryId, change);
+            if (previous != null) {
+                coalesced.increment();
+            }
+            recordLag(change);
+        }
+
+        Weblogger roller = WebloggerFactory.getWeblogger();
+        try {
+            WeblogEntryManager mgr = roller.getWeblogEntryManager();
+            IndexManager indexManager = roller.getIndexManager();
+
+            for (EntryChange change : byEntry.values()) {
+                try {
+                    WeblogEntry entry = mgr.getWeblogEntry(change.entryId);
+                    if (entry == null) {
+                        // deleted since, nothing left to index
+                        continue;
+                    }
+
+                    // re-index replaces the existing document in one operation
+                    if (entry.isPublished()) {
+                        indexManager.addEntryReIndexOperation(entry);
+                    } else {
+                        indexManager.removeEntryIndexOperation(entry);
+                    }
+                } catch (WebloggerException | RuntimeException ex) {
+                    errors.increment();
+                    log.error("Error processing change to entry "+change.entryId, ex);
+                }
+            }
+        } finally {
+            // release session, unless we are running on the caller's thread
+            if (enabled) {
+                roller.release();
+            }
+        }
+    }
+
+
+    private void recordLag(EntryChange change) {
+        long lag = System.currentTimeMillis() - change.queuedAt;
+        processed.increment();
+        totalLag.add(lag);
+        lastLag = lag;
+        maxLag.accumulateAndGet(lag, Math::max);
+    }
+
+
+    private static final class EntryChange {
+
+        private final String entryId;
+        private final long queuedAt;
+
+        EntryChange(String entryId, long queuedAt) {
+            this.entryId = entryId;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+}
@@ -91,6 +91,28 @@ public interface FileContentManager {
      */
     boolean overQuota(Weblog weblog);
 
+    /**
+     * Number of bytes stored in the weblog's uploads area.
+     *
+     * Usage is tracked as files are saved and deleted rather than by
+     * scanning the uploads area, so this is cheap enough to call on every
+     * upload.
+     *
+     * @param weblog The weblog we are working on.
+     * @return bytes used by the weblog.
+     */
+    long getStorageUsage(Weblog weblog);
+
+    /**
+     * Recount the bytes stored in the weblog's uploads area, correcting the
+     * tracked usage if it has drifted, e.g. because files were changed
+     * outside of Roller or by another server sharing the storage.
+     *
+     * @param weblog The weblog we are working on.
+     * @return bytes used by the weblog.
+     */
+    long reconcileStorageUsage(Weblog weblog);
+
     /**
      * Determine if file can be saved given current WebloggerConfig settings.
      * 
@@ -25,6 +25,10 @@ import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -45,8 +49,17 @@ public class FileContentManagerImpl implements FileContentManager {
 
     private static final Log log = LogFactory.getLog(FileContentManagerImpl.class);
 
+    // file in each weblog's uploads area holding its storage usage
+    private static final String USAGE_FILENAME = ".storage-usage";
+
+    // prefix of files being written, not yet counted in storage usage
+    private static final String PARTIAL_PREFIX = ".partial-";
+
     private String storageDir = null;
 
+    // weblog handle -> bytes stored in its uploads area, loaded lazily
+    private final Map<String, AtomicLong> usage = new ConcurrentHashMap<>();
+
     /**
      * Create file content manager.
      */
@@ -111,11 +124,40 @@ public class FileContentManagerImpl implements FileContentManager {
         // create File that we are about to save
         Path saveFile = Path.of(dirPath.getAbsolutePath(), fileId);
 
-        try (OutputStream os = Files.newOutputStream(saveFile)) {
-            is.transferTo(os);
+        // copy to a temporary file first, outside of any lock, so uploads to
+        // the same weblog don't wait for each other and a file being replaced
+        // is never seen half written
+        Path tmpFile = null;
+        try {
+            tmpFile = Files.createTempFile(dirPath.toPath(), PARTIAL_PREFIX, null);
+            try (OutputStream os = Files.newOutputStream(tmpFile)) {
+                is.transferTo(os);
+            }
+
+            // reserve the growth, then swap the file in place giving the
+            // reservation back if that fails
+            long delta = Files.size(tmpFile) - saveFile.toFile().length();
+            reserveStorageUsage(weblog, delta);
+            try {
+                Files.move(tmpFile, saveFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                updateStorageUsage(weblog, -delta);
+                throw e;
+            }
+            saveStorageUsage(weblog);
             log.debug("The file has been written to ["+saveFile+"]");
+
         } catch (IOException e) {
             throw new FileIOException("ERROR uploading file", e);
+        } finally {
+            if (tmpFile != null) {
+                try {
+                    Files.deleteIfExists(tmpFile);
+                } catch (IOException e) {
+                    log.warn("Unable to delete [" + tmpFile + "]", e);
+                }
+            }
         }
 
     }
@@ -131,8 +173,11 @@ public class FileContentManagerImpl implements FileContentManager {
         // get path to delete file, checks that path exists and is readable
         File delFile = this.getRealFile(weblog, fileId);
 
+        long size = delFile.length();
         if (!delFile.delete()) {
             log.warn("Delete appears to have failed for [" + fileId + "]");
+        } else {
+            updateStorageUsage(weblog, -size);
         }
     }
 
@@ -149,26 +194,41 @@ public class FileContentManagerImpl implements FileContentManager {
      */
     @Override
     public boolean overQuota(Weblog weblog) {
+        return getStorageUsage(weblog) > getMaxDirBytes();
+    }
 
-        String maxDir = WebloggerRuntimeConfig
-                .getProperty("uploads.dir.maxsize");
-
-        // maxDirSize in megabytes
-        BigDecimal maxDirSize = new BigDecimal(maxDir);
-
-        long maxDirBytes = (long) (RollerConstants.ONE_MB_IN_BYTES * maxDirSize
-                .doubleValue());
-
-        try {
-            File storageDirectory = this.getRealFile(weblog, null);
-            long weblogDirSize = this.getDirSize(storageDirectory, true);
+    /**
+     * @see org.apache.roller.weblogger.business.FileContentManager#getStorageUsage(Weblog)
+     */
+    @Override
+    public long getStorageUsage(Weblog weblog) {
+        return getUsageCounter(weblog).get();
+    }
 
-            return weblogDirSize > maxDirBytes;
-        } catch (Exception ex) {
-            // shouldn't ever happen, this means user's uploads dir is bad
-            // rethrow as a runtime exception
-            throw new RuntimeException(ex);
+    /**
+     * @see org.apache.roller.weblogger.business.FileContentManager#reconcileStorageUsage(Weblog)
+     */
+    @Override
+    public long reconcileStorageUsage(Weblog weblog) {
+
+        // count without holding up writes, a write which lands during the
+        // count may or may not be in it so the count is only applied if
+        // there was none, otherwise it is left to the next run
+        AtomicLong counter = getUsageCounter(weblog);
+        long tracked = counter.get();
+        long actual = countStorageUsage(weblog);
+        if (tracked == actual) {
+            return actual;
+        }
+        if (counter.compareAndSet(tracked, actual)) {
+            log.info("Storage usage of weblog " + weblog.getHandle()
+                    + " corrected from " + tracked + " to " + actual + " bytes");
+            saveStorageUsage(weblog);
+            return actual;
         }
+        log.debug("Storage usage of weblog " + weblog.getHandle()
+                + " changed while counting, not corrected");
+        return counter.get();
     }
 
     @Override
@@ -203,22 +263,10 @@ public class FileContentManagerImpl implements FileContentManager {
         }
 
         // third check, does file cause weblog to exceed quota?
-        BigDecimal maxDirMB = new BigDecimal(
-                WebloggerRuntimeConfig.getProperty("uploads.dir.maxsize"));
-        long maxDirBytes = (long) (RollerConstants.ONE_MB_IN_BYTES * maxDirMB
-                .doubleValue());
-        try {
-            File storageDirectory = this.getRealFile(weblog, null);
-            long userDirSize = getDirSize(storageDirectory, true);
-            if (userDirSize + size > maxDirBytes) {
-                messages.addError("error.upload.dirmax", maxDirMB.toString());
-                return false;
-            }
-        } catch (Exception ex) {
-            // shouldn't ever happen, means the weblogs uploads dir is bad
-            // somehow
-            // rethrow as a runtime exception
-            throw new RuntimeException(ex);
+        if (getStorageUsage(weblog) + size > getMaxDirBytes()) {
+            messages.addError("error.upload.dirmax",
+                    WebloggerRuntimeConfig.getProperty("uploads.dir.maxsize"));
+            return false;
         }
 
         // fourth check, is upload type allowed?
@@ -239,6 +287,106 @@ public class FileContentManagerImpl implements FileContentManager {
         return true;
     }
 
+    /**
+     * The usage counter of a weblog, loading it from the weblog's uploads
+     * area, or counting it there the first time.
+     */
+    private AtomicLong getUsageCounter(Weblog weblog) {
+        return usage.computeIfAbsent(weblog.getHandle(), handle -> {
+            Long saved = loadStorageUsage(weblog);
+            if (saved != null) {
+                return new AtomicLong(saved);
+            }
+            long counted = countStorageUsage(weblog);
+            saveStorageUsage(weblog, counted);
+            return new AtomicLong(counted);
+        });
+    }
+
+    /**
+     * Maximum bytes stored in a weblog's uploads area, uploads.dir.maxsize
+     * is in megabytes.
+     */
+    private static long getMaxDirBytes() {
+        BigDecimal maxDirMB = new BigDecimal(
+                WebloggerRuntimeConfig.getProperty("uploads.dir.maxsize"));
+        return (long) (RollerConstants.ONE_MB_IN_BYTES * maxDirMB.doubleValue());
+    }
+
+    /**
+     * Add delta bytes to the usage of a weblog, refusing growth which would
+     * take it over quota.  The quota check and the add are one atomic step
+     * so concurrent uploads can't each see room for themselves only.
+     */
+    private void reserveStorageUsage(Weblog weblog, long delta) throws FileIOException {
+        AtomicLong counter = getUsageCounter(weblog);
+        long maxDirBytes = getMaxDirBytes();
+        long current;
+        do {
+            current = counter.get();
+            if (delta > 0 && current + delta > maxDirBytes) {
+                throw new FileIOException("Storage quota of weblog " + weblog.getHandle()
+                        + " exceeded");
+            }
+        } while (!counter.compareAndSet(current, current + delta));
+    }
+
+    private void updateStorageUsage(Weblog weblog, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        getUsageCounter(weblog).addAndGet(delta);
+        saveStorageUsage(weblog);
+    }
+
+    private long countStorageUsage(Weblog weblog) {
+        try {
+            return getDirSize(this.getRealFile(weblog, null), true);
+        } catch (Exception ex) {
+            // shouldn't ever happen, means the weblogs uploads dir is bad
+            // somehow
+            // rethrow as a runtime exception
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private Long loadStorageUsage(Weblog weblog) {
+        Path usageFile = Path.of(this.storageDir, weblog.getHandle(), USAGE_FILENAME);
+        if (!Files.isReadable(usageFile)) {
+            return null;
+        }
+        try {
+            return Long.valueOf(Files.readString(usageFile).trim());
+        } catch (IOException | NumberFormatException ex) {
+            log.warn("Unreadable storage usage for weblog " + weblog.getHandle() + ", recounting");
+            return null;
+        }
+    }
+
+    /**
+     * Save the current usage of a weblog.  Saves are serialized so the last
+     * one written holds the latest value, but they only write a few bytes.
+     */
+    private void saveStorageUsage(Weblog weblog) {
+        AtomicLong counter = getUsageCounter(weblog);
+        synchronized (counter) {
+            saveStorageUsage(weblog, counter.get());
+        }
+    }
+
+    private void saveStorageUsage(Weblog weblog, long bytes) {
+        Path usageFile = Path.of(this.storageDir, weblog.getHandle(), USAGE_FILENAME);
+        Path tmpFile = usageFile.resolveSibling(USAGE_FILENAME + ".tmp");
+        try {
+            Files.writeString(tmpFile, Long.toString(bytes));
+            Files.move(tmpFile, usageFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            // the reconciliation task or the next restart will recount
+            log.warn("Unable to save storage usage for weblog " + weblog.getHandle(), ex);
+        }
+    }
+
     /**
      * Get the size in bytes of given directory.
      *
@@ -253,6 +401,10 @@ public class FileContentManagerImpl implements FileContentManager {
             File[] files = dir.listFiles();
             if (files != null) {
                 for (File file : files) {
+                    if (file.getName().startsWith(USAGE_FILENAME)
+                            || file.getName().startsWith(PARTIAL_PREFIX)) {
+                        continue;
+                    }
                     if (!file.isDirectory()) {
                         dirSize += file.length();
                     } else if (recurse) {
@@ -88,7 +88,17 @@ public final class HitCountQueue {
         // if the weblog isn't null then just drop its handle in the queue
         // each entry in the queue is a weblog handle and indicates a single hit
         if(weblog != null) {
-            this.queue.add(weblog.getHandle());
+            processHit(weblog.getHandle());
+        }
+    }
+    
+    
+    /**
+     * Count a hit on the weblog with the given handle.
+     */
+    public void processHit(String weblogHandle) {
+        if(weblogHandle != null) {
+            this.queue.add(weblogHandle);
         }
     }
     
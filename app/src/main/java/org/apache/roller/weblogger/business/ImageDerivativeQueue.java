@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.util.RollerConstants;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.FileContent;
+import org.apache.roller.weblogger.pojos.MediaFile;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.util.ImageScaler;
+
+
+/**
+ * Generates scaled down copies of uploaded images, the thumbnail plus any
+ * sizes listed in mediafile.derivatives.sizes, off the upload request.
+ *
+ * Derivatives are stored through the FileContentManager next to the
+ * original as "id_size", the thumbnail keeps its historical "id_sm" name.
+ * The source image is decoded once, subsampled to just above the largest
+ * size, and each smaller size is scaled from the previous one.  No
+ * derivative is stored for a size the original already fits within, the
+ * original is served for it instead.
+ *
+ * Jobs only carry the weblog handle and file id and run on a small bounded
+ * pool; when the pool is saturated the uploading thread does the work
+ * itself.  If mediafile.derivatives.async is false derivatives are always
+ * generated on the calling thread.
+ */
+public final class ImageDerivativeQueue {
+
+    private static Log log = LogFactory.getLog(ImageDerivativeQueue.class);
+
+    /** Name of the thumbnail size, which is always generated. */
+    public static final String THUMBNAIL = "sm";
+
+    private static ImageDerivativeQueue instance = null;
+
+    // size name -> max width and height, largest first
+    private final Map<String, Dimension> sizes = new LinkedHashMap<>();
+
+    private ThreadPoolExecutor executor = null;
+
+
+    static {
+        instance = new ImageDerivativeQueue();
+    }
+
+
+    // non-instantiable because we are a singleton
+    private ImageDerivativeQueue() {
+
+        List<Map.Entry<String, Dimension>> configured = new ArrayList<>();
+        configured.add(Map.entry(THUMBNAIL,
+                new Dimension(MediaFileManager.MAX_WIDTH, MediaFileManager.MAX_HEIGHT)));
+
+        // name:widthxheight, comma separated
+        String sizesProp = WebloggerConfig.getProperty("mediafile.derivatives.sizes");
+        for (String size : StringUtils.split(StringUtils.defaultString(sizesProp), ',')) {
+            String[] nameAndSize = StringUtils.split(size.trim(), ':');
+            String[] widthAndHeight = nameAndSize.length == 2
+                    ? StringUtils.split(nameAndSize[1], 'x') : new String[0];
+            try {
+                if (widthAndHeight.length != 2 || !StringUtils.isAlphanumeric(nameAndSize[0])) {
+                    throw new IllegalArgumentException();
+                }
+                configured.add(Map.entry(nameAndSize[0], new Dimension(
+                        Integer.parseInt(widthAndHeight[0]), Integer.parseInt(widthAndHeight[1]))));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring invalid image derivative size: " + size);
+            }
+        }
+
+        configured.sort((a, b) -> Long.compare(area(b.getValue()), area(a.getValue())));
+        for (Map.Entry<String, Dimension> size : configured) {
+            sizes.put(size.getKey(), size.getValue());
+        }
+
+        if (WebloggerConfig.getBooleanProperty("mediafile.derivatives.async", true)) {
+            int threads = Math.max(1, WebloggerConfig.getIntProperty("mediafile.derivatives.threads", 1));
+            int queueSize = Math.max(1, WebloggerConfig.getIntProperty("mediafile.derivatives.queueSize", 100));
+            AtomicInteger count = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize), r -> {
+                        Thread t = new Thread(r, "ImageDerivativeProcessor-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    // full, so do it on the uploading thread
+                    (r, pool) -> ((Job) r).process(false));
+        } else {
+            log.warn("Image derivative queue DISABLED, derivatives are generated inline");
+        }
+
+        log.info("Image derivative sizes: " + sizes.keySet());
+    }
+
+
+    public static ImageDerivativeQueue getInstance() {
+        return instance;
+    }
+
+
+    /**
+     * The names of all derivative sizes, including the thumbnail.
+     */
+    public Set<String> getSizeNames() {
+        return Collections.unmodifiableSet(sizes.keySet());
+    }
+
+
+    public boolean isSize(String size) {
+        return size != null && sizes.containsKey(size);
+    }
+
+
+    /**
+     * The file id a derivative is stored under.
+     */
+    public static String getFileId(String mediaFileId, String size) {
+        return mediaFileId + "_" + size;
+    }
+
+
+    /**
+     * The content type a derivative of the media file is stored as.  The
+     * thumbnail is always a PNG, larger sizes of JPEG images are JPEGs.
+     */
+    public static String getContentType(MediaFile mediaFile, String size) {
+        return "jpeg".equals(getFormat(mediaFile.getContentType(), size))
+                ? "image/jpeg" : "image/png";
+    }
+
+
+    /**
+     * Generate all derivatives of an image which has just been stored.
+     */
+    public void generate(Weblog weblog, MediaFile mediaFile) {
+
+        Job job = new Job(weblog.getHandle(), mediaFile.getId(), mediaFile.getContentType());
+        if (executor != null) {
+            executor.execute(job);
+        } else {
+            job.process(false);
+        }
+    }
+
+
+    /**
+     * Delete all derivatives of a media file, ignoring any which are missing.
+     */
+    public void delete(Weblog weblog, String mediaFileId) {
+
+        FileContentManager cmgr = WebloggerFactory.getWeblogger().getFileContentManager();
+        for (String size : sizes.keySet()) {
+            delete(cmgr, weblog, mediaFileId, size);
+        }
+    }
+
+
+    /**
+     * clean up.
+     */
+    public void shutdown() {
+
+        if (executor != null) {
+            log.info("stopping image derivative workers");
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(RollerConstants.GRACEFUL_SHUTDOWN_WAIT_IN_MILLISECONDS,
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                log.debug(e.getMessage(), e);
+            }
+        }
+    }
+
+
+    private void generate(Weblog weblog, String mediaFileId, String contentType) throws Exception {
+
+        FileContentManager cmgr = WebloggerFactory.getWeblogger().getFileContentManager();
+        FileContent original = cmgr.getFileContent(weblog, mediaFileId);
+        File file = original.getFile();
+
+        long start = System.currentTimeMillis();
+        Dimension largest = sizes.values().iterator().next();
+        Dimension originalSize = ImageScaler.readSize(file);
+        BufferedImage current = null;
+        List<String> unneeded = new ArrayList<>();
+
+        for (Map.Entry<String, Dimension> size : sizes.entrySet()) {
+            Dimension max = size.getValue();
+            if (ImageScaler.fitsWithin(originalSize.width, originalSize.height, max.width, max.height)) {
+                // already small enough, the original is served for this size
+                unneeded.add(size.getKey());
+                continue;
+            }
+            if (current == null) {
+                current = ImageScaler.read(file, largest.width, largest.height);
+            }
+
+            Dimension target = ImageScaler.fit(originalSize.width, originalSize.height,
+                    max.width, max.height);
+            if (target.width < current.getWidth() || target.height < current.getHeight()) {
+                current = ImageScaler.scale(current, target.width, target.height);
+            }
+
+            // written over any derivative of previous content, which is
+            // served until this one is in place
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageScaler.write(current, getFormat(contentType, size.getKey()), out);
+            cmgr.saveFileContent(weblog, getFileId(mediaFileId, size.getKey()),
+                    new ByteArrayInputStream(out.toByteArray()));
+        }
+
+        // previous content may have needed sizes this one does not
+        for (String size : unneeded) {
+            delete(cmgr, weblog, mediaFileId, size);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Generated " + (sizes.size() - unneeded.size()) + " derivatives of " + mediaFileId + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+
+    private static void delete(FileContentManager cmgr, Weblog weblog, String mediaFileId, String size) {
+        try {
+            cmgr.deleteFile(weblog, getFileId(mediaFileId, size));
+        } catch (Exception e) {
+            log.debug("Derivative " + size + " of " + mediaFileId + " already unavailable");
+        }
+    }
+
+
+    private static String getFormat(String contentType, String size) {
+        return !THUMBNAIL.equals(size) && "image/jpeg".equals(contentType) ? "jpeg" : "png";
+    }
+
+
+    private static long area(Dimension size) {
+        return (long) size.width * size.height;
+    }
+
+
+    private final class Job implements Runnable {
+
+        private final String weblogHandle;
+        private final String mediaFileId;
+        private final String contentType;
+
+        Job(String weblogHandle, String mediaFileId, String contentType) {
+            this.weblogHandle = weblogHandle;
+            this.mediaFileId = mediaFileId;
+            this.contentType = contentType;
+        }
+
+        @Override
+        public void run() {
+            process(true);
+        }
+
+        void process(boolean async) {
+            Weblogger roller = WebloggerFactory.getWeblogger();
+            try {
+                Weblog weblog = roller.getWeblogManager().getWeblogByHandle(weblogHandle, null);
+                if (weblog != null) {
+                    generate(weblog, mediaFileId, contentType);
+                }
+            } catch (Exception e) {
+                log.error("ERROR creating derivatives of " + mediaFileId, e);
+            } finally {
+                // release session, unless we are running on the caller's thread
+                if (async) {
+                    roller.release();
+                }
+            }
+        }
+    }
+
+}
@@ -21,10 +21,15 @@ package org.apache.roller.weblogger.business;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.config.WebloggerConfig;
 import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
+import org.apache.roller.weblogger.pojos.CacheableResource;
+import org.apache.roller.weblogger.pojos.ThemeResource;
 import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogTheme;
 import org.apache.roller.weblogger.util.URLUtilities;
 
 
@@ -33,6 +38,10 @@ import org.apache.roller.weblogger.util.URLUtilities;
  */
 public class MultiWeblogURLStrategy extends AbstractURLStrategy {
     
+    // shared theme id -> resource path -> fingerprint, built once per theme
+    private static final Map<String, Map<String, String>> themeFingerprints =
+            new ConcurrentHashMap<>();
+    
     public MultiWeblogURLStrategy() {}
     
     
@@ -354,16 +363,62 @@ public class MultiWeblogURLStrategy extends AbstractURLStrategy {
         url.append(getWeblogURL(weblog, null, absolute));
         url.append("resource/");
         
-        if(filePath.startsWith("/")) {
-            url.append(URLUtilities.encodePath(filePath.substring(1)));
-        } else {
-            url.append(URLUtilities.encodePath(filePath));
+        String path = filePath.startsWith("/") ? filePath.substring(1) : filePath;
+        url.append(URLUtilities.encodePath(path));
+        
+        // fingerprint shared theme resources so they can be cached for good
+        String fingerprint = getThemeResourceFingerprint(weblog, path);
+        if (fingerprint != null) {
+            url.append("?v=").append(fingerprint);
         }
         
         return url.toString();
     }
     
     
+    /**
+     * Fingerprint of a resource of the weblog's shared theme, or null if the
+     * weblog has a custom theme or the theme has no such resource.
+     */
+    private static String getThemeResourceFingerprint(Weblog weblog, String path) {
+        
+        String themeId = weblog.getEditorTheme();
+        if (themeId == null || WeblogTheme.CUSTOM.equals(themeId)) {
+            return null;
+        }
+        
+        return themeFingerprints.computeIfAbsent(themeId,
+                MultiWeblogURLStrategy::loadThemeFingerprints).get(path);
+    }
+    
+    
+    /**
+     * Forget the fingerprints of a shared theme's resources, called when the
+     * theme is reloaded.
+     */
+    public static void clearThemeFingerprints(String themeId) {
+        themeFingerprints.remove(themeId);
+    }
+    
+    
+    private static Map<String, String> loadThemeFingerprints(String themeId) {
+        
+        Map<String, String> fingerprints = new HashMap<>();
+        try {
+            for (ThemeResource resource : WebloggerFactory.getWeblogger().getThemeManager()
+                    .getTheme(themeId).getResources()) {
+                if (resource instanceof CacheableResource) {
+                    fingerprints.put(resource.getPath(),
+                            ((CacheableResource) resource).getFingerprint());
+                }
+            }
+        } catch (WebloggerException ex) {
+            // no such theme, just leave its urls as they are
+        }
+        return fingerprints;
+    }
+    
+    
     /**
      * Get url to rsd file on a given weblog.
      */
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+
+package org.apache.roller.weblogger.business;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.roller.weblogger.WebloggerException;
+
+
+/**
+ * Snapshot of the site wide totals and letter maps shown in the site
+ * directory, as read at one point in time.
+ */
+public final class SiteStats {
+
+    private final long weblogCount;
+    private final long userCount;
+    private final long entryCount;
+    private final long commentCount;
+    private final Map<String, Long> weblogHandleLetterMap;
+    private final Map<String, Long> userNameLetterMap;
+    private final Date created = new Date();
+
+
+    public SiteStats(long weblogCount, long userCount, long entryCount, long commentCount,
+            Map<String, Long> weblogHandleLetterMap, Map<String, Long> userNameLetterMap) {
+        this.weblogCount = weblogCount;
+        this.userCount = userCount;
+        this.entryCount = entryCount;
+        this.commentCount = commentCount;
+        this.weblogHandleLetterMap = Collections.unmodifiableMap(new TreeMap<>(weblogHandleLetterMap));
+        this.userNameLetterMap = Collections.unmodifiableMap(new TreeMap<>(userNameLetterMap));
+    }
+
+
+    /**
+     * Read a new snapshot from the managers.
+     */
+    static SiteStats read(Weblogger roller) throws WebloggerException {
+        WeblogManager wmgr = roller.getWeblogManager();
+        UserManager umgr = roller.getUserManager();
+        WeblogEntryManager emgr = roller.getWeblogEntryManager();
+        return new SiteStats(wmgr.getWeblogCount(), umgr.getUserCount(),
+                emgr.getEntryCount(), emgr.getCommentCount(),
+                wmgr.getWeblogHandleLetterMap(), umgr.getUserNameLetterMap());
+    }
+
+
+    /** Number of weblogs, active and inactive. */
+    public long getWeblogCount() {
+        return weblogCount;
+    }
+
+    /** Number of enabled users. */
+    public long getUserCount() {
+        return userCount;
+    }
+
+    /** Number of published entries. */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /** Number of approved comments. */
+    public long getCommentCount() {
+        return commentCount;
+    }
+
+    /** Number of weblogs whose handles start with each letter A-Z. */
+    public Map<String, Long> getWeblogHandleLetterMap() {
+        return weblogHandleLetterMap;
+    }
+
+    /** Number of users whose names start with each letter A-Z. */
+    public Map<String, Long> getUserNameLetterMap() {
+        return userNameLetterMap;
+    }
+
+    /** When the snapshot was read. */
+    public Date getCreated() {
+        return new Date(created.getTime());
+    }
+
+}
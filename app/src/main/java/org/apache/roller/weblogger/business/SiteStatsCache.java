@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+
+package org.apache.roller.weblogger.business;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+
+
+/**
+ * Holds the current SiteStats so that the site directory doesn't count
+ * weblogs, users, entries and comments on every page view.
+ *
+ * The SiteStatsTask refreshes the snapshot in the background and committing
+ * the creation or removal of a weblog or user drops it, so that the next
+ * reader sees the change.  A snapshot older than the timeout is read again on use, which
+ * bounds how stale it gets if the task isn't running.
+ */
+public final class SiteStatsCache {
+
+    private static final Log log = LogFactory.getLog(SiteStatsCache.class);
+
+    // a unique identifier for this cache, this is used as the prefix for
+    // roller config properties that apply to this cache
+    public static final String CACHE_ID = "cache.sitestats";
+
+    private final boolean cacheEnabled;
+    private final long timeout;
+
+    private SiteStats stats = null;
+
+    // bumped by invalidate(), so that a snapshot read while weblogs or
+    // users were being added or removed isn't kept
+    private long generation = 0;
+
+    // bumped by every refresh, so that threads which queued up behind one
+    // take its snapshot rather than each reading another
+    private long refreshes = 0;
+
+    // only one thread reads a snapshot at a time
+    private final Object refreshLock = new Object();
+
+    // reference to our singleton instance
+    private static final SiteStatsCache singletonInstance = new SiteStatsCache();
+
+
+    private SiteStatsCache() {
+        cacheEnabled = WebloggerConfig.getBooleanProperty(CACHE_ID+".enabled", true);
+        timeout = WebloggerConfig.getIntProperty(CACHE_ID+".timeout", 900) * 1000L;
+        if (!cacheEnabled) {
+            log.warn("Caching has been DISABLED");
+        }
+    }
+
+
+    public static SiteStatsCache getInstance() {
+        return singletonInstance;
+    }
+
+
+    /**
+     * Get the current snapshot, reading a new one if there is none or it has
+     * timed out.
+     */
+    public SiteStats getStats() throws WebloggerException {
+        synchronized (this) {
+            if (stats != null
+                    && System.currentTimeMillis() - stats.getCreated().getTime() < timeout) {
+                return stats;
+            }
+        }
+        return refresh();
+    }
+
+
+    /**
+     * Read a new snapshot and make it the current one.  A thread which had to
+     * wait for another one's read takes that snapshot instead.
+     */
+    public SiteStats refresh() throws WebloggerException {
+        long seenRefreshes;
+        synchronized (this) {
+            seenRefreshes = refreshes;
+        }
+
+        synchronized (refreshLock) {
+            long readGeneration;
+            synchronized (this) {
+                if (refreshes != seenRefreshes && stats != null) {
+                    return stats;
+                }
+                readGeneration = generation;
+            }
+
+            SiteStats fresh = SiteStats.read(WebloggerFactory.getWeblogger());
+
+            if (cacheEnabled) {
+                synchronized (this) {
+                    if (readGeneration == generation) {
+                        stats = fresh;
+                    }
+                    refreshes++;
+                }
+                log.debug("REFRESH");
+            }
+            return fresh;
+        }
+    }
+
+
+    /**
+     * Drop the current snapshot, weblogs or users were added or removed.
+     * Call this once the change is committed, so that no other thread reads
+     * the old counts back in afterwards.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        stats = null;
+        log.debug("INVALIDATE");
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.TagStat;
+import org.apache.roller.weblogger.pojos.User;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogBookmark;
+import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
+import org.apache.roller.weblogger.pojos.WeblogCategory;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.pojos.WeblogTemplate;
+import org.apache.roller.weblogger.util.cache.Cache;
+import org.apache.roller.weblogger.util.cache.CacheHandler;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+
+
+/**
+ * Cache for tag clouds and tag lists read from the tag aggregates.
+ *
+ * Keys include a generation number for the weblog, or the site, they were
+ * read for.  Invalidating an entry or weblog bumps the generation of the
+ * weblog and of the site so that their lists simply miss and age out of
+ * the LRU.  Changes made on other nodes of a cluster show up once the
+ * cached lists time out.
+ */
+public final class TagStatCache implements CacheHandler {
+
+    private static final Log log = LogFactory.getLog(TagStatCache.class);
+
+    // a unique identifier for this cache, this is used as the prefix for
+    // roller config properties that apply to this cache
+    public static final String CACHE_ID = "cache.tagstats";
+
+    private static final String SITE = "site";
+
+    // keep cached lists
+    private boolean cacheEnabled = true;
+    private Cache contentCache = null;
+
+    // weblog id or SITE -> generation
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    // reference to our singleton instance
+    private static final TagStatCache singletonInstance = new TagStatCache();
+
+
+    private TagStatCache() {
+
+        cacheEnabled = WebloggerConfig.getBooleanProperty(CACHE_ID+".enabled");
+
+        Map<String, String> cacheProps = new HashMap<>();
+        cacheProps.put("id", CACHE_ID);
+
+        Enumeration<Object> allProps = WebloggerConfig.keys();
+        String prop;
+        while(allProps.hasMoreElements()) {
+            prop = (String) allProps.nextElement();
+
+            // we are only interested in props for this cache
+            if(prop.startsWith(CACHE_ID+".")) {
+                cacheProps.put(prop.substring(CACHE_ID.length()+1),
+                        WebloggerConfig.getProperty(prop));
+            }
+        }
+
+        log.info(cacheProps);
+
+        if(cacheEnabled) {
+            contentCache = CacheManager.constructCache(this, cacheProps);
+        } else {
+            log.warn("Caching has been DISABLED");
+        }
+    }
+
+
+    public static TagStatCache getInstance() {
+        return singletonInstance;
+    }
+
+
+    /**
+     * Get a copy of a cached list, or null if it isn't cached.
+     */
+    public List<TagStat> get(String key) {
+
+        if (!cacheEnabled || key == null) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<TagStat> tags = (List<TagStat>) contentCache.get(key);
+        if(tags != null) {
+            log.debug("HIT "+key);
+            return copy(tags);
+        }
+        log.debug("MISS "+key);
+        return null;
+    }
+
+
+    public void put(String key, List<TagStat> tags) {
+
+        if (!cacheEnabled || key == null || tags == null) {
+            return;
+        }
+
+        contentCache.put(key, copy(tags));
+        log.debug("PUT "+key);
+    }
+
+
+    public void clear() {
+
+        if (!cacheEnabled) {
+            return;
+        }
+
+        contentCache.clear();
+        log.debug("CLEAR");
+    }
+
+
+    /**
+     * Generate a cache key for a list of tags.
+     * This generates a key of the form ...
+     *
+     * <weblog id or "site">:<generation>/<query>/<params...>
+     */
+    public String generateKey(Weblog weblog, String query, Object... params) {
+
+        String owner = weblog != null ? weblog.getId() : SITE;
+
+        StringBuilder key = new StringBuilder(128);
+        key.append(CACHE_ID).append(':');
+        key.append(owner).append(':').append(generations.getOrDefault(owner, 0L));
+        key.append('/').append(query);
+        for (Object param : params) {
+            key.append('/').append(param);
+        }
+
+        return key.toString();
+    }
+
+
+    /**
+     * A weblog's tags have changed, which also changes the site's.
+     */
+    private void invalidateTags(Weblog weblog) {
+        if (cacheEnabled && weblog != null) {
+            generations.merge(weblog.getId(), 1L, Long::sum);
+            generations.merge(SITE, 1L, Long::sum);
+        }
+    }
+
+
+    private static List<TagStat> copy(List<TagStat> tags) {
+        List<TagStat> copy = new ArrayList<>(tags.size());
+        for (TagStat tag : tags) {
+            TagStat t = new TagStat();
+            t.setName(tag.getName());
+            t.setCount(tag.getCount());
+            t.setIntensity(tag.getIntensity());
+            copy.add(t);
+        }
+        return copy;
+    }
+
+
+    /**
+     * An entry has changed, its tags may have too.
+     */
+    @Override
+    public void invalidate(WeblogEntry entry) {
+        invalidateTags(entry.getWebsite());
+    }
+
+
+    /**
+     * A weblog has changed, possibly all of its entries.
+     */
+    @Override
+    public void invalidate(Weblog website) {
+        invalidateTags(website);
+    }
+
+
+    @Override
+    public void invalidate(WeblogBookmark bookmark) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogBookmarkFolder folder) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogEntryComment comment) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(User user) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogCategory category) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogTemplate template) {
+        // ignored
+    }
+
+}
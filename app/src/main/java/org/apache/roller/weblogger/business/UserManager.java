@@ -18,6 +18,7 @@
 
 package org.apache.roller.weblogger.business;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -115,7 +116,17 @@ public interface UserManager {
      */
     User getUserByUserName(String userName, Boolean enabled)
         throws WebloggerException;
-
+    
+    
+    /**
+     * Load the users with the given names in one query, so that looking
+     * them up by name afterwards takes no further queries.
+     * @param userNames names of the users, unknown names are ignored
+     * @throws WebloggerException If there is a problem.
+     */
+    void prefetchUsers(Collection<String> userNames) throws WebloggerException;
+    
+    
     /**
      * Lookup a user by Open ID URL.
      *
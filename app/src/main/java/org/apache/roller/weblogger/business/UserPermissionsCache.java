@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+
+package org.apache.roller.weblogger.business;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.User;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogBookmark;
+import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
+import org.apache.roller.weblogger.pojos.WeblogCategory;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.pojos.WeblogTemplate;
+import org.apache.roller.weblogger.util.cache.Cache;
+import org.apache.roller.weblogger.util.cache.CacheHandler;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+
+
+/**
+ * Cache of users' roles and of the actions of their weblog permissions, so
+ * that checking permissions doesn't query the database on every request.
+ *
+ * Keys include a generation number for the user, which the UserManager
+ * bumps whenever it changes the user's roles or permissions, so that stale
+ * entries simply miss and age out of the LRU.  Callers read the generation
+ * before looking the user up and pass it to the put, so that what was read
+ * before a change isn't cached under the new generation.  Changes made on
+ * other nodes of a cluster show up once the cached entries time out.
+ */
+public final class UserPermissionsCache implements CacheHandler {
+
+    private static final Log log = LogFactory.getLog(UserPermissionsCache.class);
+
+    // a unique identifier for this cache, this is used as the prefix for
+    // roller config properties that apply to this cache
+    public static final String CACHE_ID = "cache.permissions";
+
+    // cached in place of the actions of a permission the user doesn't have
+    private static final String NONE = "";
+
+    // keep cached roles and permissions
+    private boolean cacheEnabled = true;
+    private Cache contentCache = null;
+
+    // user name -> generation
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    // reference to our singleton instance
+    private static final UserPermissionsCache singletonInstance = new UserPermissionsCache();
+
+
+    private UserPermissionsCache() {
+
+        cacheEnabled = WebloggerConfig.getBooleanProperty(CACHE_ID+".enabled");
+
+        Map<String, String> cacheProps = new HashMap<>();
+        cacheProps.put("id", CACHE_ID);
+
+        Enumeration<Object> allProps = WebloggerConfig.keys();
+        String prop;
+        while(allProps.hasMoreElements()) {
+            prop = (String) allProps.nextElement();
+
+            // we are only interested in props for this cache
+            if(prop.startsWith(CACHE_ID+".")) {
+                cacheProps.put(prop.substring(CACHE_ID.length()+1),
+                        WebloggerConfig.getProperty(prop));
+            }
+        }
+
+        log.info(cacheProps);
+
+        if(cacheEnabled) {
+            contentCache = CacheManager.constructCache(this, cacheProps);
+        } else {
+            log.warn("Caching has been DISABLED");
+        }
+    }
+
+
+    public static UserPermissionsCache getInstance() {
+        return singletonInstance;
+    }
+
+
+    /**
+     * Get a copy of a user's cached roles, or null if they aren't cached.
+     */
+    public List<String> getRoles(String userName) {
+
+        if (!cacheEnabled || userName == null) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<String> roles = (List<String>) contentCache.get(rolesKey(userName, getGeneration(userName)));
+        return roles != null ? new ArrayList<>(roles) : null;
+    }
+
+
+    /**
+     * @param generation the user's generation when the roles were looked up,
+     *        the roles aren't kept if it has changed since
+     */
+    public void putRoles(String userName, long generation, List<String> roles) {
+
+        if (!cacheEnabled || userName == null || roles == null
+                || generation != getGeneration(userName)) {
+            return;
+        }
+
+        contentCache.put(rolesKey(userName, generation), new ArrayList<>(roles));
+    }
+
+
+    /**
+     * Get the cached actions of a user's permission in a weblog.
+     *
+     * @return the actions, an empty string if the user is known to have no
+     *         permission in the weblog, or null if nothing is cached.
+     */
+    public String getWeblogActions(String userName, String handle) {
+
+        if (!cacheEnabled || userName == null || handle == null) {
+            return null;
+        }
+
+        return (String) contentCache.get(weblogKey(userName, getGeneration(userName), handle));
+    }
+
+
+    /**
+     * @param generation the user's generation when the permission was looked
+     *        up, the actions aren't kept if it has changed since
+     * @param actions actions of the permission, or null if the user has none
+     */
+    public void putWeblogActions(String userName, long generation, String handle, String actions) {
+
+        if (!cacheEnabled || userName == null || handle == null
+                || generation != getGeneration(userName)) {
+            return;
+        }
+
+        contentCache.put(weblogKey(userName, generation, handle), actions != null ? actions : NONE);
+    }
+
+
+    /**
+     * Get the user's current generation, read it before looking up what is
+     * to be cached and pass it to the put.
+     */
+    public long getGeneration(String userName) {
+        return userName != null ? generations.getOrDefault(userName, 0L) : 0L;
+    }
+
+
+    /**
+     * A user's roles or permissions have changed.
+     */
+    public void invalidateUser(String userName) {
+        if (cacheEnabled && userName != null) {
+            generations.merge(userName, 1L, Long::sum);
+        }
+    }
+
+
+    public void clear() {
+
+        if (!cacheEnabled) {
+            return;
+        }
+
+        contentCache.clear();
+        log.debug("CLEAR");
+    }
+
+
+    private String rolesKey(String userName, long generation) {
+        return CACHE_ID + ':' + userName + ':' + generation + "/roles";
+    }
+
+
+    private String weblogKey(String userName, long generation, String handle) {
+        return CACHE_ID + ':' + userName + ':' + generation + "/weblog/" + handle;
+    }
+
+
+    @Override
+    public void invalidate(User user) {
+        invalidateUser(user.getUserName());
+    }
+
+
+    @Override
+    public void invalidate(Weblog website) {
+        // ignored, permission changes are invalidated by the UserManager
+    }
+
+
+    @Override
+    public void invalidate(WeblogEntry entry) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogBookmark bookmark) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogBookmarkFolder folder) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogEntryComment comment) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogCategory category) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogTemplate template) {
+        // ignored
+    }
+
+}
@@ -43,6 +43,40 @@ public interface WeblogEntryManager {
      * Save weblog entry.
      */
     void saveWeblogEntry(WeblogEntry entry) throws WebloggerException;
+
+    /**
+     * Publish SCHEDULED entries whose publication time has been reached, in
+     * pubTime order, using bulk updates rather than saving each entry.  Tag
+     * aggregates, weblog last modified dates and auto pings are updated
+     * once for the whole batch.
+     *
+     * Caches and the search index are left to the caller, after a flush.
+     * The returned entries are not refreshed and still show the SCHEDULED
+     * status, they are only meant for that purpose.
+     *
+     * @param now publish entries with a pubTime up to this date.
+     * @param maxEntries max number of entries to publish, -1 for no limit.
+     * @return the entries which were published.
+     */
+    List<WeblogEntry> publishScheduledEntries(Date now, int maxEntries)
+            throws WebloggerException;
+
+    /**
+     * Recompute the weblog and site wide tag aggregates from the tags of
+     * published entries, correcting counts which drifted, removing
+     * duplicate and unused rows and adding missing ones.
+     *
+     * @return the number of aggregate rows which were corrected.
+     */
+    int reconcileTagAggregates() throws WebloggerException;
+
+    /**
+     * Recompute the approved comment count of every entry from its
+     * comments, correcting counts which drifted.
+     *
+     * @return the number of entries whose count was corrected.
+     */
+    int reconcileCommentCounts() throws WebloggerException;
        
     /**
      * Remove weblog entry.
@@ -79,6 +113,19 @@ public interface WeblogEntryManager {
     Map<Date, List<WeblogEntry>> getWeblogEntryObjectMap(WeblogEntrySearchCriteria wesc)
             throws WebloggerException;
 
+    /**
+     * Load the creators of a list of entries up front, with one query however
+     * many entries there are, rather than one per entry as templates render
+     * them.  Tags and attributes of entries listed by getWeblogEntries() and
+     * getWeblogEntriesPinnedToMain() are batch fetched for the whole list,
+     * categories and weblogs are always loaded with the entries and comment
+     * counts are kept on them.
+     * @param entries entries about to be rendered
+     * @throws WebloggerException
+     */
+    void prefetchWeblogEntries(List<WeblogEntry> entries)
+            throws WebloggerException;
+
     /**
      * Get Weblog Entry date strings grouped by day. This method returns a Map
      * that contains one YYYYMMDD date string object for each calendar day having
@@ -177,12 +224,13 @@ public interface WeblogEntryManager {
             throws WebloggerException;
 
     /**
-     * Save comment.
+     * Save comment, updating the approved comment count of its entry if the
+     * comment is new or its status changed.
      */
     void saveComment(WeblogEntryComment comment) throws WebloggerException;
     
     /**
-     * Remove comment.
+     * Remove comment, updating the approved comment count of its entry.
      */
     void removeComment(WeblogEntryComment comment) throws WebloggerException;
    
@@ -198,6 +246,33 @@ public interface WeblogEntryManager {
      */
     List<WeblogEntryComment> getComments(CommentSearchCriteria csc) throws WebloggerException;
 
+    /**
+     * Ids of the comments fitting the search criteria, in the order
+     * getComments() would return them.
+     * @param csc CommentSearchCriteria object with fields indicating search criteria
+     * @return list of comment ids
+     */
+    List<String> getCommentIds(CommentSearchCriteria csc) throws WebloggerException;
+
+    /**
+     * Delete comments by id using bulk deletes, updating the approved comment
+     * counts of their entries.  Comments loaded in this session are not
+     * updated.
+     * @param ids ids of the comments to delete
+     * @return the entries which had comments deleted
+     */
+    List<WeblogEntry> removeComments(List<String> ids) throws WebloggerException;
+
+    /**
+     * Set the status of comments by id using bulk updates, updating the
+     * approved comment counts of their entries.  No notifications are sent.
+     * @param ids ids of the comments to update
+     * @param status new status of the comments
+     * @return the entries which had comments changed
+     */
+    List<WeblogEntry> updateCommentStatus(List<String> ids, ApprovalStatus status)
+            throws WebloggerException;
+
     /**
      * Deletes comments that match paramters.
      * @param website    Website or null for all comments on site
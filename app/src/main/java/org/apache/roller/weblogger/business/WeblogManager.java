@@ -27,6 +27,7 @@ import org.apache.roller.weblogger.pojos.StatCount;
 import org.apache.roller.weblogger.pojos.ThemeTemplate.ComponentType;
 import org.apache.roller.weblogger.pojos.User;
 import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogSnapshot;
 import org.apache.roller.weblogger.pojos.WeblogTemplate;
 
 
@@ -74,6 +75,16 @@ public interface WeblogManager {
         throws WebloggerException;
     
     
+    /**
+     * Get an immutable snapshot of the weblog specified by handle, whether
+     * or not it is visible, or null if there is no such weblog.  Snapshots
+     * are cached and replaced when the weblog is saved, so callers which only
+     * need the weblog's state can avoid loading it.
+     * @param handle  Handle of website
+     */
+    WeblogSnapshot getWeblogSnapshot(String handle) throws WebloggerException;
+    
+    
     /**
      * Get websites optionally restricted by user, enabled and active status.
      * @param enabled   Get all with this enabled state (or null or all)
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.User;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogBookmark;
+import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
+import org.apache.roller.weblogger.pojos.WeblogCategory;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.pojos.WeblogSnapshot;
+import org.apache.roller.weblogger.pojos.WeblogTemplate;
+import org.apache.roller.weblogger.util.cache.Cache;
+import org.apache.roller.weblogger.util.cache.CacheHandler;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+
+
+/**
+ * Cache of weblog snapshots by weblog handle, see WeblogManager.getWeblogSnapshot().
+ *
+ * The WeblogManager drops a weblog's snapshot whenever it saves or removes
+ * the weblog, and so does invalidating the weblog.  Dropping a snapshot
+ * bumps a generation number for the handle, callers read the generation
+ * before reading the weblog and pass it to the put, so that a snapshot read
+ * before a change isn't cached after it.  Changes made on other nodes of a
+ * cluster show up once the cached snapshots time out.
+ */
+public final class WeblogSnapshotCache implements CacheHandler {
+
+    private static final Log log = LogFactory.getLog(WeblogSnapshotCache.class);
+
+    // a unique identifier for this cache, this is used as the prefix for
+    // roller config properties that apply to this cache
+    public static final String CACHE_ID = "cache.weblogsnapshot";
+
+    // keep cached snapshots
+    private boolean cacheEnabled = true;
+    private Cache contentCache = null;
+
+    // handle -> generation
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    // bumped by clear(), which drops every handle's snapshot
+    private volatile long clears = 0;
+
+    // reference to our singleton instance
+    private static final WeblogSnapshotCache singletonInstance = new WeblogSnapshotCache();
+
+
+    private WeblogSnapshotCache() {
+
+        cacheEnabled = WebloggerConfig.getBooleanProperty(CACHE_ID+".enabled");
+
+        Map<String, String> cacheProps = new HashMap<>();
+        cacheProps.put("id", CACHE_ID);
+
+        Enumeration<Object> allProps = WebloggerConfig.keys();
+        String prop;
+        while(allProps.hasMoreElements()) {
+            prop = (String) allProps.nextElement();
+
+            // we are only interested in props for this cache
+            if(prop.startsWith(CACHE_ID+".")) {
+                cacheProps.put(prop.substring(CACHE_ID.length()+1),
+                        WebloggerConfig.getProperty(prop));
+            }
+        }
+
+        log.info(cacheProps);
+
+        if(cacheEnabled) {
+            contentCache = CacheManager.constructCache(this, cacheProps);
+        } else {
+            log.warn("Caching has been DISABLED");
+        }
+    }
+
+
+    public static WeblogSnapshotCache getInstance() {
+        return singletonInstance;
+    }
+
+
+    /**
+     * Get the cached snapshot of a weblog, or null if it isn't cached.
+     */
+    public WeblogSnapshot get(String handle) {
+
+        if (!cacheEnabled || handle == null) {
+            return null;
+        }
+
+        WeblogSnapshot snapshot = (WeblogSnapshot) contentCache.get(CACHE_ID + ':' + handle);
+        if(snapshot != null) {
+            log.debug("HIT "+handle);
+        } else {
+            log.debug("MISS "+handle);
+        }
+        return snapshot;
+    }
+
+
+    /**
+     * @param generation the generation of the snapshot's handle when the
+     *        weblog was read, the snapshot isn't kept if it has changed since
+     */
+    public synchronized void put(WeblogSnapshot snapshot, long generation) {
+
+        if (!cacheEnabled || snapshot == null
+                || generation != getGeneration(snapshot.getHandle())) {
+            return;
+        }
+
+        contentCache.put(CACHE_ID + ':' + snapshot.getHandle(), snapshot);
+        log.debug("PUT "+snapshot.getHandle());
+    }
+
+
+    /**
+     * Get the current generation of a handle, read it before reading the
+     * weblog and pass it to put().
+     */
+    public long getGeneration(String handle) {
+        return clears + (handle != null ? generations.getOrDefault(handle, 0L) : 0L);
+    }
+
+
+    /**
+     * Drop the cached snapshot of a weblog.
+     */
+    public synchronized void remove(String handle) {
+
+        if (!cacheEnabled || handle == null) {
+            return;
+        }
+
+        generations.merge(handle, 1L, Long::sum);
+        contentCache.remove(CACHE_ID + ':' + handle);
+        log.debug("REMOVE "+handle);
+    }
+
+
+    public synchronized void clear() {
+
+        if (!cacheEnabled) {
+            return;
+        }
+
+        clears++;
+        contentCache.clear();
+        log.debug("CLEAR");
+    }
+
+
+    @Override
+    public void invalidate(Weblog website) {
+        remove(website.getHandle());
+    }
+
+
+    @Override
+    public void invalidate(WeblogEntry entry) {
+        // ignored, saving an entry saves its weblog
+    }
+
+
+    @Override
+    public void invalidate(WeblogBookmark bookmark) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogBookmarkFolder folder) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogEntryComment comment) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(User user) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogCategory category) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogTemplate template) {
+        // ignored
+    }
+
+}
@@ -341,6 +341,7 @@ public abstract class WebloggerImpl implements Weblogger {
             threadManager.release();
             userManager.release();
             weblogManager.release();
+            weblogEntryManager.release();
         } catch(Exception e) {
             log.error("Error calling Roller.release()", e);
         }
@@ -415,6 +416,11 @@ public abstract class WebloggerImpl implements Weblogger {
     public void shutdown() {
         try {
             HitCountQueue.getInstance().shutdown();
+            EntryChangeQueue.getInstance().shutdown();
+            ImageDerivativeQueue.getInstance().shutdown();
+            if (themeManager != null) {
+                themeManager.shutdown();
+            }
             if (indexManager != null) {
                 indexManager.shutdown();
             }
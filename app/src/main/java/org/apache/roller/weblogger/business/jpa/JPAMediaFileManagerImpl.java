@@ -17,11 +17,7 @@
  */
 package org.apache.roller.weblogger.business.jpa;
 
-import java.awt.Graphics2D;
-import java.awt.Image;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.awt.Dimension;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -36,7 +32,6 @@ import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 
-import javax.imageio.ImageIO;
 import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
 
@@ -46,6 +41,8 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.FileContentManager;
 import org.apache.roller.weblogger.business.FileIOException;
+import org.apache.roller.weblogger.business.FileNotFoundException;
+import org.apache.roller.weblogger.business.ImageDerivativeQueue;
 import org.apache.roller.weblogger.business.MediaFileManager;
 import org.apache.roller.weblogger.business.WeblogManager;
 import org.apache.roller.weblogger.business.Weblogger;
@@ -59,6 +56,7 @@ import org.apache.roller.weblogger.pojos.MediaFileTag;
 import org.apache.roller.weblogger.pojos.MediaFileType;
 import org.apache.roller.weblogger.pojos.User;
 import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.util.ImageScaler;
 import org.apache.roller.weblogger.util.RollerMessages;
 import org.apache.roller.weblogger.util.Utilities;
 
@@ -255,32 +253,16 @@ public class JPAMediaFileManagerImpl implements MediaFileManager {
                     .getFileContentManager();
             FileContent fc = cmgr.getFileContent(mediaFile.getWeblog(),
                     mediaFile.getId());
-            BufferedImage img;
 
-            img = ImageIO.read(fc.getInputStream());
-
-            // determine and save width and height
-            mediaFile.setWidth(img.getWidth());
-            mediaFile.setHeight(img.getHeight());
+            // determine and save width and height, only the header is read
+            Dimension size = ImageScaler.readSize(fc.getFile());
+            mediaFile.setWidth(size.width);
+            mediaFile.setHeight(size.height);
             strategy.store(mediaFile);
 
-            int newWidth = mediaFile.getThumbnailWidth();
-            int newHeight = mediaFile.getThumbnailHeight();
-
-            // create thumbnail image
-            Image newImage = img.getScaledInstance(newWidth, newHeight,
-                    Image.SCALE_SMOOTH);
-            BufferedImage tmp = new BufferedImage(newWidth, newHeight,
-                    BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g2 = tmp.createGraphics();
-            g2.drawImage(newImage, 0, 0, newWidth, newHeight, null);
-            g2.dispose();
-
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(tmp, "png", baos);
-
-            cmgr.saveFileContent(mediaFile.getWeblog(), mediaFile.getId()
-                    + "_sm", new ByteArrayInputStream(baos.toByteArray()));
+            // thumbnail and other sizes are scaled in the background and
+            // replace any left from previous content once they are written
+            ImageDerivativeQueue.getInstance().generate(mediaFile.getWeblog(), mediaFile);
 
             roller.flush();
             // Refresh associated parent for changes
@@ -364,9 +346,15 @@ public class JPAMediaFileManagerImpl implements MediaFileManager {
 
             try {
                 FileContent thumbnail = cmgr.getFileContent(mediaFile
-                        .getDirectory().getWeblog(), id + "_sm");
+                        .getDirectory().getWeblog(),
+                        ImageDerivativeQueue.getFileId(id, ImageDerivativeQueue.THUMBNAIL));
                 mediaFile.setThumbnailContent(thumbnail);
 
+            } catch (FileNotFoundException e) {
+                // small enough to be its own thumbnail, or not scaled yet
+                log.debug("No thumbnail for image " + id + ", using the original");
+                mediaFile.setThumbnailContent(content);
+
             } catch (Exception e) {
                 if (log.isDebugEnabled()) {
                     log.debug("Cannot load thumbnail for image " + id, e);
@@ -506,11 +494,11 @@ public class JPAMediaFileManagerImpl implements MediaFileManager {
 
         try {
             cmgr.deleteFile(weblog, mediaFile.getId());
-            // Now thumbnail
-            cmgr.deleteFile(weblog, mediaFile.getId() + "_sm");
         } catch (Exception e) {
             log.debug("File to be deleted already unavailable in the file store");
         }
+        // Now thumbnail and other sizes
+        ImageDerivativeQueue.getInstance().delete(weblog, mediaFile.getId());
     }
 
     /**
@@ -867,11 +855,11 @@ public class JPAMediaFileManagerImpl implements MediaFileManager {
         for (MediaFile mf : files) {
             try {
                 cmgr.deleteFile(dir.getWeblog(), mf.getId());
-                // Now thumbnail
-                cmgr.deleteFile(dir.getWeblog(), mf.getId() + "_sm");
             } catch (Exception e) {
                 log.debug("File to be deleted already unavailable in the file store");
             }
+            // Now thumbnail and other sizes
+            ImageDerivativeQueue.getInstance().delete(dir.getWeblog(), mf.getId());
             this.strategy.remove(mf);
         }
 
@@ -36,10 +36,16 @@ import javax.naming.NamingException;
 import javax.persistence.TypedQuery;
 
 import org.apache.roller.weblogger.business.DatabaseProvider;
+import org.eclipse.persistence.sessions.UnitOfWork;
 
 
 /**
  * Responsible for the lowest-level interaction with the JPA API.
+ *
+ * If the database has a read-only replica, reads made outside of a
+ * transaction go to it, see ReplicaRouting.  Reads made in a transaction
+ * go to the database; once it is committed, only the read-after-write
+ * window keeps reads of new EntityManagers there.
  */
 @com.google.inject.Singleton
 public class JPAPersistenceStrategy {
@@ -57,6 +63,11 @@ public class JPAPersistenceStrategy {
      */
     private EntityManagerFactory emf = null;
     
+    /**
+     * Routing of reads to the replica, null if there is no replica.
+     */
+    private ReplicaRouting replicaRouting = null;
+    
             
     /**
      * Construct by finding JPA EntityManagerFactory.
@@ -100,8 +111,27 @@ public class JPAPersistenceStrategy {
                 emfProps.setProperty("javax.persistence.jdbc.password", dbProvider.getJdbcPassword());
             }
 
+            // non-transactional reads use the read connection pool
+            if (dbProvider.hasReplica()) {
+                if (dbProvider.getType() == DatabaseProvider.ConfigurationType.JNDI_NAME) {
+                    emfProps.setProperty("eclipselink.connection-pool.read.nonJtaDataSource",
+                            dbProvider.getFullReplicaJndiName());
+                } else {
+                    emfProps.setProperty("eclipselink.connection-pool.read.url",
+                            dbProvider.getReplicaJdbcConnectionURL());
+                    emfProps.setProperty("eclipselink.connection-pool.read.user",
+                            dbProvider.getReplicaJdbcUsername());
+                    emfProps.setProperty("eclipselink.connection-pool.read.password",
+                            dbProvider.getReplicaJdbcPassword());
+                }
+                int window = WebloggerConfig.getIntProperty("database.replica.readAfterWriteWindow", 5);
+                replicaRouting = new ReplicaRouting(window * 1000L);
+                logger.info("Reading from replica, except for " + window + " seconds after writes");
+            }
+
             try {
                 this.emf = Persistence.createEntityManagerFactory("RollerPU", emfProps);
+                SharedCacheMonitor.getInstance().attach(emf);
 
             } catch (Exception pe) {
                 logger.error("ERROR: creating entity manager", pe);
@@ -133,6 +163,11 @@ public class JPAPersistenceStrategy {
         try {
             EntityManager em = getEntityManager(true);
             em.getTransaction().commit();
+            if (replicaRouting != null) {
+                // the replica may not have the changes yet, EntityManagers
+                // created during the window keep reading from the database
+                replicaRouting.written(System.currentTimeMillis());
+            }
         } catch (PersistenceException pe) {
             throw new WebloggerException(pe);
         }
@@ -243,6 +278,11 @@ public class JPAPersistenceStrategy {
         EntityManager em = getThreadLocalEntityManager();
         if (isTransactionRequired && !em.getTransaction().isActive()) {
             em.getTransaction().begin();
+            if (replicaRouting != null) {
+                // begin the database transaction now so that reads made in
+                // the transaction use its connection rather than the replica
+                em.unwrap(UnitOfWork.class).beginEarlyTransaction();
+            }
         }
         return em;
     }
@@ -253,7 +293,12 @@ public class JPAPersistenceStrategy {
     private EntityManager getThreadLocalEntityManager() {
         EntityManager em = threadLocalEntityManager.get();
         if (em == null) {
-            em = emf.createEntityManager();
+            if (replicaRouting != null
+                    && !replicaRouting.canReadFromReplica(System.currentTimeMillis())) {
+                em = emf.createEntityManager(ReplicaRouting.PRIMARY_ONLY);
+            } else {
+                em = emf.createEntityManager();
+            }
             threadLocalEntityManager.set(em);
         }
         return em;
@@ -24,15 +24,20 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.business.CredentialCache;
+import org.apache.roller.weblogger.business.SiteStatsCache;
 import org.apache.roller.weblogger.business.UserManager;
+import org.apache.roller.weblogger.business.UserPermissionsCache;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
 import javax.persistence.TypedQuery;
 import org.apache.roller.weblogger.config.WebloggerConfig;
 import org.apache.roller.weblogger.pojos.GlobalPermission;
@@ -49,9 +54,22 @@ public class JPAUserManagerImpl implements UserManager {
 
     private final JPAPersistenceStrategy strategy;
     
+    // max user names per IN clause when prefetching users
+    private static final int NAME_CHUNK_SIZE = 500;
+    
     // cached mapping of userNames -> userIds
     private Map<String, String> userNameToIdMap = Collections.synchronizedMap(new HashMap<String, String>());
     
+    // users whose roles or permissions this thread changed since the last
+    // release, lookups for them aren't cached until the change is committed
+    private final ThreadLocal<Set<String>> changedUsers = ThreadLocal.withInitial(HashSet::new);
+    
+    // users this thread saved or removed since the last release
+    private final ThreadLocal<Set<String>> savedUsers = ThreadLocal.withInitial(HashSet::new);
+    
+    // true if this thread added or removed users since the last release
+    private final ThreadLocal<Boolean> usersCountChanged = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    
 
     @com.google.inject.Inject
     protected JPAUserManagerImpl(JPAPersistenceStrategy strat) {
@@ -61,7 +79,35 @@ public class JPAUserManagerImpl implements UserManager {
 
 
     @Override
-    public void release() {}
+    public void release() {
+        // other threads may have cached what they read before our changes
+        // were committed
+        Set<String> changed = changedUsers.get();
+        for (String userName : changed) {
+            UserPermissionsCache.getInstance().invalidateUser(userName);
+        }
+        changed.clear();
+
+        Set<String> saved = savedUsers.get();
+        for (String userName : saved) {
+            CredentialCache.getInstance().invalidate(userName);
+        }
+        saved.clear();
+
+        if (usersCountChanged.get()) {
+            SiteStatsCache.getInstance().invalidate();
+            usersCountChanged.remove();
+        }
+    }
+
+
+    /**
+     * Drop the user's cached roles and permissions.
+     */
+    private void permissionsChanged(String userName) {
+        UserPermissionsCache.getInstance().invalidateUser(userName);
+        changedUsers.get().add(userName);
+    }
     
     
     //--------------------------------------------------------------- user CRUD
@@ -69,6 +115,10 @@ public class JPAUserManagerImpl implements UserManager {
     @Override
     public void saveUser(User data) throws WebloggerException {
         this.strategy.store(data);
+
+        // the password may have changed or the user been disabled
+        CredentialCache.getInstance().invalidate(data.getUserName());
+        savedUsers.get().add(data.getUserName());
     }
 
     
@@ -85,6 +135,10 @@ public class JPAUserManagerImpl implements UserManager {
 
         // remove entry from cache mapping
         this.userNameToIdMap.remove(userName);
+        permissionsChanged(userName);
+        CredentialCache.getInstance().invalidate(userName);
+        savedUsers.get().add(userName);
+        usersCountChanged.set(Boolean.TRUE);
     }
 
     
@@ -119,6 +173,7 @@ public class JPAUserManagerImpl implements UserManager {
         if (adminUser) {
             grantRole("admin", newUser);
         }
+        usersCountChanged.set(Boolean.TRUE);
     }
 
     @Override
@@ -210,6 +265,21 @@ public class JPAUserManagerImpl implements UserManager {
         return user;
     }
 
+    @Override
+    public void prefetchUsers(Collection<String> userNames) throws WebloggerException {
+
+        List<String> names = new ArrayList<>(new HashSet<>(userNames));
+        for (int i = 0; i < names.size(); i += NAME_CHUNK_SIZE) {
+            TypedQuery<User> query = strategy.getNamedQuery("User.getByUserNames", User.class);
+            query.setParameter(1, names.subList(i, Math.min(i + NAME_CHUNK_SIZE, names.size())));
+            // the users stay in the persistence context, the mapping lets
+            // getUserByUserName() find them there
+            for (User user : query.getResultList()) {
+                this.userNameToIdMap.put(user.getUserName(), user.getId());
+            }
+        }
+    }
+
     @Override
     public List<User> getUsers(Boolean enabled, Date startDate, Date endDate,
             int offset, int length)
@@ -292,18 +362,9 @@ public class JPAUserManagerImpl implements UserManager {
     
     @Override
     public Map<String, Long> getUserNameLetterMap() throws WebloggerException {
-        String lc = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-        Map<String, Long> results = new TreeMap<>();
-        TypedQuery<Long> query = strategy.getNamedQuery(
-                "User.getCountByUserNameLike", Long.class);
-        for (int i=0; i<26; i++) {
-            char currentChar = lc.charAt(i);
-            query.setParameter(1, currentChar + "%");
-            List<Long> row = query.getResultList();
-            Long count = row.get(0);
-            results.put(String.valueOf(currentChar), count);
-        }
-        return results;
+        TypedQuery<Object[]> query = strategy.getNamedQuery(
+                "User.getCountGroupByUserNameInitial", Object[].class);
+        return JPAWeblogManagerImpl.toLetterMap(query.getResultList());
     }
 
     
@@ -359,8 +420,9 @@ public class JPAUserManagerImpl implements UserManager {
             // if user has specified permission in weblog return true
             WeblogPermission permToCheck = (WeblogPermission)perm;
             try {
-                RollerPermission existingPerm = getWeblogPermission(permToCheck.getWeblog(), user);
-                if (existingPerm != null && existingPerm.implies(perm)) {
+                String actions = getWeblogPermissionActions(permToCheck.getWeblog(), user);
+                if (actions != null
+                        && new WeblogPermission(permToCheck.getWeblog(), user, actions).implies(perm)) {
                     return true;
                 }
             } catch (WebloggerException ignored) {
@@ -393,6 +455,26 @@ public class JPAUserManagerImpl implements UserManager {
         }
     }
 
+    /**
+     * Actions of the user's permission in the weblog, or null if the user
+     * has none, read through the permissions cache.
+     */
+    private String getWeblogPermissionActions(Weblog weblog, User user) throws WebloggerException {
+        if (changedUsers.get().contains(user.getUserName())) {
+            WeblogPermission existingPerm = getWeblogPermission(weblog, user);
+            return existingPerm != null ? existingPerm.getActions() : null;
+        }
+        UserPermissionsCache cache = UserPermissionsCache.getInstance();
+        long generation = cache.getGeneration(user.getUserName());
+        String actions = cache.getWeblogActions(user.getUserName(), weblog.getHandle());
+        if (actions == null) {
+            WeblogPermission existingPerm = getWeblogPermission(weblog, user);
+            actions = existingPerm != null ? existingPerm.getActions() : null;
+            cache.putWeblogActions(user.getUserName(), generation, weblog.getHandle(), actions);
+        }
+        return actions == null || actions.isEmpty() ? null : actions;
+    }
+
     @Override
     public WeblogPermission getWeblogPermissionIncludingPending(Weblog weblog, User user) throws WebloggerException {
         TypedQuery<WeblogPermission> q = strategy.getNamedQuery("WeblogPermission.getByUserName&WeblogIdIncludingPending",
@@ -409,6 +491,8 @@ public class JPAUserManagerImpl implements UserManager {
     @Override
     public void grantWeblogPermission(Weblog weblog, User user, List<String> actions) throws WebloggerException {
 
+        permissionsChanged(user.getUserName());
+
         // first, see if user already has a permission for the specified object
         TypedQuery<WeblogPermission> q = strategy.getNamedQuery("WeblogPermission.getByUserName&WeblogIdIncludingPending",
                 WeblogPermission.class);
@@ -434,6 +518,8 @@ public class JPAUserManagerImpl implements UserManager {
     @Override
     public void grantWeblogPermissionPending(Weblog weblog, User user, List<String> actions) throws WebloggerException {
 
+        permissionsChanged(user.getUserName());
+
         // first, see if user already has a permission for the specified object
         TypedQuery<WeblogPermission> q = strategy.getNamedQuery("WeblogPermission.getByUserName&WeblogIdIncludingPending",
                 WeblogPermission.class);
@@ -460,6 +546,8 @@ public class JPAUserManagerImpl implements UserManager {
     @Override
     public void confirmWeblogPermission(Weblog weblog, User user) throws WebloggerException {
 
+        permissionsChanged(user.getUserName());
+
         // get specified permission
         TypedQuery<WeblogPermission> q = strategy.getNamedQuery("WeblogPermission.getByUserName&WeblogIdIncludingPending",
                 WeblogPermission.class);
@@ -481,6 +569,8 @@ public class JPAUserManagerImpl implements UserManager {
     @Override
     public void declineWeblogPermission(Weblog weblog, User user) throws WebloggerException {
 
+        permissionsChanged(user.getUserName());
+
         // get specified permission
         TypedQuery<WeblogPermission> q = strategy.getNamedQuery("WeblogPermission.getByUserName&WeblogIdIncludingPending",
                 WeblogPermission.class);
@@ -500,6 +590,8 @@ public class JPAUserManagerImpl implements UserManager {
     @Override
     public void revokeWeblogPermission(Weblog weblog, User user, List<String> actions) throws WebloggerException {
 
+        permissionsChanged(user.getUserName());
+
         // get specified permission
         TypedQuery<WeblogPermission> q = strategy.getNamedQuery("WeblogPermission.getByUserName&WeblogIdIncludingPending",
                 WeblogPermission.class);
@@ -590,6 +682,13 @@ public class JPAUserManagerImpl implements UserManager {
      */
     @Override
     public List<String> getRoles(User user) throws WebloggerException {
+        boolean cacheable = !changedUsers.get().contains(user.getUserName());
+        long generation = UserPermissionsCache.getInstance().getGeneration(user.getUserName());
+        List<String> cached = cacheable
+                ? UserPermissionsCache.getInstance().getRoles(user.getUserName()) : null;
+        if (cached != null) {
+            return cached;
+        }
         TypedQuery<UserRole> q = strategy.getNamedQuery("UserRole.getByUserName", UserRole.class);
         q.setParameter(1, user.getUserName());
         List<UserRole> roles = q.getResultList();
@@ -599,6 +698,9 @@ public class JPAUserManagerImpl implements UserManager {
                 roleNames.add(userRole.getRole());
             }
         }
+        if (cacheable) {
+            UserPermissionsCache.getInstance().putRoles(user.getUserName(), generation, roleNames);
+        }
         return roleNames;
     }
 
@@ -607,6 +709,7 @@ public class JPAUserManagerImpl implements UserManager {
      */
     @Override
     public void grantRole(String roleName, User user) throws WebloggerException {
+        permissionsChanged(user.getUserName());
         if (!hasRole(roleName, user)) {
             UserRole role = new UserRole(user.getUserName(), roleName);
             this.strategy.store(role);
@@ -616,6 +719,7 @@ public class JPAUserManagerImpl implements UserManager {
     
     @Override
     public void revokeRole(String roleName, User user) throws WebloggerException {
+        permissionsChanged(user.getUserName());
         TypedQuery<UserRole> q = strategy.getNamedQuery("UserRole.getByUserNameAndRole", UserRole.class);
         q.setParameter(1, user.getUserName());
         q.setParameter(2, roleName);
@@ -31,8 +31,10 @@ import org.apache.commons.logging.LogFactory;
 
 import org.apache.roller.util.RollerConstants;
 import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.business.TagStatCache;
 import org.apache.roller.weblogger.business.Weblogger;
 import org.apache.roller.weblogger.pojos.CommentSearchCriteria;
+import org.apache.roller.weblogger.pojos.KeysetCursor;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment.ApprovalStatus;
 import org.apache.roller.weblogger.pojos.WeblogEntrySearchCriteria;
@@ -51,6 +53,7 @@ import org.apache.roller.weblogger.pojos.WeblogEntryAttribute;
 import org.apache.roller.weblogger.pojos.StatCountCountComparator;
 import org.apache.roller.util.DateUtil;
 import org.apache.roller.weblogger.business.WeblogEntryManager;
+import org.apache.roller.weblogger.config.WebloggerConfig;
 
 
 /**
@@ -70,6 +73,13 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     // cached mapping of entryAnchors -> entryIds
     private final Map<String, String> entryAnchorToIdMap = Collections.synchronizedMap(new HashMap<String, String>());
     
+    // weblog id -> weblog, of weblogs whose tag aggregates this thread
+    // changed since the last release
+    private final ThreadLocal<Map<String, Weblog>> changedTagWeblogs = ThreadLocal.withInitial(HashMap::new);
+    
+    // whether this thread reconciled tag aggregates since the last release
+    private final ThreadLocal<Boolean> reconciledTags = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    
     private static final Comparator<TagStat> TAG_STAT_NAME_COMPARATOR = new TagStatComparator();
     
     private static final Comparator<TagStat> TAG_STAT_COUNT_REVERSE_COMPARATOR =
@@ -77,6 +87,12 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     
     private static final Comparator<StatCount> STAT_COUNT_COUNT_REVERSE_COMPARATOR =
             Collections.reverseOrder(StatCountCountComparator.getInstance());
+
+    // max tag names per IN clause when updating tag aggregates in bulk
+    private static final int TAG_NAME_CHUNK_SIZE = 500;
+
+    // max entry ids per IN clause when prefetching entries
+    private static final int ID_CHUNK_SIZE = 500;
     
     
     @com.google.inject.Inject
@@ -158,6 +174,11 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     @Override
     public void saveComment(WeblogEntryComment comment) throws WebloggerException {
         this.strategy.store(comment);
+
+        // new comments have no saved status, so they count if approved
+        updateCommentCount(comment.getWeblogEntry(),
+                approvedCount(comment.getStatus()) - approvedCount(comment.getSavedStatus()));
+        comment.updateSavedStatus();
         
         // update weblog last modified date.  date updated by saveWebsite()
         roller.getWeblogManager().saveWeblog(comment.getWeblogEntry().getWebsite());
@@ -169,6 +190,8 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     @Override
     public void removeComment(WeblogEntryComment comment) throws WebloggerException {
         this.strategy.remove(comment);
+
+        updateCommentCount(comment.getWeblogEntry(), -approvedCount(comment.getSavedStatus()));
         
         // update weblog last modified date.  date updated by saveWebsite()
         roller.getWeblogManager().saveWeblog(comment.getWeblogEntry().getWebsite());
@@ -200,33 +223,37 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
             entry.setAnchor(this.createAnchor(entry));
         }
         
+        // tag name -> change in count, applied to the aggregates all at once
+        Map<String, Integer> tagCounts = new HashMap<>();
         if (entry.isPublished()) {
             // tag aggregates are updated only when entry published in order for
             // tag cloud counts to match published articles
             if (entry.getRefreshAggregates()) {
                 // blog entry wasn't published before, so all tags need to be incremented
                 for (WeblogEntryTag tag : entry.getTags()) {
-                    updateTagCount(tag.getName(), entry.getWebsite(), 1);
+                    tagCounts.merge(tag.getName(), 1, Integer::sum);
                 }
             } else {
                 // only new tags need to be incremented
                 for (WeblogEntryTag tag : entry.getAddedTags()) {
-                    updateTagCount(tag.getName(), entry.getWebsite(), 1);
+                    tagCounts.merge(tag.getName(), 1, Integer::sum);
                 }
             }
         } else {
             if (entry.getRefreshAggregates()) {
                 // blog entry no longer published so need to reduce aggregate count
                 for (WeblogEntryTag tag : entry.getTags()) {
-                    updateTagCount(tag.getName(), entry.getWebsite(), -1);
+                    tagCounts.merge(tag.getName(), -1, Integer::sum);
                 }
             }
         }
 
         for (WeblogEntryTag tag : entry.getRemovedTags()) {
-            removeWeblogEntryTag(tag);
+            removeWeblogEntryTag(tag, tagCounts);
         }
 
+        updateTagCounts(entry.getWebsite(), tagCounts);
+
         // if the entry was published to future, set status as SCHEDULED
         // we only consider an entry future published if it is scheduled
         // more than 1 minute into the future
@@ -248,9 +275,62 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         if(entry.isPublished()) {
             // Queue applicable pings for this update.
             roller.getAutopingManager().queueApplicableAutoPings(entry);
+
+            // transform the new content now so the first page view doesn't pay for it
+            if (WebloggerConfig.getBooleanProperty("cache.transformedtext.warmOnSave")) {
+                entry.getTransformedText();
+                entry.getTransformedSummary();
+            }
         }
     }
     
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<WeblogEntry> publishScheduledEntries(Date now, int maxEntries)
+            throws WebloggerException {
+
+        TypedQuery<WeblogEntry> query = strategy.getNamedQuery(
+                "WeblogEntry.getByStatus&PubTimeLessEqualOrderByPubTime", WeblogEntry.class);
+        query.setParameter(1, PubStatus.SCHEDULED);
+        query.setParameter(2, new Timestamp(now.getTime()));
+        if (maxEntries > 0) {
+            query.setMaxResults(maxEntries);
+        }
+        List<WeblogEntry> entries = query.getResultList();
+        if (entries.isEmpty()) {
+            return entries;
+        }
+
+        // first entry of each weblog, for the weblog and its auto pings
+        List<String> entryIds = new ArrayList<>(entries.size());
+        Map<String, WeblogEntry> entryByWeblog = new LinkedHashMap<>();
+        for (WeblogEntry entry : entries) {
+            entryIds.add(entry.getId());
+            entryByWeblog.putIfAbsent(entry.getWebsite().getId(), entry);
+        }
+
+        Query update = strategy.getNamedUpdate("WeblogEntry.updateStatus&UpdateTimeByIds");
+        update.setParameter(1, PubStatus.PUBLISHED);
+        update.setParameter(2, new Timestamp(new Date().getTime()));
+        update.setParameter(3, entryIds);
+        update.executeUpdate();
+
+        // entries weren't published before, so all their tags are counted
+        addTagCounts(entryIds, entryByWeblog);
+
+        for (WeblogEntry entry : entryByWeblog.values()) {
+            // update weblog last modified date.  date updated by saveWebsite()
+            roller.getWeblogManager().saveWeblog(entry.getWebsite());
+
+            // Queue applicable pings for this update.
+            roller.getAutopingManager().queueApplicableAutoPings(entry);
+        }
+
+        return entries;
+    }
+
     /**
      * @inheritDoc
      */
@@ -269,9 +349,11 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         
         // remove tag & tag aggregates
         if (entry.getTags() != null) {
+            Map<String, Integer> tagCounts = new HashMap<>();
             for (WeblogEntryTag tag : entry.getTags()) {
-                removeWeblogEntryTag(tag);
+                removeWeblogEntryTag(tag, tagCounts);
             }
+            updateTagCounts(weblog, tagCounts);
         }
         
         // remove attributes
@@ -452,17 +534,23 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
             queryString.append(") ");
         }
 
+        String sortTime = "e.pubTime";
         if (wesc.getSortBy() != null && wesc.getSortBy().equals(WeblogEntrySearchCriteria.SortBy.UPDATE_TIME)) {
-            queryString.append(" ORDER BY e.updateTime ");
-        } else {
-            queryString.append(" ORDER BY e.pubTime ");
+            sortTime = "e.updateTime";
         }
-        
-        if (wesc.getSortOrder() != null && wesc.getSortOrder().equals(WeblogEntrySearchCriteria.SortOrder.ASCENDING)) {
-            queryString.append("ASC ");
-        } else {
-            queryString.append("DESC ");
+        boolean ascending = wesc.getSortOrder() != null
+                && wesc.getSortOrder().equals(WeblogEntrySearchCriteria.SortOrder.ASCENDING);
+
+        if (wesc.getCursor() != null) {
+            queryString.append(" AND ");
+            size = appendCursorClause(queryString, params, size, sortTime, "e.id", ascending, wesc.getCursor());
         }
+
+        // id breaks ties between entries with the same time, so that pages
+        // don't overlap and cursors have a unique position to continue from
+        String order = ascending ? "ASC" : "DESC";
+        queryString.append(" ORDER BY ").append(sortTime).append(' ').append(order);
+        queryString.append(", e.id ").append(order);
         
         
         TypedQuery<WeblogEntry> query = strategy.getDynamicQuery(queryString.toString(), WeblogEntry.class);
@@ -470,10 +558,38 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
             query.setParameter(i+1, params.get(i));
         }
         
+        // the first access to the tags or attributes of any entry on the
+        // page loads those of all of them with one IN query over the ids
+        query.setHint("eclipselink.batch.type", "IN");
+        query.setHint("eclipselink.batch", "e.tags");
+        query.setHint("eclipselink.batch", "e.entryAttributes");
+        
         setFirstMax( query, wesc.getOffset(), wesc.getMaxResults() );
         return query.getResultList();
     }
     
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void prefetchWeblogEntries(List<WeblogEntry> entries) throws WebloggerException {
+
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+
+        // creators are looked up by name, load them all at once
+        Set<String> userNames = new HashSet<>();
+        for (WeblogEntry entry : entries) {
+            if (entry.getCreatorUserName() != null) {
+                userNames.add(entry.getCreatorUserName());
+            }
+        }
+        if (!userNames.isEmpty()) {
+            roller.getUserManager().prefetchUsers(userNames);
+        }
+    }
+
     /**
      * @inheritDoc
      */
@@ -487,6 +603,9 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         if (max != null) {
             query.setMaxResults(max);
         }
+        query.setHint("eclipselink.batch.type", "IN");
+        query.setHint("eclipselink.batch", "w.tags");
+        query.setHint("eclipselink.batch", "w.entryAttributes");
         return query.getResultList();
     }
     
@@ -509,9 +628,13 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         }
     }
     
-    private void removeWeblogEntryTag(WeblogEntryTag tag) throws WebloggerException {
+    /**
+     * Remove a tag, counting the change to its aggregates in tagCounts.
+     */
+    private void removeWeblogEntryTag(WeblogEntryTag tag, Map<String, Integer> tagCounts)
+    throws WebloggerException {
         if (tag.getWeblogEntry().isPublished()) {
-            updateTagCount(tag.getName(), tag.getWeblogEntry().getWebsite(), -1);
+            tagCounts.merge(tag.getName(), -1, Integer::sum);
         }
         this.strategy.remove(tag);
     }
@@ -630,9 +753,47 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     public List<WeblogEntryComment> getComments(CommentSearchCriteria csc) throws WebloggerException {
         
         List<Object> params = new ArrayList<>();
+        String queryString = buildCommentQuery("SELECT c", csc, params);
+        
+        TypedQuery<WeblogEntryComment> query = strategy.getDynamicQuery(queryString, WeblogEntryComment.class);
+        setFirstMax( query, csc.getOffset(), csc.getMaxResults());
+        for (int i=0; i<params.size(); i++) {
+            query.setParameter(i+1, params.get(i));
+        }
+        return query.getResultList();
+        
+    }
+    
+    
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<String> getCommentIds(CommentSearchCriteria csc) throws WebloggerException {
+        
+        List<Object> params = new ArrayList<>();
+        String queryString = buildCommentQuery("SELECT c.id", csc, params);
+        
+        TypedQuery<String> query = strategy.getDynamicQuery(queryString, String.class);
+        setFirstMax( query, csc.getOffset(), csc.getMaxResults());
+        for (int i=0; i<params.size(); i++) {
+            query.setParameter(i+1, params.get(i));
+        }
+        return query.getResultList();
+    }
+    
+    
+    /**
+     * Build the query for comments matching the criteria.
+     * @param select what to select from the comments c
+     * @param params filled in with the query parameters
+     */
+    private static String buildCommentQuery(String select, CommentSearchCriteria csc,
+            List<Object> params) {
+        
         int size = 0;
         StringBuilder queryString = new StringBuilder();
-        queryString.append("SELECT c FROM WeblogEntryComment c ");
+        queryString.append(select).append(" FROM WeblogEntryComment c ");
         
         StringBuilder whereClause = new StringBuilder();
         if (csc.getEntry() != null) {
@@ -665,22 +826,23 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
             appendConjuctionToWhereclause(whereClause, "c.status = ?").append(size);
         }
         
+        if (csc.getCursor() != null) {
+            if (whereClause.length() != 0) {
+                whereClause.append(" AND ");
+            }
+            size = appendCursorClause(whereClause, params, size, "c.postTime", "c.id",
+                    !csc.isReverseChrono(), csc.getCursor());
+        }
+        
         if(whereClause.length() != 0) {
             queryString.append(" WHERE ").append(whereClause);
         }
         if (csc.isReverseChrono()) {
-            queryString.append(" ORDER BY c.postTime DESC");
+            queryString.append(" ORDER BY c.postTime DESC, c.id DESC");
         } else {
-            queryString.append(" ORDER BY c.postTime ASC");
-        }
-        
-        TypedQuery<WeblogEntryComment> query = strategy.getDynamicQuery(queryString.toString(), WeblogEntryComment.class);
-        setFirstMax( query, csc.getOffset(), csc.getMaxResults());
-        for (int i=0; i<params.size(); i++) {
-            query.setParameter(i+1, params.get(i));
+            queryString.append(" ORDER BY c.postTime ASC, c.id ASC");
         }
-        return query.getResultList();
-        
+        return queryString.toString();
     }
     
     
@@ -696,10 +858,8 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
             Date    endDate,
             ApprovalStatus status) throws WebloggerException {
         
-        // TODO dynamic bulk delete query: I'd MUCH rather use a bulk delete,
-        // but MySQL says "General error, message from server: "You can't
-        // specify target table 'roller_comment' for update in FROM clause"
-        
+        // MySQL won't delete from roller_comment with a subquery on it, so
+        // select the ids first and delete by id
         CommentSearchCriteria csc = new CommentSearchCriteria();
         csc.setWeblog(weblog);
         csc.setEntry(entry);
@@ -708,13 +868,121 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         csc.setEndDate(endDate);
         csc.setStatus(status);
 
-        List<WeblogEntryComment> comments = getComments(csc);
-        int count = 0;
-        for (WeblogEntryComment comment : comments) {
-            removeComment(comment);
-            count++;
+        List<String> ids = getCommentIds(csc);
+        removeComments(ids);
+        return ids.size();
+    }
+    
+    
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<WeblogEntry> removeComments(List<String> ids) throws WebloggerException {
+        
+        Set<String> entryIds = new LinkedHashSet<>();
+        for (int i = 0; i < ids.size(); i += ID_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(i, Math.min(i + ID_CHUNK_SIZE, ids.size()));
+            
+            Map<String, Integer> approved = new HashMap<>();
+            for (Object[] row : getStatusCountsByEntry(chunk)) {
+                String entryId = (String) row[0];
+                entryIds.add(entryId);
+                if (ApprovalStatus.APPROVED.equals(row[1])) {
+                    approved.merge(entryId, ((Number) row[2]).intValue(), Integer::sum);
+                }
+            }
+            
+            Query delete = strategy.getNamedUpdate("WeblogEntryComment.removeByIds");
+            delete.setParameter(1, chunk);
+            delete.executeUpdate();
+            
+            for (Map.Entry<String, Integer> count : approved.entrySet()) {
+                updateCommentCount(count.getKey(), -count.getValue());
+            }
         }
-        return count;
+        return commentsChanged(entryIds);
+    }
+    
+    
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<WeblogEntry> updateCommentStatus(List<String> ids, ApprovalStatus status)
+            throws WebloggerException {
+        
+        Set<String> entryIds = new LinkedHashSet<>();
+        for (int i = 0; i < ids.size(); i += ID_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(i, Math.min(i + ID_CHUNK_SIZE, ids.size()));
+            
+            // approved count change of each entry, comments already in the
+            // new status don't change anything
+            Map<String, Integer> delta = new HashMap<>();
+            for (Object[] row : getStatusCountsByEntry(chunk)) {
+                String entryId = (String) row[0];
+                int count = ((Number) row[2]).intValue();
+                if (status.equals(row[1])) {
+                    continue;
+                }
+                entryIds.add(entryId);
+                if (ApprovalStatus.APPROVED.equals(status)) {
+                    delta.merge(entryId, count, Integer::sum);
+                } else if (ApprovalStatus.APPROVED.equals(row[1])) {
+                    delta.merge(entryId, -count, Integer::sum);
+                }
+            }
+            
+            Query update = strategy.getNamedUpdate("WeblogEntryComment.updateStatusByIds");
+            update.setParameter(1, status);
+            update.setParameter(2, chunk);
+            update.executeUpdate();
+            
+            for (Map.Entry<String, Integer> count : delta.entrySet()) {
+                updateCommentCount(count.getKey(), count.getValue());
+            }
+        }
+        return commentsChanged(entryIds);
+    }
+    
+    
+    /**
+     * Rows of (entry id, status, count) for the comments with the given ids.
+     */
+    private List<Object[]> getStatusCountsByEntry(List<String> ids) throws WebloggerException {
+        TypedQuery<Object[]> query = strategy.getNamedQuery(
+                "WeblogEntryComment.getEntryIdAndStatusCountByIds", Object[].class);
+        query.setParameter(1, ids);
+        return query.getResultList();
+    }
+    
+    
+    /**
+     * Load the entries whose comments were changed in bulk and update the
+     * last modified date of their weblogs.
+     */
+    private List<WeblogEntry> commentsChanged(Collection<String> entryIds) throws WebloggerException {
+        
+        List<String> ids = new ArrayList<>(entryIds);
+        List<WeblogEntry> entries = new ArrayList<>(ids.size());
+        Set<Weblog> weblogs = new LinkedHashSet<>();
+        for (int i = 0; i < ids.size(); i += ID_CHUNK_SIZE) {
+            TypedQuery<WeblogEntry> query = strategy.getNamedQuery(
+                    "WeblogEntry.getByIds", WeblogEntry.class);
+            query.setParameter(1, ids.subList(i, Math.min(i + ID_CHUNK_SIZE, ids.size())));
+            for (WeblogEntry entry : query.getResultList()) {
+                // bulk updates bypass the loaded entries
+                strategy.refresh(entry);
+                entries.add(entry);
+                weblogs.add(entry.getWebsite());
+            }
+        }
+        
+        // update weblog last modified date.  date updated by saveWebsite()
+        for (Weblog weblog : weblogs) {
+            roller.getWeblogManager().saveWeblog(weblog);
+        }
+        return entries;
     }
     
     
@@ -906,7 +1174,19 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
      * @inheritDoc
      */
     @Override
-    public void release() {}
+    public void release() {
+        // other threads may have cached tag lists they read before our
+        // changes were committed
+        Map<String, Weblog> changed = changedTagWeblogs.get();
+        for (Weblog weblog : changed.values()) {
+            TagStatCache.getInstance().invalidate(weblog);
+        }
+        changed.clear();
+        if (reconciledTags.get()) {
+            TagStatCache.getInstance().clear();
+            reconciledTags.remove();
+        }
+    }
     
     /**
      * @inheritDoc
@@ -935,7 +1215,19 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     throws WebloggerException {
         TypedQuery<TagStat> query;
         List<TagStat> queryResults;
-        
+
+        // callers compute the start date from the current time, so round
+        // it to the minute for the results to be cacheable
+        if (startDate != null) {
+            startDate = new Date(startDate.getTime() - startDate.getTime() % RollerConstants.MIN_IN_MS);
+        }
+        String cacheKey = tagsChanged() ? null : TagStatCache.getInstance().generateKey(website,
+                "popular", startDate != null ? startDate.getTime() : "", offset, limit);
+        List<TagStat> cached = TagStatCache.getInstance().get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
         if (website != null) {
             if (startDate != null) {
                 Timestamp start = new Timestamp(startDate.getTime());
@@ -991,7 +1283,8 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
 
         // sort results by name, because query had to sort by total
         results.sort(TAG_STAT_NAME_COMPARATOR);
-        
+
+        TagStatCache.getInstance().put(cacheKey, results);
         return results;
     }
     
@@ -1004,6 +1297,13 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         Query query;
         List<?> queryResults;
         boolean sortByName = sortBy == null || !sortBy.equals("count");
+
+        String cacheKey = tagsChanged() ? null : TagStatCache.getInstance().generateKey(website,
+                "tags", sortByName ? "name" : "count", startsWith != null ? startsWith : "", offset, limit);
+        List<TagStat> cached = TagStatCache.getInstance().get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
                 
         List<Object> params = new ArrayList<>();
         int size = 0;
@@ -1053,7 +1353,8 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         } else {
             results.sort(TAG_STAT_COUNT_REVERSE_COMPARATOR);
         }
-        
+
+        TagStatCache.getInstance().put(cacheKey, results);
         return results;
     }
     
@@ -1107,83 +1408,331 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     }
 
     /**
-     * This method maintains the tag aggregate table up-to-date with total counts. More
-     * specifically every time this method is called it will act upon exactly two rows
-     * in the database (tag,website,count), one with website matching the argument passed
-     * and one where website is null. If the count ever reaches zero, the row must be deleted.
-     *
-     * @param name      The tag name
-     * @param website   The website to used when updating the stats.
-     * @param amount    The amount to increment the tag count (it can be positive or negative).
-     * @throws WebloggerException
+     * Apply changes in tag counts of a single weblog to its aggregates and
+     * the site wide ones.
      */
-    private void updateTagCount(String name, Weblog website, int amount)
+    private void updateTagCounts(Weblog website, Map<String, Integer> amounts)
     throws WebloggerException {
-        if (amount == 0) {
-            throw new WebloggerException("Tag increment amount cannot be zero.");
-        }
-        
         if (website == null) {
             throw new WebloggerException("Website cannot be NULL.");
         }
-        
-        // The reason why add order lastUsed desc is to make sure we keep picking the most recent
-        // one in the case where we have multiple rows (clustered environment)
-        // eventually that second entry will have a very low total (most likely 1) and
-        // won't matter
-        TypedQuery<WeblogEntryTagAggregate> weblogQuery = strategy.getNamedQuery(
-                "WeblogEntryTagAggregate.getByName&WebsiteOrderByLastUsedDesc", WeblogEntryTagAggregate.class);
-        weblogQuery.setParameter(1, name);
-        weblogQuery.setParameter(2, website);
-        WeblogEntryTagAggregate weblogTagData;
-        try {
-            weblogTagData = weblogQuery.getSingleResult();
-        } catch (NoResultException e) {
-            weblogTagData = null;
+        Map<String, Map<String, Integer>> weblogAmounts = new HashMap<>();
+        weblogAmounts.put(website.getId(), amounts);
+        updateTagCounts(Collections.singletonMap(website.getId(), website), weblogAmounts);
+    }
+
+    /**
+     * Apply changes in tag counts to the weblog and site wide aggregates of
+     * the tags, all tags of all weblogs at once.  Existing aggregates are
+     * read with one query per chunk of tag names, then updated, created
+     * when counts go up from nothing, or removed when they reach zero.
+     *
+     * Duplicate rows for a tag (possible in a clustered environment) are
+     * merged into the most recently used one.
+     *
+     * @param weblogs weblog id -> weblog
+     * @param weblogAmounts weblog id -> (tag name -> change in count)
+     */
+    private void updateTagCounts(Map<String, Weblog> weblogs,
+            Map<String, Map<String, Integer>> weblogAmounts) throws WebloggerException {
+
+        // the site wide changes are the sum of the weblogs'
+        Map<String, Integer> siteAmounts = new TreeMap<>();
+        for (Map<String, Integer> amounts : weblogAmounts.values()) {
+            amounts.values().removeIf(amount -> amount == 0);
+            for (Map.Entry<String, Integer> amount : amounts.entrySet()) {
+                siteAmounts.merge(amount.getKey(), amount.getValue(), Integer::sum);
+            }
+        }
+        if (siteAmounts.isEmpty()) {
+            return;
         }
 
-        TypedQuery<WeblogEntryTagAggregate> siteQuery = strategy.getNamedQuery(
-                "WeblogEntryTagAggregate.getByName&WebsiteNullOrderByLastUsedDesc", WeblogEntryTagAggregate.class);
-        siteQuery.setParameter(1, name);
-        WeblogEntryTagAggregate siteTagData;
-        try {
-            siteTagData = siteQuery.getSingleResult();
-        } catch (NoResultException e) {
-            siteTagData = null;
+        // most recently used first, so that the first row of a tag is the
+        // one we keep and any others are duplicates
+        Map<String, WeblogEntryTagAggregate> aggregates = new HashMap<>();
+        List<WeblogEntryTagAggregate> duplicates = new ArrayList<>();
+        List<String> names = new ArrayList<>(siteAmounts.keySet());
+        List<Weblog> weblogList = new ArrayList<>(weblogs.values());
+        for (int i = 0; i < names.size(); i += TAG_NAME_CHUNK_SIZE) {
+            TypedQuery<WeblogEntryTagAggregate> aggq = strategy.getNamedQuery(
+                    "WeblogEntryTagAggregate.getByNames&WebsitesOrWebsiteNullOrderByLastUsedDesc",
+                    WeblogEntryTagAggregate.class);
+            aggq.setParameter(1, names.subList(i, Math.min(names.size(), i + TAG_NAME_CHUNK_SIZE)));
+            aggq.setParameter(2, weblogList);
+            for (WeblogEntryTagAggregate aggregate : aggq.getResultList()) {
+                String weblogId = aggregate.getWeblog() != null ? aggregate.getWeblog().getId() : null;
+                if (aggregates.putIfAbsent(aggregateKey(weblogId, aggregate.getName()), aggregate) != null) {
+                    duplicates.add(aggregate);
+                }
+            }
+        }
+
+        for (WeblogEntryTagAggregate duplicate : duplicates) {
+            String weblogId = duplicate.getWeblog() != null ? duplicate.getWeblog().getId() : null;
+            WeblogEntryTagAggregate kept = aggregates.get(aggregateKey(weblogId, duplicate.getName()));
+            kept.setTotal(kept.getTotal() + duplicate.getTotal());
+            strategy.remove(duplicate);
         }
+
         Timestamp lastUsed = new Timestamp((new Date()).getTime());
-        
-        // create it only if we are going to need it.
-        if (weblogTagData == null && amount > 0) {
-            weblogTagData = new WeblogEntryTagAggregate(null, website, name, amount);
-            weblogTagData.setLastUsed(lastUsed);
-            strategy.store(weblogTagData);
-            
-        } else if (weblogTagData != null) {
-            weblogTagData.setTotal(weblogTagData.getTotal() + amount);
-            weblogTagData.setLastUsed(lastUsed);
-            strategy.store(weblogTagData);
+        for (Map.Entry<String, Map<String, Integer>> amounts : weblogAmounts.entrySet()) {
+            Weblog weblog = weblogs.get(amounts.getKey());
+            for (Map.Entry<String, Integer> amount : amounts.getValue().entrySet()) {
+                updateTagCount(aggregates.get(aggregateKey(weblog.getId(), amount.getKey())),
+                        weblog, amount.getKey(), amount.getValue(), lastUsed);
+            }
+            // cached lists are invalidated once this is committed
+            changedTagWeblogs.get().put(weblog.getId(), weblog);
         }
-        
-        // create it only if we are going to need it.
-        if (siteTagData == null && amount > 0) {
-            siteTagData = new WeblogEntryTagAggregate(null, null, name, amount);
-            siteTagData.setLastUsed(lastUsed);
-            strategy.store(siteTagData);
-            
-        } else if (siteTagData != null) {
-            siteTagData.setTotal(siteTagData.getTotal() + amount);
-            siteTagData.setLastUsed(lastUsed);
-            strategy.store(siteTagData);
+        for (Map.Entry<String, Integer> amount : siteAmounts.entrySet()) {
+            if (amount.getValue() != 0) {
+                updateTagCount(aggregates.get(aggregateKey(null, amount.getKey())),
+                        null, amount.getKey(), amount.getValue(), lastUsed);
+            }
         }
-        
-        // delete all bad counts
-        Query removeq = strategy.getNamedUpdate(
-                "WeblogEntryTagAggregate.removeByTotalLessEqual");
-        removeq.setParameter(1, 0);
-        removeq.executeUpdate();
     }
-    
+
+    private void updateTagCount(WeblogEntryTagAggregate tagData, Weblog weblog, String name,
+            int amount, Timestamp lastUsed) throws WebloggerException {
+
+        if (tagData == null) {
+            // create it only if we are going to need it.
+            if (amount > 0) {
+                tagData = new WeblogEntryTagAggregate(null, weblog, name, amount);
+                tagData.setLastUsed(lastUsed);
+                strategy.store(tagData);
+            }
+        } else if (tagData.getTotal() + amount <= 0) {
+            // no longer used
+            strategy.remove(tagData);
+        } else {
+            tagData.setTotal(tagData.getTotal() + amount);
+            tagData.setLastUsed(lastUsed);
+            strategy.store(tagData);
+        }
+    }
+
+    /**
+     * Increment the weblog and site wide aggregates of all tags of newly
+     * published entries, using one grouped query for the counts.
+     */
+    private void addTagCounts(List<String> entryIds, Map<String, WeblogEntry> entryByWeblog)
+    throws WebloggerException {
+
+        Query countq = strategy.getNamedQuery("WeblogEntryTag.getCountByWeblog&NameForEntryIds");
+        countq.setParameter(1, entryIds);
+
+        // weblog id -> (tag name -> count)
+        Map<String, Map<String, Integer>> weblogCounts = new HashMap<>();
+        for (Object row : countq.getResultList()) {
+            Object[] cols = (Object[]) row;
+            weblogCounts.computeIfAbsent((String) cols[0], k -> new HashMap<>())
+                    .merge((String) cols[1], ((Number) cols[2]).intValue(), Integer::sum);
+        }
+
+        Map<String, Weblog> weblogs = new HashMap<>();
+        for (Map.Entry<String, WeblogEntry> entry : entryByWeblog.entrySet()) {
+            weblogs.put(entry.getKey(), entry.getValue().getWebsite());
+        }
+        updateTagCounts(weblogs, weblogCounts);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int reconcileTagAggregates() throws WebloggerException {
+
+        // what the aggregates should be, from the tags of published entries
+        Query countq = strategy.getNamedQuery("WeblogEntryTag.getCountByWeblog&NameForStatus");
+        countq.setParameter(1, PubStatus.PUBLISHED);
+        Map<String, Integer> expected = new HashMap<>();
+        Map<String, String[]> weblogAndName = new HashMap<>();
+        for (Object row : countq.getResultList()) {
+            Object[] cols = (Object[]) row;
+            String weblogId = (String) cols[0];
+            String name = (String) cols[1];
+            int count = ((Number) cols[2]).intValue();
+            String key = aggregateKey(weblogId, name);
+            expected.merge(key, count, Integer::sum);
+            weblogAndName.put(key, new String[] {weblogId, name});
+            String siteKey = aggregateKey(null, name);
+            expected.merge(siteKey, count, Integer::sum);
+            weblogAndName.put(siteKey, new String[] {null, name});
+        }
+
+        int fixed = 0;
+
+        // what the aggregates are, one row per tag unless there are duplicates.
+        // entries published meanwhile change the aggregates too, so rows are
+        // only corrected if they are still as read here, by the difference
+        // to what they should be, otherwise they are left to the next run
+        Query aggq = strategy.getNamedQuery("WeblogEntryTagAggregate.getCountByWeblog&Name");
+        for (Object row : aggq.getResultList()) {
+            Object[] cols = (Object[]) row;
+            String weblogId = (String) cols[0];
+            String name = (String) cols[1];
+            int rows = ((Number) cols[2]).intValue();
+            int minTotal = ((Number) cols[3]).intValue();
+            int maxTotal = ((Number) cols[4]).intValue();
+            Timestamp lastUsed = (Timestamp) cols[5];
+            Integer total = expected.remove(aggregateKey(weblogId, name));
+            if (total == null) {
+                // no published entries use the tag anymore
+                fixed += removeTagAggregates(weblogId, name, lastUsed);
+            } else if (rows > 1) {
+                // duplicates, replaced by a single most recently used row
+                int removed = removeTagAggregates(weblogId, name, lastUsed);
+                if (removed == rows && storeTagAggregate(weblogId, name, total, lastUsed)) {
+                    removed--;
+                    if (minTotal != total || maxTotal != total) {
+                        fixed++;
+                    }
+                }
+                fixed += removed;
+            } else if (minTotal != total) {
+                Query update = strategy.getNamedUpdate(weblogId != null
+                        ? "WeblogEntryTagAggregate.addToTotalByName&Total&WeblogId"
+                        : "WeblogEntryTagAggregate.addToTotalByName&Total&WeblogNull");
+                update.setParameter(1, total - minTotal);
+                update.setParameter(2, name);
+                update.setParameter(3, minTotal);
+                if (weblogId != null) {
+                    update.setParameter(4, weblogId);
+                }
+                fixed += update.executeUpdate();
+            }
+        }
+
+        // aggregates which are missing altogether
+        Timestamp now = new Timestamp((new Date()).getTime());
+        for (Map.Entry<String, Integer> missing : expected.entrySet()) {
+            String[] key = weblogAndName.get(missing.getKey());
+            if (storeTagAggregate(key[0], key[1], missing.getValue(), now)) {
+                fixed++;
+            }
+        }
+
+        if (fixed > 0) {
+            reconciledTags.set(Boolean.TRUE);
+        }
+        return fixed;
+    }
+
+    /**
+     * Remove the aggregates of a tag not used since lastUsed, rows which
+     * have been used since are kept.
+     */
+    private int removeTagAggregates(String weblogId, String name, Timestamp lastUsed)
+    throws WebloggerException {
+        Query removeq = strategy.getNamedUpdate(weblogId != null
+                ? "WeblogEntryTagAggregate.removeByName&LastUsedLessEqual&WeblogId"
+                : "WeblogEntryTagAggregate.removeByName&LastUsedLessEqual&WeblogNull");
+        removeq.setParameter(1, name);
+        removeq.setParameter(2, lastUsed);
+        if (weblogId != null) {
+            removeq.setParameter(3, weblogId);
+        }
+        return removeq.executeUpdate();
+    }
+
+    /**
+     * Store a new aggregate for a tag, unless its weblog no longer exists.
+     */
+    private boolean storeTagAggregate(String weblogId, String name, int total, Timestamp lastUsed)
+    throws WebloggerException {
+        Weblog weblog = weblogId != null ? roller.getWeblogManager().getWeblog(weblogId) : null;
+        if (weblogId != null && weblog == null) {
+            return false;
+        }
+        WeblogEntryTagAggregate aggregate = new WeblogEntryTagAggregate(null, weblog, name, total);
+        aggregate.setLastUsed(lastUsed);
+        strategy.store(aggregate);
+        return true;
+    }
+
+    /**
+     * True if this thread changed tag aggregates it hasn't released yet, so
+     * cached tag lists may not show its own changes.
+     */
+    private boolean tagsChanged() {
+        return !changedTagWeblogs.get().isEmpty() || reconciledTags.get();
+    }
+
+    private static String aggregateKey(String weblogId, String name) {
+        return (weblogId != null ? weblogId : "") + "/" + name;
+    }
+
+    private static int approvedCount(ApprovalStatus status) {
+        return ApprovalStatus.APPROVED.equals(status) ? 1 : 0;
+    }
+
+    /**
+     * Add to the approved comment count of an entry.  The stored count is
+     * changed in place, so that concurrent comments on the same entry don't
+     * overwrite each other's counts, and the loaded entry is kept in step.
+     */
+    private void updateCommentCount(WeblogEntry entry, int amount) throws WebloggerException {
+        if (amount == 0) {
+            return;
+        }
+        updateCommentCount(entry.getId(), amount);
+
+        entry.setCommentCount(Math.max(0, entry.getCommentCount() + amount));
+    }
+
+    private void updateCommentCount(String entryId, int amount) throws WebloggerException {
+        if (amount == 0) {
+            return;
+        }
+        Query update = strategy.getNamedUpdate("WeblogEntry.updateCommentCountIncrementById");
+        update.setParameter(1, amount);
+        update.setParameter(2, entryId);
+        update.executeUpdate();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int reconcileCommentCounts() throws WebloggerException {
+
+        // what the counts should be
+        Query countq = strategy.getNamedQuery("WeblogEntryComment.getCountByStatusGroupByEntry");
+        countq.setParameter(1, ApprovalStatus.APPROVED);
+        Map<String, Integer> expected = new HashMap<>();
+        for (Object row : countq.getResultList()) {
+            Object[] cols = (Object[]) row;
+            expected.put((String) cols[0], ((Number) cols[1]).intValue());
+        }
+
+        // entries with no comments and a count of zero are fine as they are
+        Query storedq = strategy.getNamedQuery("WeblogEntry.getIdAndCommentCountByCommentCountNotEqual");
+        storedq.setParameter(1, 0);
+        Map<String, Integer> fixes = new HashMap<>();
+        for (Object row : storedq.getResultList()) {
+            Object[] cols = (Object[]) row;
+            String id = (String) cols[0];
+            int stored = ((Number) cols[1]).intValue();
+            Integer count = expected.remove(id);
+            int total = count != null ? count : 0;
+            if (total != stored) {
+                fixes.put(id, total);
+            }
+        }
+        // the rest have comments but a count of zero
+        fixes.putAll(expected);
+
+        for (Map.Entry<String, Integer> fix : fixes.entrySet()) {
+            Query update = strategy.getNamedUpdate("WeblogEntry.updateCommentCountById");
+            update.setParameter(1, fix.getValue());
+            update.setParameter(2, fix.getKey());
+            update.executeUpdate();
+        }
+        return fixes.size();
+    }
+
     /**
      * @inheritDoc
      */
@@ -1229,6 +1778,23 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     }
 
 
+    /**
+     * Append a condition selecting the rows past a cursor, in a list ordered
+     * by time and then id.
+     * @return the number of parameters now in params.
+     */
+    private static int appendCursorClause(StringBuilder queryString, List<Object> params, int size,
+            String timeField, String idField, boolean ascending, KeysetCursor cursor) {
+        String op = ascending ? " > ?" : " < ?";
+        params.add(size++, new Timestamp(cursor.getTime().getTime()));
+        int timeParam = size;
+        params.add(size++, cursor.getId());
+        queryString.append("(").append(timeField).append(op).append(timeParam);
+        queryString.append(" OR (").append(timeField).append(" = ?").append(timeParam);
+        queryString.append(" AND ").append(idField).append(op).append(size).append("))");
+        return size;
+    }
+
     private static void setFirstMax( Query query, int offset, int length )  {
         if (offset != 0) {
             query.setFirstResult(offset);
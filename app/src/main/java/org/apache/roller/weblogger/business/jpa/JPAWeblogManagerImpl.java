@@ -35,14 +35,19 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.apache.roller.weblogger.business.MediaFileManager;
+import org.apache.roller.weblogger.business.SiteStatsCache;
+import org.apache.roller.weblogger.business.TagStatCache;
 import org.apache.roller.weblogger.business.UserManager;
 import org.apache.roller.weblogger.business.WeblogEntryManager;
 import org.apache.roller.weblogger.business.WeblogManager;
+import org.apache.roller.weblogger.business.WeblogSnapshotCache;
 import org.apache.roller.weblogger.business.Weblogger;
 import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.pojos.AutoPing;
@@ -62,6 +67,7 @@ import org.apache.roller.weblogger.pojos.WeblogEntry;
 import org.apache.roller.weblogger.pojos.WeblogEntryTag;
 import org.apache.roller.weblogger.pojos.WeblogEntryTagAggregate;
 import org.apache.roller.weblogger.pojos.WeblogPermission;
+import org.apache.roller.weblogger.pojos.WeblogSnapshot;
 import org.apache.roller.weblogger.pojos.WeblogTemplate;
 
 
@@ -82,6 +88,13 @@ public class JPAWeblogManagerImpl implements WeblogManager {
     
     // cached mapping of weblogHandles -> weblogIds
     private final Map<String,String> weblogHandleToIdMap = Collections.synchronizedMap(new HashMap<String,String>());
+    
+    // handles of weblogs this thread saved or removed since the last release,
+    // their snapshots aren't cached until the change is committed
+    private final ThreadLocal<Set<String>> changedWeblogs = ThreadLocal.withInitial(HashSet::new);
+    
+    // true if this thread added or removed weblogs since the last release
+    private final ThreadLocal<Boolean> weblogsCountChanged = ThreadLocal.withInitial(() -> Boolean.FALSE);
 
     @com.google.inject.Inject
     protected JPAWeblogManagerImpl(Weblogger roller, JPAPersistenceStrategy strat) {
@@ -92,7 +105,29 @@ public class JPAWeblogManagerImpl implements WeblogManager {
     
     
     @Override
-    public void release() {}
+    public void release() {
+        // other threads may have cached snapshots of what they read before
+        // our changes were committed
+        Set<String> changed = changedWeblogs.get();
+        for (String handle : changed) {
+            WeblogSnapshotCache.getInstance().remove(handle);
+        }
+        changed.clear();
+        
+        if (weblogsCountChanged.get()) {
+            SiteStatsCache.getInstance().invalidate();
+            weblogsCountChanged.remove();
+        }
+    }
+    
+    
+    /**
+     * Drop the weblog's cached snapshot.
+     */
+    private void weblogChanged(Weblog weblog) {
+        WeblogSnapshotCache.getInstance().remove(weblog.getHandle());
+        changedWeblogs.get().add(weblog.getHandle());
+    }
     
     
     /**
@@ -103,6 +138,7 @@ public class JPAWeblogManagerImpl implements WeblogManager {
         
         weblog.setLastModified(new java.util.Date());
         strategy.store(weblog);
+        weblogChanged(weblog);
     }
     
     @Override
@@ -114,6 +150,8 @@ public class JPAWeblogManagerImpl implements WeblogManager {
         
         // remove entry from cache mapping
         this.weblogHandleToIdMap.remove(weblog.getHandle());
+        weblogChanged(weblog);
+        weblogsCountChanged.set(Boolean.TRUE);
     }
     
     /**
@@ -139,7 +177,9 @@ public class JPAWeblogManagerImpl implements WeblogManager {
             this.strategy.remove(tagData);
         }
         
-        // remove site tag aggregates
+        // remove site tag aggregates, making sure the weblog's tags are
+        // read from the database rather than the tag cache
+        TagStatCache.getInstance().invalidate(weblog);
         List<TagStat> tags = emgr.getTags(weblog, null, null, 0, -1);
         updateTagAggregates(tags);
         
@@ -154,6 +194,7 @@ public class JPAWeblogManagerImpl implements WeblogManager {
                 "WeblogEntryTagAggregate.removeByTotalLessEqual");
         removeCounts.setParameter(1, 0);
         removeCounts.executeUpdate();
+        TagStatCache.getInstance().invalidate(weblog);
         
         // Remove the weblog's ping queue entries
         TypedQuery<PingQueueEntry> q = strategy.getNamedQuery("PingQueueEntry.getByWebsite", PingQueueEntry.class);
@@ -268,6 +309,7 @@ public class JPAWeblogManagerImpl implements WeblogManager {
         this.strategy.store(newWeblog);
         this.strategy.flush();
         this.addWeblogContents(newWeblog);
+        weblogsCountChanged.set(Boolean.TRUE);
     }
     
     private void addWeblogContents(Weblog newWeblog)
@@ -411,6 +453,28 @@ public class JPAWeblogManagerImpl implements WeblogManager {
         }
     }
     
+    @Override
+    public WeblogSnapshot getWeblogSnapshot(String handle) throws WebloggerException {
+        
+        // our own uncommitted changes are read but not cached
+        if (changedWeblogs.get().contains(handle)) {
+            Weblog weblog = getWeblogByHandle(handle, null);
+            return weblog != null ? new WeblogSnapshot(weblog) : null;
+        }
+        
+        WeblogSnapshotCache cache = WeblogSnapshotCache.getInstance();
+        WeblogSnapshot snapshot = cache.get(handle);
+        if (snapshot == null) {
+            long generation = cache.getGeneration(handle);
+            Weblog weblog = getWeblogByHandle(handle, null);
+            if (weblog != null) {
+                snapshot = new WeblogSnapshot(weblog);
+                cache.put(snapshot, generation);
+            }
+        }
+        return snapshot;
+    }
+    
     /**
      * Get weblogs of a user
      */
@@ -613,16 +677,26 @@ public class JPAWeblogManagerImpl implements WeblogManager {
     
     @Override
     public Map<String, Long> getWeblogHandleLetterMap() throws WebloggerException {
-        String lc = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+        TypedQuery<Object[]> query = strategy.getNamedQuery(
+                "Weblog.getCountGroupByHandleInitial", Object[].class);
+        return toLetterMap(query.getResultList());
+    }
+
+    /**
+     * Map each letter A-Z to its count, from rows of (initial, count).
+     * Letters no row starts with map to 0, initials other than A-Z are
+     * left out.
+     */
+    static Map<String, Long> toLetterMap(List<Object[]> rows) {
         Map<String, Long> results = new TreeMap<>();
-        TypedQuery<Long> query = strategy.getNamedQuery(
-                "Weblog.getCountByHandleLike", Long.class);
-        for (int i=0; i<26; i++) {
-            char currentChar = lc.charAt(i);
-            query.setParameter(1, currentChar + "%");
-            List<Long> row = query.getResultList();
-            Long count = row.get(0);
-            results.put(String.valueOf(currentChar), count);
+        for (char c = 'A'; c <= 'Z'; c++) {
+            results.put(String.valueOf(c), 0L);
+        }
+        for (Object[] row : rows) {
+            String initial = (String) row[0];
+            if (initial != null && results.containsKey(initial)) {
+                results.put(initial, ((Number) row[1]).longValue());
+            }
         }
         return results;
     }
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.jpa;
+
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * Decides where the reads of a new EntityManager go when the database has
+ * a read-only replica.
+ *
+ * EclipseLink sends reads made outside of a transaction to its read
+ * connection pool, which is connected to the replica.  For a while after
+ * this server last wrote, new EntityManagers instead keep all their reads
+ * on the database so that recent writes are seen despite replication lag.
+ *
+ * The window is kept for the whole server, not per user or session, and
+ * only this node's writes open it.  Writes made on other nodes of a
+ * cluster may still be read stale from the replica until it catches up.
+ */
+final class ReplicaRouting {
+
+    /** EntityManager properties which keep all reads on the database. */
+    static final Map<String, Object> PRIMARY_ONLY = Collections.singletonMap(
+            "eclipselink.jdbc.exclusive-connection.mode", "Always");
+
+    private final long windowMillis;
+
+    // when this server last committed a write
+    private volatile long lastWrite = Long.MIN_VALUE / 2;
+
+
+    ReplicaRouting(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+
+    /**
+     * True if an EntityManager created now may read from the replica.
+     */
+    boolean canReadFromReplica(long now) {
+        return now - lastWrite >= windowMillis;
+    }
+
+
+    /**
+     * A transaction was committed.
+     */
+    void written(long now) {
+        lastWrite = now;
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.jpa;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.eclipse.persistence.config.DescriptorCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
+
+
+/**
+ * Gives the entities kept in the EclipseLink shared cache a time to live of
+ * jpa.sharedCache.timeout seconds, so that changes made by other nodes of a
+ * cluster are picked up.  Set per entity in roller.properties with
+ * eclipselink.descriptor.customizer.&lt;entity&gt;.
+ */
+public class SharedCacheCustomizer implements DescriptorCustomizer {
+
+    private static final Log log = LogFactory.getLog(SharedCacheCustomizer.class);
+
+    @Override
+    public void customize(ClassDescriptor descriptor) {
+        int timeout = WebloggerConfig.getIntProperty("jpa.sharedCache.timeout", 0);
+        if (timeout > 0) {
+            descriptor.setCacheInvalidationPolicy(
+                    new TimeToLiveCacheInvalidationPolicy(timeout * 1000L));
+            log.debug("Shared cache of " + descriptor.getAlias() + " times out after "
+                    + timeout + " seconds");
+        }
+    }
+
+}
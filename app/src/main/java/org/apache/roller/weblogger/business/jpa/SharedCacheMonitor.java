@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.jpa;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.EntityManagerFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.pojos.User;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogBookmark;
+import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
+import org.apache.roller.weblogger.pojos.WeblogCategory;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.pojos.WeblogTemplate;
+import org.apache.roller.weblogger.util.cache.CacheHandler;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.databaseaccess.DatasourceCall;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.queries.Call;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+
+/**
+ * Hit and miss counts of the EclipseLink shared cache, per cached entity.
+ *
+ * Every read of a cached entity made through an EntityManager is a lookup,
+ * and every one which had to run SQL is a miss.  Lookups answered from the
+ * shared cache or the query results cache are hits.
+ *
+ * The monitor is also registered with the CacheManager so that invalidating
+ * a weblog, user, category or template evicts it from the shared cache too.
+ */
+public final class SharedCacheMonitor extends SessionEventAdapter implements CacheHandler {
+
+    private static final Log log = LogFactory.getLog(SharedCacheMonitor.class);
+
+    /** Prefix of the stats keys, followed by the entity name. */
+    public static final String CACHE_ID = "jpa.sharedcache";
+
+    private static final SharedCacheMonitor singletonInstance = new SharedCacheMonitor();
+
+    private volatile EntityManagerFactory emf = null;
+
+    // entity class -> counts
+    private final Map<Class<?>, Counts> counts = new ConcurrentHashMap<>();
+
+
+    private SharedCacheMonitor() {
+    }
+
+
+    public static SharedCacheMonitor getInstance() {
+        return singletonInstance;
+    }
+
+
+    /**
+     * Start counting the reads made through the factory, if it is an
+     * EclipseLink one.  Only the first factory of the server is monitored.
+     */
+    void attach(EntityManagerFactory factory) {
+        if (emf != null) {
+            return;
+        }
+        try {
+            JpaHelper.getServerSession(factory).getEventManager().addListener(this);
+            this.emf = factory;
+            CacheManager.registerHandler(this);
+        } catch (RuntimeException e) {
+            log.info("Shared cache statistics not available: " + e.getMessage());
+        }
+    }
+
+
+    @Override
+    public void preExecuteQuery(SessionEvent event) {
+        // the unit of work sees each read once, before any cache is checked
+        if (event.getSession().isUnitOfWork()) {
+            Counts c = countsFor(event.getQuery());
+            if (c != null) {
+                c.lookups.incrementAndGet();
+            }
+        }
+    }
+
+
+    @Override
+    public void preExecuteCall(SessionEvent event) {
+        Call call = event.getCall();
+        if (call instanceof DatasourceCall) {
+            Counts c = countsFor(((DatasourceCall) call).getQuery());
+            if (c != null) {
+                c.misses.incrementAndGet();
+            }
+        }
+    }
+
+
+    private Counts countsFor(DatabaseQuery query) {
+        if (query == null || !query.isObjectLevelReadQuery()) {
+            return null;
+        }
+        ClassDescriptor descriptor = query.getDescriptor();
+        if (descriptor == null || descriptor.isIsolated()) {
+            return null;
+        }
+        return counts.computeIfAbsent(descriptor.getJavaClass(),
+                k -> new Counts(descriptor.getAlias()));
+    }
+
+
+    /**
+     * Stats of each cached entity which was read, keyed by CACHE_ID and the
+     * entity name.
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> allStats = new HashMap<>();
+        for (Counts c : counts.values()) {
+            long lookups = c.lookups.get();
+            long misses = Math.min(c.misses.get(), lookups);
+            long hits = lookups - misses;
+
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("lookups", lookups);
+            stats.put("hits", hits);
+            stats.put("misses", misses);
+            stats.put("hitRatio", lookups > 0 ? (double) hits / lookups : 0.0);
+            allStats.put(CACHE_ID + "." + c.entityName, stats);
+        }
+        return allStats;
+    }
+
+
+    /**
+     * Evict an entity, given by its stats key, from the shared cache and
+     * reset its counts.  A null key evicts all entities.
+     */
+    public void clear(String statsKey) {
+        for (Map.Entry<Class<?>, Counts> entry : counts.entrySet()) {
+            if (statsKey == null || statsKey.equals(CACHE_ID + "." + entry.getValue().entityName)) {
+                if (emf != null && statsKey != null) {
+                    emf.getCache().evict(entry.getKey());
+                }
+                counts.remove(entry.getKey());
+            }
+        }
+        if (emf != null && statsKey == null) {
+            emf.getCache().evictAll();
+        }
+    }
+
+
+    /**
+     * Evict an entity from the shared cache.
+     */
+    private void evict(Class<?> entityClass, Object id) {
+        EntityManagerFactory factory = emf;
+        if (factory != null && id != null) {
+            factory.getCache().evict(entityClass, id);
+        }
+    }
+
+
+    @Override
+    public void invalidate(Weblog website) {
+        evict(Weblog.class, website.getId());
+    }
+
+
+    @Override
+    public void invalidate(User user) {
+        evict(User.class, user.getId());
+    }
+
+
+    @Override
+    public void invalidate(WeblogCategory category) {
+        evict(WeblogCategory.class, category.getId());
+    }
+
+
+    @Override
+    public void invalidate(WeblogTemplate template) {
+        evict(WeblogTemplate.class, template.getId());
+    }
+
+
+    @Override
+    public void invalidate(WeblogEntry entry) {
+        // ignored, entries aren't in the shared cache
+    }
+
+
+    @Override
+    public void invalidate(WeblogBookmark bookmark) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogBookmarkFolder folder) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogEntryComment comment) {
+        // ignored
+    }
+
+
+    private static final class Counts {
+        private final String entityName;
+        private final AtomicLong lookups = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        Counts(String entityName) {
+            this.entityName = entityName;
+        }
+    }
+
+}
@@ -59,6 +59,25 @@ public interface PluginManager {
     String applyWeblogEntryPlugins(Map<String, WeblogEntryPlugin> pagePlugins, WeblogEntry entry, String str);
     
     
+    /**
+     * Apply the plugins enabled for an entry, in the order they are
+     * registered, and sanitize the result if required.  Plugins are looked
+     * up from the entry's weblog and a failing plugin is skipped.
+     *
+     * @param entry       Weblog entry being rendered
+     * @param str         String to which to apply plugins
+     * @return        the transformed text, or null if str is null
+     */
+    String applyWeblogEntryPlugins(WeblogEntry entry, String str);
+    
+    
+    /**
+     * Call counts and render times of weblog entry plugins, keyed by
+     * plugin name.
+     */
+    Map<String, Object> getWeblogEntryPluginStats();
+    
+    
     /**
      * Get the list of WeblogEntryCommentPlugin classes configured.
      *
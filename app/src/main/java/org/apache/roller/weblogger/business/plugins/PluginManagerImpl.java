@@ -20,9 +20,12 @@ package org.apache.roller.weblogger.business.plugins;
 
 import java.util.ArrayList;
 import org.apache.roller.weblogger.business.plugins.entry.WeblogEntryPlugin;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -47,6 +50,15 @@ public class PluginManagerImpl implements PluginManager {
     // Plugin classes keyed by plugin name
     private static final Map<String, Class<? extends WeblogEntryPlugin>> mPagePlugins = new LinkedHashMap<>();
     
+    // Shared, already initialized plugin instances keyed by plugin name
+    private final Map<String, WeblogEntryPlugin> sharedPlugins = new ConcurrentHashMap<>();
+    
+    // Ordered plugin names to apply, keyed by an entry's plugins string
+    private final Map<String, List<String>> pipelines = new ConcurrentHashMap<>();
+    
+    // Render timings keyed by plugin name
+    private final Map<String, PluginTimer> timers = new ConcurrentHashMap<>();
+    
     // Comment plugins
     private final List<WeblogEntryCommentPlugin> commentPlugins = new ArrayList<>();
     
@@ -72,24 +84,121 @@ public class PluginManagerImpl implements PluginManager {
     
     /**
      * Create and init plugins for processing entries in a specified website.
+     * Shared plugins are only created and initialized once, the first time
+     * they are asked for, and that same instance is returned for every weblog.
      */
     @Override
     public Map<String, WeblogEntryPlugin> getWeblogEntryPlugins(Weblog website) {
         
         Map<String, WeblogEntryPlugin> ret = new LinkedHashMap<>();
         
-        for (Class<? extends WeblogEntryPlugin> pluginClass : mPagePlugins.values()) {
-            try {
-                WeblogEntryPlugin plugin = Reflection.newInstance(pluginClass);
-                plugin.init(website);
+        for (Map.Entry<String, Class<? extends WeblogEntryPlugin>> entry : mPagePlugins.entrySet()) {
+            WeblogEntryPlugin plugin = sharedPlugins.get(entry.getKey());
+            if (plugin == null) {
+                plugin = createPlugin(entry.getValue(), website);
+            }
+            if (plugin != null) {
                 ret.put(plugin.getName(), plugin);
-            } catch (ReflectiveOperationException | WebloggerException e) {
-                log.error("Unable to init() PagePlugin: ", e);
             }
         }
         return ret;
     }
     
+    
+    private WeblogEntryPlugin createPlugin(Class<? extends WeblogEntryPlugin> pluginClass, Weblog website) {
+        try {
+            WeblogEntryPlugin plugin = Reflection.newInstance(pluginClass);
+            if (!plugin.isShared()) {
+                plugin.init(website);
+                return plugin;
+            }
+            synchronized (sharedPlugins) {
+                WeblogEntryPlugin shared = sharedPlugins.get(plugin.getName());
+                if (shared == null) {
+                    plugin.init(website);
+                    sharedPlugins.put(plugin.getName(), plugin);
+                    shared = plugin;
+                }
+                return shared;
+            }
+        } catch (ReflectiveOperationException | WebloggerException e) {
+            log.error("Unable to init() PagePlugin: ", e);
+        }
+        return null;
+    }
+    
+    
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public String applyWeblogEntryPlugins(WeblogEntry entry, String str) {
+        
+        if (str == null) {
+            return null;
+        }
+        
+        String ret = str;
+        List<String> pipeline = getPipeline(entry.getPlugins());
+        if (!pipeline.isEmpty()) {
+            Map<String, WeblogEntryPlugin> inPlugins = entry.getWebsite().getInitializedPlugins();
+            if (inPlugins != null) {
+                for (String name : pipeline) {
+                    WeblogEntryPlugin plugin = inPlugins.get(name);
+                    if (plugin != null) {
+                        ret = renderTimed(plugin, entry, ret);
+                    }
+                }
+            }
+        }
+        
+        return HTMLSanitizer.conditionallySanitize(ret);
+    }
+    
+    
+    /**
+     * Names of the registered plugins enabled by the given plugins string,
+     * in registry order.  Computed once per distinct plugins string.
+     */
+    private List<String> getPipeline(String plugins) {
+        if (StringUtils.isBlank(plugins)) {
+            return Collections.emptyList();
+        }
+        return pipelines.computeIfAbsent(plugins, key -> {
+            List<String> enabled = List.of(StringUtils.split(key, ","));
+            return mPagePlugins.keySet().stream()
+                    .filter(enabled::contains)
+                    .collect(Collectors.toUnmodifiableList());
+        });
+    }
+    
+    
+    private String renderTimed(WeblogEntryPlugin plugin, WeblogEntry entry, String str) {
+        long start = System.nanoTime();
+        try {
+            return plugin.render(entry, str);
+        } catch (Exception e) {
+            log.error("ERROR from plugin: " + plugin.getName(), e);
+            return str;
+        } finally {
+            timers.computeIfAbsent(plugin.getName(), k -> new PluginTimer())
+                    .record(System.nanoTime() - start);
+        }
+    }
+    
+    
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Map<String, Object> getWeblogEntryPluginStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, PluginTimer> entry : timers.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().toString());
+        }
+        return stats;
+    }
+    
     @Override
     public String applyWeblogEntryPlugins(Map<String, WeblogEntryPlugin> pagePlugins, WeblogEntry entry, String str) {
 
@@ -202,4 +311,26 @@ public class PluginManagerImpl implements PluginManager {
         // no op
     }
     
+    
+    /**
+     * Call count and cumulative render time for a single plugin.
+     */
+    private static class PluginTimer {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        
+        void record(long elapsed) {
+            calls.increment();
+            nanos.add(elapsed);
+        }
+        
+        @Override
+        public String toString() {
+            long count = calls.sum();
+            long total = nanos.sum();
+            return "calls=" + count + ", totalMs=" + (total / 1000000)
+                    + ", avgMicros=" + (count > 0 ? total / count / 1000 : 0);
+        }
+    }
+    
 }
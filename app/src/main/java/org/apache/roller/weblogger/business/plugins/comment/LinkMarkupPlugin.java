@@ -76,48 +76,40 @@ public class LinkMarkupPlugin implements WeblogEntryCommentPlugin {
      */
     @Override
     public String render(final WeblogEntryComment comment, String text) {
-        StringBuilder result;
-        result = new StringBuilder();
-        
-        if (text != null) {
-            Matcher matcher;
-            matcher = PATTERN.matcher(text);
+        if (text == null) {
+            return "";
+        }
 
-            int start = 0;
-            int end = text.length();
-            
-            while (start < end) {
-                if (matcher.find()) {
-                    // Copy up to the match
-                    result.append(text.substring(start, (matcher.start())));
+        Matcher matcher = PATTERN.matcher(text);
+        StringBuilder result = null;
+        int start = 0;
 
-                    // Copy the URL and create the hyperlink
-                    // Unescape HTML as we don't know if that setting is on
-                    String url;
-                    url = Utilities.unescapeHTML(text.substring(
-                            matcher.start(), matcher.end()));
+        while (matcher.find()) {
+            if (result == null) {
+                result = new StringBuilder(text.length() + 64);
+            }
 
-                    // Build the anchor tag and escape HTML in the URL output
-                    result.append("<a href=\"");
-                    result.append(Utilities.escapeHTML(url));
-                    result.append("\">");
-                    result.append(Utilities.escapeHTML(url));
-                    result.append("</a>");
+            // Copy up to the match
+            result.append(text, start, matcher.start());
 
-                    // Increment the starting index
-                    start = matcher.end();
-                }
-                else {
-                    // Copy the remainder
-                    result.append(text.substring(start, end));
+            // Copy the URL and create the hyperlink
+            // Unescape HTML as we don't know if that setting is on
+            String url = Utilities.escapeHTML(Utilities.unescapeHTML(matcher.group()));
 
-                    // Increment the starting index to exit the loop
-                    start = end;
-                }
-            }
+            // Build the anchor tag and escape HTML in the URL output
+            result.append("<a href=\"").append(url).append("\">").append(url).append("</a>");
+
+            // Increment the starting index
+            start = matcher.end();
+        }
+
+        if (result == null) {
+            // nothing to link, so nothing to copy
+            return text;
         }
 
-        return result.toString();
+        // Copy the remainder
+        return result.append(text, start, text.length()).toString();
     }
     
 }
@@ -67,6 +67,12 @@ public class ConvertLineBreaksPlugin implements WeblogEntryPlugin {
     }
     
     
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+    
+    
     @Override
     public void init(Weblog website) throws WebloggerException {
         // we don't need to do any init.
@@ -50,6 +50,11 @@ public class EncodePreTagsPlugin implements WeblogEntryPlugin {
         return "Encodes angle brackets inside pre tags, code tags are kept unaltered.";
     }
 
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
     @Override
     public void init(Weblog weblog) throws WebloggerException {}
 
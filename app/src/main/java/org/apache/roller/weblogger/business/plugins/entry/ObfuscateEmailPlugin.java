@@ -57,6 +57,12 @@ public class ObfuscateEmailPlugin implements WeblogEntryPlugin {
     }
     
     
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+    
+    
     @Override
     public void init(Weblog website) throws WebloggerException {}
     
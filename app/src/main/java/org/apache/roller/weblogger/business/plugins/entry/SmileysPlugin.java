@@ -19,12 +19,13 @@
 package org.apache.roller.weblogger.business.plugins.entry;
 
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.apache.commons.text.StringEscapeUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.roller.util.LiteralReplacer;
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
@@ -37,9 +38,8 @@ public class SmileysPlugin implements WeblogEntryPlugin {
     
     private static final Log log = LogFactory.getLog(SmileysPlugin.class);
 
-    // public for tests
-    public static Pattern[] smileyPatterns = new Pattern[0];
-    static String[] imageTags = new String[0];
+    // replaces every emoticon with its img tag in one pass, built by init()
+    private static volatile LiteralReplacer smileyReplacer = null;
     private static final Properties smileyDefs = new Properties();
     
     private final String name = "Emoticons";
@@ -73,52 +73,51 @@ public class SmileysPlugin implements WeblogEntryPlugin {
     }
     
     
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+    
+    
     /*
-     * Convert the SmileyDefs into RegEx patterns and img tags for
-     * later use.  Need an HttpServletRequest though so that we can
-     * get the ServletContext Path.  But only do it once.
+     * Convert the SmileyDefs into a replacer mapping each emoticon to its
+     * img tag for later use.  Need the absolute context url though so that
+     * we can build the image src.  But only do it once.
      */
     @Override
     public synchronized void init(Weblog website) throws WebloggerException {
         // don't do this work if Smileys already loaded
-        if (SmileysPlugin.smileyPatterns.length < 1) {
+        if (SmileysPlugin.smileyReplacer == null) {
             String baseURL = WebloggerRuntimeConfig.getAbsoluteContextURL();
             
-            Pattern[] tempP = new Pattern[SmileysPlugin.smileyDefs.size()];
-            String[] tempS = new String[SmileysPlugin.smileyDefs.size()];
+            Map<String, String> imageTags = new HashMap<>();
             log.debug("# smileys: " + smileyDefs.size());
-            int count = 0;
             Enumeration<?> enum1 = SmileysPlugin.smileyDefs.propertyNames();
             while(enum1.hasMoreElements()) {
                 String smiley = (String)enum1.nextElement();
                 String smileyAlt = htmlEscape(smiley);
-                tempP[count] = Pattern.compile(regexEscape(smiley));
-                tempS[count] = "<img src=\"" +
+                String imageTag = "<img src=\"" +
                         baseURL + "/images/smileys/" +
                         smileyDefs.getProperty(smiley, "smile.gif") +
                         "\" class=\"smiley\"" +
                         " alt=\"" + smileyAlt + "\"" +
                         " title=\"" + smileyAlt +"\" />";
-                log.debug(smiley + "=" + tempS[count]);
-                count++;
+                log.debug(smiley + "=" + imageTag);
+                imageTags.put(smiley, imageTag);
             }
-            SmileysPlugin.smileyPatterns = tempP;
-            SmileysPlugin.imageTags = tempS;
+            SmileysPlugin.smileyReplacer = new LiteralReplacer(imageTags, false);
         }
     }
     
     
     /**
      * Find occurences of ascii emoticons and turn them into HTML image pointers.
+     * Where emoticons overlap, such as :) and :)), the longest one wins.
      */
     @Override
     public String render(WeblogEntry entry, String text) {
-        Matcher matcher;
-        for (int i=0; i<smileyPatterns.length; i++) {
-            matcher = smileyPatterns[i].matcher(text);
-            text = matcher.replaceAll(imageTags[i]);
-        }
-        return text;
+        LiteralReplacer replacer = smileyReplacer;
+        return replacer == null ? text : replacer.replace(text);
     }
     
     
@@ -143,30 +142,4 @@ public class SmileysPlugin implements WeblogEntryPlugin {
         return buf.toString();
     }
     
-    /**
-     * Some characters have to escaped with a backslash before
-     * being compiled into a Regular Expression.
-     *
-     * @param smiley
-     * @return
-     */
-    private static final char[] escape_regex = new char[]
-    {'-', '(', ')', '\\', '|', ':', '^', '$', '*', '+', '?',
-     '{', '}', '!', '=', '<', '>', '&', '[', ']' };
-    
-    private String regexEscape(String smiley) {
-        char[] chars = smiley.toCharArray();
-        StringBuilder buf = new StringBuilder();
-        for (int i=0; i<chars.length; i++) {
-            for (int x=0; x<escape_regex.length; x++) {
-                if (escape_regex[x] == chars[i]) {
-                    buf.append("\\");
-                    break;
-                }
-            }
-            buf.append(chars[i]);
-        }
-        return buf.toString();
-    }
-    
 }
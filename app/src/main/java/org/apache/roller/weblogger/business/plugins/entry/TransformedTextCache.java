@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.plugins.entry;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.util.HTMLSanitizer;
+import org.apache.roller.weblogger.util.cache.Cache;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+
+
+/**
+ * Cache for weblog entry text and summary after it has been transformed by
+ * the entry plugins and the html sanitizer.
+ *
+ * Keys include the entry id, its update time, the list of enabled plugins
+ * and the sanitizer mode, so an entry which is edited or has its plugins
+ * changed simply misses and old values age out of the LRU.
+ */
+public final class TransformedTextCache {
+
+    private static final Log log = LogFactory.getLog(TransformedTextCache.class);
+
+    // a unique identifier for this cache, this is used as the prefix for
+    // roller config properties that apply to this cache
+    public static final String CACHE_ID = "cache.transformedtext";
+
+    public static final String TEXT = "text";
+    public static final String SUMMARY = "summary";
+
+    // keep cached content
+    private boolean cacheEnabled = true;
+    private Cache contentCache = null;
+
+    // reference to our singleton instance
+    private static final TransformedTextCache singletonInstance = new TransformedTextCache();
+
+
+    private TransformedTextCache() {
+
+        cacheEnabled = WebloggerConfig.getBooleanProperty(CACHE_ID+".enabled");
+
+        Map<String, String> cacheProps = new HashMap<>();
+        cacheProps.put("id", CACHE_ID);
+
+        Enumeration<Object> allProps = WebloggerConfig.keys();
+        String prop;
+        while(allProps.hasMoreElements()) {
+            prop = (String) allProps.nextElement();
+
+            // we are only interested in props for this cache
+            if(prop.startsWith(CACHE_ID+".")) {
+                cacheProps.put(prop.substring(CACHE_ID.length()+1),
+                        WebloggerConfig.getProperty(prop));
+            }
+        }
+
+        log.info(cacheProps);
+
+        if(cacheEnabled) {
+            contentCache = CacheManager.constructCache(null, cacheProps);
+        } else {
+            log.warn("Caching has been DISABLED");
+        }
+    }
+
+
+    public static TransformedTextCache getInstance() {
+        return singletonInstance;
+    }
+
+
+    public boolean isEnabled() {
+        return cacheEnabled;
+    }
+
+
+    public String get(String key) {
+
+        if (!cacheEnabled || key == null) {
+            return null;
+        }
+
+        String entry = (String) contentCache.get(key);
+        if(entry != null) {
+            log.debug("HIT "+key);
+        } else {
+            log.debug("MISS "+key);
+        }
+
+        return entry;
+    }
+
+
+    public void put(String key, String value) {
+
+        if (!cacheEnabled || key == null || value == null) {
+            return;
+        }
+
+        contentCache.put(key, value);
+        log.debug("PUT "+key);
+    }
+
+
+    public void clear() {
+
+        if (!cacheEnabled) {
+            return;
+        }
+
+        contentCache.clear();
+        log.debug("CLEAR");
+    }
+
+
+    /**
+     * Generate a cache key for one field of an entry.
+     * This generates a key of the form ...
+     *
+     * <id>/<field>/<updateTime>/<sanitize>/<plugins>/<length>:<hash>
+     *
+     * The length and hash of the raw input are included so that unsaved
+     * edits (previews, etc) which share an update time never collide.
+     *
+     * Returns null if the entry has never been saved.
+     */
+    public String generateKey(WeblogEntry entry, String field, String input) {
+
+        if (entry.getUpdateTime() == null) {
+            return null;
+        }
+
+        StringBuilder key = new StringBuilder(128);
+
+        key.append(CACHE_ID).append(':');
+        key.append(entry.getId());
+        key.append('/').append(field);
+        key.append('/').append(entry.getUpdateTime().getTime());
+        key.append('/').append(HTMLSanitizer.xssEnabled ? "sanitized" : "raw");
+        key.append('/').append(entry.getPlugins() == null ? "" : entry.getPlugins());
+        key.append('/').append(input.length()).append(':').append(input.hashCode());
+
+        return key.toString();
+    }
+
+}
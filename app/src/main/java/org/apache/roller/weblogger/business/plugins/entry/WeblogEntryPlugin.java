@@ -60,4 +60,15 @@ public interface WeblogEntryPlugin {
      */
     String render(WeblogEntry entry, String str);
     
+    
+    /**
+     * True if a single instance of this plugin may be shared by all weblogs
+     * and rendering threads.  Shared plugins are created and initialized only
+     * once, so they must be thread-safe and must read any weblog specific
+     * settings from the entry passed to render() rather than from init().
+     */
+    default boolean isShared() {
+        return false;
+    }
+    
 }
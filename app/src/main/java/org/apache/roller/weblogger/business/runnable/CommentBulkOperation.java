@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.runnable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.business.WeblogEntryManager;
+import org.apache.roller.weblogger.business.Weblogger;
+import org.apache.roller.weblogger.business.WebloggerFactory;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.CommentSearchCriteria;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment.ApprovalStatus;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+
+
+/**
+ * Deletes, approves or marks as spam all comments matching a query, in the
+ * background and in batches so that a large moderation run neither holds
+ * one long transaction nor ties up a request.
+ *
+ * Each batch is done with bulk statements by comment id and committed on
+ * its own, then the caches of the affected weblogs are invalidated and
+ * their entries reindexed once per batch.  The operation can be cancelled
+ * between batches, which leaves the batches already done committed.
+ *
+ * Only one operation runs at a time on a server, see start().
+ */
+public class CommentBulkOperation implements Runnable {
+
+    private static Log log = LogFactory.getLog(CommentBulkOperation.class);
+
+    // comments per batch, each batch is one transaction
+    private static final int BATCH_SIZE = 500;
+
+    public enum Action { DELETE, APPROVE, SPAM }
+
+    public enum State { RUNNING, DONE, CANCELLED, FAILED }
+
+    // latest operation started on this server
+    private static final AtomicReference<CommentBulkOperation> current = new AtomicReference<>();
+
+    private final Action action;
+    private final CommentSearchCriteria criteria;
+
+    private volatile State state = State.RUNNING;
+    private volatile boolean cancelled = false;
+    private volatile int total = 0;
+    private volatile int processed = 0;
+
+
+    private CommentBulkOperation(Action action, CommentSearchCriteria criteria) {
+        this.action = action;
+        this.criteria = criteria;
+    }
+
+
+    /**
+     * Start an operation on the comments matching the criteria, unless one
+     * is already running.
+     *
+     * @return the new operation, or null if one is already running.
+     */
+    public static CommentBulkOperation start(Action action, CommentSearchCriteria criteria)
+            throws WebloggerException {
+
+        CommentBulkOperation op = new CommentBulkOperation(action, criteria);
+        CommentBulkOperation previous = current.get();
+        if (previous != null && previous.isRunning()) {
+            return null;
+        }
+        if (!current.compareAndSet(previous, op)) {
+            return null;
+        }
+
+        try {
+            WebloggerFactory.getWeblogger().getThreadManager().executeInBackground(op);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            op.state = State.FAILED;
+            throw new WebloggerException("Interrupted starting comment operation", e);
+        }
+        return op;
+    }
+
+
+    /**
+     * The operation running now or, if none is, the last one to have run.
+     */
+    public static CommentBulkOperation getCurrent() {
+        return current.get();
+    }
+
+
+    @Override
+    public void run() {
+
+        Weblogger roller = WebloggerFactory.getWeblogger();
+        try {
+            List<String> ids;
+            try {
+                ids = roller.getWeblogEntryManager().getCommentIds(criteria);
+            } finally {
+                roller.release();
+            }
+            total = ids.size();
+            log.info(action + " of " + total + " comments started");
+
+            for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+                if (cancelled) {
+                    state = State.CANCELLED;
+                    log.info(action + " of comments cancelled after " + processed + " of " + total);
+                    return;
+                }
+                List<String> batch = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+                processBatch(roller, batch);
+                processed += batch.size();
+            }
+
+            state = State.DONE;
+            log.info(action + " of " + total + " comments completed");
+
+        } catch (Exception e) {
+            state = State.FAILED;
+            log.error("Error during " + action + " of comments, " + processed + " of "
+                    + total + " done", e);
+        }
+    }
+
+
+    /**
+     * Apply the action to one batch of comments and commit it.
+     */
+    private void processBatch(Weblogger roller, List<String> ids) throws WebloggerException {
+
+        try {
+            WeblogEntryManager wmgr = roller.getWeblogEntryManager();
+
+            List<WeblogEntry> entries;
+            switch (action) {
+                case DELETE:
+                    entries = wmgr.removeComments(ids);
+                    break;
+                case APPROVE:
+                    entries = wmgr.updateCommentStatus(ids, ApprovalStatus.APPROVED);
+                    break;
+                case SPAM:
+                    entries = wmgr.updateCommentStatus(ids, ApprovalStatus.SPAM);
+                    break;
+                default:
+                    entries = Collections.emptyList();
+            }
+
+            // commit the changes
+            roller.flush();
+
+            // invalidate each affected weblog once and reindex the entries
+            // of the batch together
+            Map<String, Weblog> weblogs = new LinkedHashMap<>();
+            for (WeblogEntry entry : entries) {
+                weblogs.putIfAbsent(entry.getWebsite().getId(), entry.getWebsite());
+            }
+            for (Weblog weblog : weblogs.values()) {
+                CacheManager.invalidate(weblog);
+            }
+            if (WebloggerConfig.getBooleanProperty("search.enabled")) {
+                roller.getIndexManager().addEntriesReIndexOperation(entries);
+            }
+
+        } finally {
+            // always release
+            roller.release();
+        }
+    }
+
+
+    /**
+     * Stop the operation before its next batch.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+
+    public boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Number of comments to process, known once the operation has looked
+     * them up.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+}
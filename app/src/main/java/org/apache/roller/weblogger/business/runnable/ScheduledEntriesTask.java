@@ -19,7 +19,9 @@
 package org.apache.roller.weblogger.business.runnable;
 
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -27,9 +29,8 @@ import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.business.WeblogEntryManager;
 import org.apache.roller.weblogger.business.search.IndexManager;
+import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
-import org.apache.roller.weblogger.pojos.WeblogEntry.PubStatus;
-import org.apache.roller.weblogger.pojos.WeblogEntrySearchCriteria;
 import org.apache.roller.weblogger.util.cache.CacheManager;
 
 
@@ -56,6 +57,9 @@ public class ScheduledEntriesTask extends RollerTaskWithLeasing {
     // lease time given to task lock, default is 30 minutes
     private int leaseTime = RollerTaskWithLeasing.DEFAULT_LEASE_MINS;
 
+    // entries published per transaction, default is 100
+    private int batchSize = 100;
+
 
     @Override
     public String getClientId() {
@@ -125,11 +129,25 @@ public class ScheduledEntriesTask extends RollerTaskWithLeasing {
                 log.warn("Invalid leaseTime: "+leaseTimeStr);
             }
         }
+
+        // extract batch size
+        String batchSizeStr = props.getProperty("batchSize");
+        if(batchSizeStr != null) {
+            try {
+                this.batchSize = Math.max(1, Integer.parseInt(batchSizeStr));
+            } catch (NumberFormatException ex) {
+                log.warn("Invalid batchSize: "+batchSizeStr);
+            }
+        }
     }
 
 
     /**
      * Execute the task.
+     *
+     * Entries are published batchSize at a time, each batch in its own
+     * transaction, with one cache invalidation per affected weblog and a
+     * single re-index operation per batch.
      */
     @Override
     public void runTask() {
@@ -137,24 +155,42 @@ public class ScheduledEntriesTask extends RollerTaskWithLeasing {
         log.debug("task started");
 
         try {
-            WeblogEntryManager wMgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
-            IndexManager searchMgr = WebloggerFactory.getWeblogger().getIndexManager();
-
             Date now = new Date();
 
             log.debug("looking up scheduled entries older than " + now);
 
-            // get all published entries older than current time
-            WeblogEntrySearchCriteria wesc = new WeblogEntrySearchCriteria();
-            wesc.setEndDate(now);
-            wesc.setStatus(PubStatus.SCHEDULED);
-            List<WeblogEntry> scheduledEntries = wMgr.getWeblogEntries(wesc);
-            log.debug("promoting "+scheduledEntries.size()+" entries to PUBLISHED state");
+            int published = 0;
+            List<WeblogEntry> batch;
+            do {
+                batch = publishBatch(now);
+                published += batch.size();
+            } while (batch.size() == batchSize);
 
-            for (WeblogEntry entry : scheduledEntries) {
-                entry.setStatus(PubStatus.PUBLISHED);
-                entry.setRefreshAggregates(true);
-                wMgr.saveWeblogEntry(entry);
+            log.debug("promoted "+published+" entries to PUBLISHED state");
+
+        } catch (WebloggerException e) {
+            log.error("Error getting scheduled entries", e);
+        } catch(Exception e) {
+            log.error("Unexpected exception running task", e);
+        }
+
+        log.debug("task completed");
+
+    }
+
+
+    /**
+     * Publish one batch of due entries and commit it.
+     */
+    private List<WeblogEntry> publishBatch(Date now) throws WebloggerException {
+
+        try {
+            WeblogEntryManager wMgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
+            IndexManager searchMgr = WebloggerFactory.getWeblogger().getIndexManager();
+
+            List<WeblogEntry> scheduledEntries = wMgr.publishScheduledEntries(now, batchSize);
+            if (scheduledEntries.isEmpty()) {
+                return scheduledEntries;
             }
 
             // commit the changes
@@ -162,24 +198,23 @@ public class ScheduledEntriesTask extends RollerTaskWithLeasing {
 
             // take a second pass to trigger reindexing and cache invalidations
             // this is because we need the updated entries flushed first
+            Map<String, Weblog> weblogs = new LinkedHashMap<>();
             for (WeblogEntry entry : scheduledEntries) {
+                weblogs.putIfAbsent(entry.getWebsite().getId(), entry.getWebsite());
+            }
+            for (Weblog weblog : weblogs.values()) {
                 // trigger a cache invalidation
-                CacheManager.invalidate(entry);
-                // trigger search index on entry
-                searchMgr.addEntryReIndexOperation(entry);
+                CacheManager.invalidate(weblog);
             }
+            // trigger search index on entries
+            searchMgr.addEntriesReIndexOperation(scheduledEntries);
+
+            return scheduledEntries;
 
-        } catch (WebloggerException e) {
-            log.error("Error getting scheduled entries", e);
-        } catch(Exception e) {
-            log.error("Unexpected exception running task", e);
         } finally {
             // always release
             WebloggerFactory.getWeblogger().release();
         }
-
-        log.debug("task completed");
-
     }
 
 
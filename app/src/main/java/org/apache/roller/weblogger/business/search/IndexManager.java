@@ -17,6 +17,8 @@
 */
 package org.apache.roller.weblogger.business.search;
 
+import java.util.List;
+
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.InitializationException;
 import org.apache.roller.weblogger.business.search.operations.IndexOperation;
@@ -43,6 +45,9 @@ public interface IndexManager
     
     /** R-index entry, returns immediately and operates in background */
     void addEntryReIndexOperation(WeblogEntry entry) throws WebloggerException;
+
+    /** Re-index entries as one batch, returns immediately and operates in background */
+    void addEntriesReIndexOperation(List<WeblogEntry> entries) throws WebloggerException;
     
     /** Execute operation immediately */
     void executeIndexOperationNow(final IndexOperation op);
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -44,6 +45,7 @@ import org.apache.roller.weblogger.business.InitializationException;
 import org.apache.roller.weblogger.business.Weblogger;
 import org.apache.roller.weblogger.business.search.operations.AddEntryOperation;
 import org.apache.roller.weblogger.business.search.operations.IndexOperation;
+import org.apache.roller.weblogger.business.search.operations.ReIndexEntriesOperation;
 import org.apache.roller.weblogger.business.search.operations.ReIndexEntryOperation;
 import org.apache.roller.weblogger.business.search.operations.RebuildWebsiteIndexOperation;
 import org.apache.roller.weblogger.business.search.operations.RemoveEntryOperation;
@@ -195,6 +197,13 @@ public class IndexManagerImpl implements IndexManager {
         scheduleIndexOperation(new ReIndexEntryOperation(roller, this, entry));
     }
 
+    @Override
+    public void addEntriesReIndexOperation(List<WeblogEntry> entries) throws WebloggerException {
+        if (!entries.isEmpty()) {
+            scheduleIndexOperation(new ReIndexEntriesOperation(roller, this, entries));
+        }
+    }
+
     @Override
     public void removeEntryIndexOperation(WeblogEntry entry) throws WebloggerException {
         executeIndexOperationNow(new RemoveEntryOperation(roller, this, entry));
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.roller.weblogger.business.search.operations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.business.WeblogEntryManager;
+import org.apache.roller.weblogger.business.Weblogger;
+import org.apache.roller.weblogger.business.search.FieldConstants;
+import org.apache.roller.weblogger.business.search.IndexManagerImpl;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+
+/**
+ * An operation that re-indexes a batch of entries, using a single index
+ * writer for all of them.
+ */
+public class ReIndexEntriesOperation extends WriteToIndexOperation {
+
+    private static Log mLogger = LogFactory.getFactory().getInstance(
+            ReIndexEntriesOperation.class);
+
+    private final List<String> entryIds = new ArrayList<>();
+    private Weblogger roller;
+
+    /**
+     * Re-indexes the given entries, which are only used for their ids.
+     */
+    public ReIndexEntriesOperation(Weblogger roller, IndexManagerImpl mgr,
+            List<WeblogEntry> entries) {
+        super(mgr);
+        this.roller = roller;
+        for (WeblogEntry entry : entries) {
+            this.entryIds.add(entry.getId());
+        }
+    }
+
+    @Override
+    public void doRun() {
+
+        IndexWriter writer = beginWriting();
+        try {
+            if (writer != null) {
+                WeblogEntryManager wMgr = roller.getWeblogEntryManager();
+                for (String entryId : entryIds) {
+
+                    // since this operation runs on a separate thread we
+                    // requery for each entry rather than using detached ones
+                    WeblogEntry data = wMgr.getWeblogEntry(entryId);
+                    if (data == null) {
+                        continue;
+                    }
+
+                    // Delete Doc
+                    writer.deleteDocuments(new Term(FieldConstants.ID, data.getId()));
+
+                    // Add Doc
+                    writer.addDocument(getDocument(data));
+                }
+            }
+        } catch (WebloggerException ex) {
+            mLogger.error("Error getting weblogentry object", ex);
+        } catch (IOException e) {
+            mLogger.error("Problems adding/deleting doc to index", e);
+        } finally {
+            if (roller != null) {
+                roller.release();
+            }
+            endWriting();
+        }
+    }
+}
@@ -49,28 +49,42 @@ public class SharedThemeFromDir extends SharedTheme {
     private ThemeResource previewImage = null;
 
     // the theme stylesheet
-    private ThemeTemplate stylesheet = null;
+    private volatile ThemeTemplate stylesheet = null;
 
     // we keep templates in a Map for faster lookups by name
-    private Map<String, ThemeTemplate> templatesByName = new HashMap<>();
+    private volatile Map<String, ThemeTemplate> templatesByName = new HashMap<>();
 
     // we keep templates in a Map for faster lookups by link
-    private Map<String, ThemeTemplate> templatesByLink = new HashMap<>();
+    private volatile Map<String, ThemeTemplate> templatesByLink = new HashMap<>();
 
     // we keep templates in a Map for faster lookups by action
-    private Map<ComponentType, ThemeTemplate> templatesByAction = new EnumMap<>(ComponentType.class);
+    private volatile Map<ComponentType, ThemeTemplate> templatesByAction = new EnumMap<>(ComponentType.class);
 
     // we keep resources in a Map for faster lookups by path
     // the Map contains ... (resource path, ThemeResource)
     private Map<String, ThemeResource> resources = new HashMap<>();
 
+    // the template renditions read from each contents file, so that a
+    // changed file can be reloaded without reloading the whole theme
+    // the Map contains ... (contents file path, renditions)
+    private Map<String, List<TemplateFileRendition>> renditionsByFile = new HashMap<>();
+
     public SharedThemeFromDir(String themeDirPath)
             throws ThemeInitializationException {
+        this(themeDirPath, null);
+    }
+
+    /**
+     * @param metadataCache persisted theme descriptors to use, or null to
+     *            always parse theme.xml.
+     */
+    SharedThemeFromDir(String themeDirPath, ThemeMetadataCache metadataCache)
+            throws ThemeInitializationException {
 
         this.themeDir = themeDirPath;
 
         // load the theme elements and cache 'em
-        loadThemeFromDisk();
+        loadThemeFromDisk(metadataCache);
     }
 
     /**
@@ -174,17 +188,23 @@ public class SharedThemeFromDir extends SharedTheme {
     /**
      * Load all the elements of this theme from disk and cache them.
      */
-    private void loadThemeFromDisk() throws ThemeInitializationException {
+    private void loadThemeFromDisk(ThemeMetadataCache metadataCache)
+            throws ThemeInitializationException {
 
         log.debug("Parsing theme descriptor for " + this.themeDir);
 
         ThemeMetadata themeMetadata;
         try {
-            // lookup theme descriptor and parse it
-            ThemeMetadataParser parser = new ThemeMetadataParser();
-            InputStream is = new FileInputStream(this.themeDir + File.separator
-                    + "theme.xml");
-            themeMetadata = parser.unmarshall(is);
+            if (metadataCache != null) {
+                themeMetadata = metadataCache.getMetadata(new File(this.themeDir));
+            } else {
+                // lookup theme descriptor and parse it
+                ThemeMetadataParser parser = new ThemeMetadataParser();
+                try (InputStream is = new FileInputStream(this.themeDir + File.separator
+                        + "theme.xml")) {
+                    themeMetadata = parser.unmarshall(is);
+                }
+            }
         } catch (Exception ex) {
             throw new ThemeInitializationException(
                     "Unable to parse theme.xml for theme " + this.themeDir, ex);
@@ -276,8 +296,7 @@ public class SharedThemeFromDir extends SharedTheme {
 
                 for (RenditionType type : availableTypesList) {
                     SharedThemeTemplateRendition rendition = createRendition(
-                            themeTemplate.getId(),
-                            stylesheetTmpl.getTemplateRendition(type));
+                            themeTemplate, stylesheetTmpl.getTemplateRendition(type));
 
                     themeTemplate.addTemplateRendition(rendition);
 
@@ -374,8 +393,7 @@ public class SharedThemeFromDir extends SharedTheme {
 
             for (RenditionType type : availableTypesList) {
                 SharedThemeTemplateRendition templateCode = createRendition(
-                        themeTemplate.getId(),
-                        templateMetadata.getTemplateRendition(type));
+                        themeTemplate, templateMetadata.getTemplateRendition(type));
 
                 themeTemplate.addTemplateRendition(templateCode);
 
@@ -443,7 +461,7 @@ public class SharedThemeFromDir extends SharedTheme {
         this.resources.put(normalizedPath, resource);
     }
 
-    private SharedThemeTemplateRendition createRendition(String templateId,
+    private SharedThemeTemplateRendition createRendition(SharedThemeTemplate template,
             ThemeMetadataTemplateRendition templateCodeMetadata) {
         SharedThemeTemplateRendition templateRendition = new SharedThemeTemplateRendition();
 
@@ -459,13 +477,143 @@ public class SharedThemeFromDir extends SharedTheme {
             log.error("Couldn't load stylesheet theme [" + this.getName()
                     + "] template file [" + templateFile + "]");
         }
-        //TODO: remove templateId above
         templateRendition.setTemplate(contents);
         templateRendition.setTemplateLanguage(templateCodeMetadata.getTemplateLang());
         templateRendition.setType(templateCodeMetadata.getType());
         templateRendition.setLastModified(new Date(templateFile.lastModified()));
 
+        // remember where it came from for reloadTemplateFiles()
+        String path = StringUtils.replace(templateCodeMetadata.getContentsFile(), "\\", "/");
+        this.renditionsByFile.computeIfAbsent(path, k -> new ArrayList<>())
+                .add(new TemplateFileRendition(template, templateRendition));
+
         return templateRendition;
     }
 
+    /**
+     * Re-read the template renditions whose contents are in the given files,
+     * leaving the rest of the theme as it is.  Nothing is reloaded if one of
+     * the files isn't a template contents file of this theme or can't be
+     * read, so that the caller can reload the whole theme instead.
+     *
+     * Templates and renditions being rendered are never changed, the
+     * affected ones are built again and swapped in with new lookup maps.
+     *
+     * @param paths contents file paths relative to the theme directory,
+     *            using web-style separators.
+     * @return true if the templates were reloaded.
+     */
+    synchronized boolean reloadTemplateFiles(Collection<String> paths) {
+
+        Map<String, String> contentsByPath = new HashMap<>();
+        Map<String, Date> lastModifiedByPath = new HashMap<>();
+        for (String path : paths) {
+            File file = new File(this.themeDir + File.separator + path);
+            String contents = this.renditionsByFile.containsKey(path)
+                    ? loadTemplateFile(file) : null;
+            if (contents == null) {
+                return false;
+            }
+            contentsByPath.put(path, contents);
+            lastModifiedByPath.put(path, new Date(file.lastModified()));
+        }
+
+        // a new copy of each template with a rendition in a changed file
+        Map<ThemeTemplate, SharedThemeTemplate> replaced = new IdentityHashMap<>();
+        for (String path : contentsByPath.keySet()) {
+            for (TemplateFileRendition templateFile : this.renditionsByFile.get(path)) {
+                replaced.computeIfAbsent(templateFile.template, t -> copyTemplate(templateFile.template));
+            }
+        }
+
+        // give the copies their renditions, new ones for the changed files
+        Map<String, List<TemplateFileRendition>> newRenditionsByFile = new HashMap<>();
+        for (Map.Entry<String, List<TemplateFileRendition>> entry : this.renditionsByFile.entrySet()) {
+            String contents = contentsByPath.get(entry.getKey());
+            Date lstModified = lastModifiedByPath.get(entry.getKey());
+            List<TemplateFileRendition> renditions = new ArrayList<>();
+
+            for (TemplateFileRendition templateFile : entry.getValue()) {
+                SharedThemeTemplate template = replaced.get(templateFile.template);
+                if (template == null) {
+                    renditions.add(templateFile);
+                    continue;
+                }
+
+                SharedThemeTemplateRendition rendition = templateFile.rendition;
+                if (contents != null) {
+                    rendition = new SharedThemeTemplateRendition();
+                    rendition.setTemplate(contents);
+                    rendition.setTemplateLanguage(templateFile.rendition.getTemplateLanguage());
+                    rendition.setType(templateFile.rendition.getType());
+                    rendition.setLastModified(lstModified);
+                    if (RenditionType.STANDARD.equals(rendition.getType())) {
+                        template.setContents(contents);
+                    }
+                    if (lstModified.after(template.getLastModified())) {
+                        template.setLastModified(lstModified);
+                    }
+                    log.debug("Reloaded theme [" + this.getName() + "] template file [" + entry.getKey() + "]");
+                }
+                template.addTemplateRendition(rendition);
+                renditions.add(new TemplateFileRendition(template, rendition));
+            }
+            newRenditionsByFile.put(entry.getKey(), renditions);
+        }
+
+        // swap the copies in
+        this.templatesByName = replaceTemplates(this.templatesByName, replaced);
+        this.templatesByLink = replaceTemplates(this.templatesByLink, replaced);
+        Map<ComponentType, ThemeTemplate> byAction = new EnumMap<>(ComponentType.class);
+        byAction.putAll(replaceTemplates(this.templatesByAction, replaced));
+        this.templatesByAction = byAction;
+        if (replaced.containsKey(this.stylesheet)) {
+            this.stylesheet = replaced.get(this.stylesheet);
+        }
+        this.renditionsByFile = newRenditionsByFile;
+
+        for (Date lstModified : lastModifiedByPath.values()) {
+            if (getLastModified() == null || lstModified.after(getLastModified())) {
+                setLastModified(lstModified);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * A copy of a template without its renditions.
+     */
+    private static SharedThemeTemplate copyTemplate(SharedThemeTemplate template) {
+        SharedThemeTemplate copy = new SharedThemeTemplate(template.getId(),
+                template.getAction(), template.getName(), template.getDescription(),
+                template.getContents(), template.getLink(), template.getLastModified(),
+                template.isHidden(), template.isNavbar());
+        copy.setOutputContentType(template.getOutputContentType());
+        copy.setType(template.getType());
+        return copy;
+    }
+
+    private static <K> Map<K, ThemeTemplate> replaceTemplates(Map<K, ThemeTemplate> templates,
+            Map<ThemeTemplate, SharedThemeTemplate> replaced) {
+        Map<K, ThemeTemplate> copy = new HashMap<>(templates);
+        copy.replaceAll((key, template) -> replaced.containsKey(template)
+                ? replaced.get(template) : template);
+        return copy;
+    }
+
+    /**
+     * A template rendition and the template it belongs to.
+     */
+    private static final class TemplateFileRendition {
+
+        private final SharedThemeTemplate template;
+        private final SharedThemeTemplateRendition rendition;
+
+        TemplateFileRendition(SharedThemeTemplate template, SharedThemeTemplateRendition rendition) {
+            this.template = template;
+            this.rendition = rendition;
+        }
+    }
+
 }
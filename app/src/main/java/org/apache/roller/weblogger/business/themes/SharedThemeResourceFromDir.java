@@ -18,10 +18,21 @@
 
 package org.apache.roller.weblogger.business.themes;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.CacheableResource;
 import org.apache.roller.weblogger.pojos.ThemeResource;
 
 
@@ -29,14 +40,22 @@ import org.apache.roller.weblogger.pojos.ThemeResource;
  * A FileManagerImpl specific implementation of a ThemeResource.
  *
  * ThemeResources from the FileManagerImpl are backed by a java.io.File
- * object which represents the resource on a filesystem.
+ * object which represents the resource on a filesystem.  The file is read
+ * once when the theme is loaded: its content is hashed for an entity tag and
+ * URL fingerprint and, unless larger than themes.resources.maxMemorySize, kept
+ * in memory along with a gzip encoded copy for text types.  Themes are
+ * reloaded when their files change, so the snapshot is never stale for long.
  *
  * This class is internal to the FileManagerImpl class because there should
  * not be any external classes which need to construct their own instances
  * of this class.
  */
 public class SharedThemeResourceFromDir 
-        implements ThemeResource, Serializable {
+        implements ThemeResource, CacheableResource, Serializable {
+    
+    // extensions of resources worth compressing
+    private static final Set<String> TEXT_EXTENSIONS = Set.of(
+            "css", "js", "map", "json", "svg", "xml", "html", "htm", "txt");
     
     // the physical java.io.File backing this resource
     private File resourceFile = null;
@@ -44,10 +63,65 @@ public class SharedThemeResourceFromDir
     // the relative path of the resource within the theme
     private String relativePath = null;
     
+    // snapshot of the file taken when the theme was loaded
+    private long lastModified = 0;
+    private long length = 0;
+    private String fingerprint = null;
+    private byte[] content = null;
+    private byte[] gzipContent = null;
+    
     
     public SharedThemeResourceFromDir(String path, File file) {
         relativePath = path;
         resourceFile = file;
+        load();
+    }
+    
+    
+    private void load() {
+        lastModified = resourceFile.lastModified();
+        length = resourceFile.length();
+        if (!resourceFile.isFile()) {
+            return;
+        }
+        
+        long maxMemorySize = WebloggerConfig.getIntProperty(
+                "themes.resources.maxMemorySize", 1048576);
+        try {
+            if (length <= maxMemorySize) {
+                content = Files.readAllBytes(resourceFile.toPath());
+                length = content.length;
+                fingerprint = DigestUtils.sha256Hex(content).substring(0, 16);
+                if (isText()) {
+                    gzipContent = gzip(content);
+                }
+            } else {
+                try (InputStream in = new FileInputStream(resourceFile)) {
+                    fingerprint = DigestUtils.sha256Hex(in).substring(0, 16);
+                }
+            }
+        } catch (IOException ex) {
+            // leave it to be read from disk, and fail there if it has to
+            content = null;
+            gzipContent = null;
+            fingerprint = Long.toHexString(lastModified) + Long.toHexString(length);
+        }
+    }
+    
+    
+    private boolean isText() {
+        String extension = StringUtils.substringAfterLast(resourceFile.getName(), ".");
+        return TEXT_EXTENSIONS.contains(extension.toLowerCase(Locale.ENGLISH));
+    }
+    
+    
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        // not worth it if it hardly gets smaller
+        return out.size() < bytes.length * 0.9 ? out.toByteArray() : null;
     }
     
     
@@ -77,12 +151,12 @@ public class SharedThemeResourceFromDir
     
     @Override
     public long getLastModified() {
-        return resourceFile.lastModified();
+        return lastModified;
     }
     
     @Override
     public long getLength() {
-        return resourceFile.length();
+        return length;
     }
     
     @Override
@@ -94,8 +168,39 @@ public class SharedThemeResourceFromDir
         return resourceFile.isFile();
     }
     
+    /**
+     * The file, only for resources too large to be held in memory.
+     */
+    @Override
+    public File getFile() {
+        return content == null ? resourceFile : null;
+    }
+    
+    @Override
+    public String getFingerprint() {
+        return fingerprint;
+    }
+    
+    @Override
+    public String getETag(boolean gzip) {
+        return "\"" + fingerprint + (gzip ? "-gz" : "") + "\"";
+    }
+    
+    @Override
+    public byte[] getContent() {
+        return content;
+    }
+    
+    @Override
+    public byte[] getGzipContent() {
+        return gzipContent;
+    }
+    
     @Override
     public InputStream getInputStream() {
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
         try {
             return new FileInputStream(resourceFile);
         } catch (java.io.FileNotFoundException ex) {
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.themes;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Watches the theme directories for changes when themes.reload.mode is on,
+ * so that reloading a theme doesn't mean checking every file of it on each
+ * request.
+ *
+ * A daemon thread records the paths of changed files per theme directory,
+ * which the ThemeManager picks up with drainChanges() the next time the
+ * theme is used.  If events were lost the whole theme is marked changed.
+ */
+final class ThemeDirWatcher implements Runnable {
+
+    private static Log log = LogFactory.getLog(ThemeDirWatcher.class);
+
+    /** Recorded in place of paths when the changed files are unknown. */
+    static final String ALL = "*";
+
+    private final Path themesDir;
+    private final WatchService watchService;
+
+    // watched directory of each key
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+
+    // theme directory name -> changed paths relative to it
+    private final Map<String, Set<String>> changes = new ConcurrentHashMap<>();
+
+    private Thread thread = null;
+
+
+    ThemeDirWatcher(Path themesDir) throws IOException {
+        this.themesDir = themesDir;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+
+    /**
+     * Watch a theme directory and everything below it.
+     */
+    void watch(String themeName) throws IOException {
+        register(themesDir.resolve(themeName));
+    }
+
+
+    void start() {
+        thread = new Thread(this, "ThemeDirWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+    /**
+     * Get and forget the files of a theme which changed since the last call.
+     *
+     * @return the changed paths relative to the theme directory, using
+     *         web-style separators, or an empty set if nothing changed.
+     */
+    Set<String> drainChanges(String themeName) {
+        Set<String> changed = changes.remove(themeName);
+        return changed != null ? changed : Collections.emptySet();
+    }
+
+
+    void shutdown() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.debug(e.getMessage(), e);
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+
+    @Override
+    public void run() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path dir = keys.get(key);
+            if (dir != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        record(dir, null);
+                        continue;
+                    }
+
+                    Path path = dir.resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                            && Files.isDirectory(path)) {
+                        try {
+                            register(path);
+                        } catch (IOException e) {
+                            log.warn("Unable to watch theme directory " + path, e);
+                        }
+                    }
+                    record(dir, path);
+                }
+            }
+
+            if (!key.reset()) {
+                keys.remove(key);
+            }
+        }
+    }
+
+
+    private void register(Path dir) throws IOException {
+        try (Stream<Path> dirs = Files.walk(dir)) {
+            for (Path d : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                WatchKey key = d.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                keys.put(key, d);
+            }
+        }
+    }
+
+
+    private void record(Path dir, Path changed) {
+        Path relative = themesDir.relativize(dir);
+        if (relative.getNameCount() == 0 || relative.toString().isEmpty()) {
+            return;
+        }
+        String themeName = relative.getName(0).toString();
+
+        String path = ALL;
+        if (changed != null) {
+            // editor swap and backup files
+            String name = changed.getFileName().toString();
+            if (name.startsWith(".") || name.endsWith("~")) {
+                return;
+            }
+            Path inTheme = themesDir.resolve(themeName).relativize(changed);
+            path = StringUtils.replace(inTheme.toString(), "\\", "/");
+        }
+
+        // atomic with respect to drainChanges()
+        String changedPath = path;
+        changes.compute(themeName, (k, paths) -> {
+            Set<String> updated = paths != null ? paths : new HashSet<>();
+            updated.add(changedPath);
+            return updated;
+        });
+        if (log.isDebugEnabled()) {
+            log.debug("Theme " + themeName + " changed: " + path);
+        }
+    }
+
+}
@@ -38,6 +38,11 @@ public interface ThemeManager {
      */
     void initialize() throws InitializationException;
 
+    /**
+     * Shutdown to be called on application shutdown.
+     */
+    void shutdown();
+
     /**
      * Get the Theme object with the given id.
      *
@@ -91,6 +96,10 @@ public interface ThemeManager {
      * This is a development only method which reloads theme data from themes
      * stored on the filesystem in the webapp /themes/ directory.
      *
+     * When the theme directories are being watched for changes this only
+     * rereads what changed since the last call, otherwise the whole theme is
+     * read and replaces the loaded one if it is newer.
+     *
      * @param reloadTheme
      *            the reload theme
      *
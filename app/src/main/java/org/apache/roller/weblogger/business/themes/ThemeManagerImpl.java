@@ -21,14 +21,19 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.activation.FileTypeMap;
 import javax.activation.MimetypesFileTypeMap;
@@ -38,6 +43,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.InitializationException;
 import org.apache.roller.weblogger.business.MediaFileManager;
+import org.apache.roller.weblogger.business.MultiWeblogURLStrategy;
 import org.apache.roller.weblogger.business.WeblogManager;
 import org.apache.roller.weblogger.business.Weblogger;
 import org.apache.roller.weblogger.business.WebloggerFactory;
@@ -83,6 +89,10 @@ public class ThemeManagerImpl implements ThemeManager {
 	private String themeDir = null;
 	// the Map contains ... (theme id, Theme)
 	private Map<String, SharedTheme> themes = null;
+	// persisted theme descriptors, null if disabled
+	private ThemeMetadataCache metadataCache = null;
+	// watches the theme dirs in reload mode, null if not watching
+	private ThemeDirWatcher watcher = null;
 
 	@com.google.inject.Inject
 	protected ThemeManagerImpl(Weblogger roller) {
@@ -116,11 +126,33 @@ public class ThemeManagerImpl implements ThemeManager {
 		log.debug("Initializing Theme Manager");
 
 		if (themeDir != null) {
+			String cacheDir = WebloggerConfig.getProperty("themes.metadata.cache.dir");
+			if (cacheDir != null && !cacheDir.isBlank()) {
+				this.metadataCache = new ThemeMetadataCache(new File(cacheDir));
+			}
+
 			// rather than be lazy we are going to load all themes from
 			// the disk preemptive and cache them
+			long start = System.currentTimeMillis();
 			this.themes = loadAllThemesFromDisk();
 
-			log.info("Successfully loaded " + this.themes.size() + " themes from disk.");
+			log.info("Successfully loaded " + this.themes.size() + " themes from disk in "
+					+ (System.currentTimeMillis() - start) + " ms.");
+
+			if (WebloggerConfig.getBooleanProperty("themes.reload.mode")) {
+				startWatcher();
+			}
+		}
+	}
+
+	/**
+	 * @see org.apache.roller.weblogger.business.themes.ThemeManager#shutdown()
+	 */
+    @Override
+	public void shutdown() {
+		if (watcher != null) {
+			watcher.shutdown();
+			watcher = null;
 		}
 	}
 
@@ -370,61 +402,152 @@ public class ThemeManagerImpl implements ThemeManager {
 	/**
 	 * This is a convenience method which loads all the theme data from themes
 	 * stored on the filesystem in the roller webapp /themes/ directory.
+	 *
+	 * Themes are independent of each other so they are loaded in parallel
+	 * by up to themes.load.threads threads.
 	 */
 	private Map<String, SharedTheme> loadAllThemesFromDisk() {
 
-		Map<String, SharedTheme> themeMap = new HashMap<>();
+		Map<String, SharedTheme> themeMap = new ConcurrentHashMap<>();
 
-		// first, get a list of the themes available
-		File themesdir = new File(this.themeDir);
-		FilenameFilter filter = (File dir, String name) -> {
-            File file = new File(dir.getAbsolutePath() + File.separator + name);
-            return file.isDirectory() && !file.getName().startsWith(".");
-        };
-		String[] themenames = themesdir.list(filter);
+		String[] themenames = listThemeDirs();
 
 		if (themenames == null) {
 			log.warn("No themes found!  Perhaps wrong directory for themes specified?  "
 					+ "(Check themes.dir setting in roller[-custom].properties file.)");
 		} else {
-            log.info("Loading themes from " + themesdir.getAbsolutePath() + "...");
-
-            // now go through each theme and load it into a Theme object
-            for (String themeName : themenames) {
-                try {
-                    SharedTheme theme = new SharedThemeFromDir(this.themeDir + File.separator + themeName);
-                    themeMap.put(theme.getId(), theme);
-                    log.info("Loaded theme '" + themeName + "'");
-                } catch (Exception unexpected) {
-                    // shouldn't happen, so let's learn why it did
-                    log.error("Problem processing theme '" + themeName + "':", unexpected);
+            log.info("Loading themes from " + new File(this.themeDir).getAbsolutePath() + "...");
+
+            int threads = WebloggerConfig.getIntProperty("themes.load.threads", 0);
+            if (threads <= 0) {
+                threads = Runtime.getRuntime().availableProcessors();
+            }
+            threads = Math.max(1, Math.min(threads, themenames.length));
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "ThemeLoader");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                List<Future<?>> loads = new ArrayList<>();
+                for (String themeName : themenames) {
+                    loads.add(pool.submit(() -> {
+                        try {
+                            SharedTheme theme = new SharedThemeFromDir(
+                                    this.themeDir + File.separator + themeName, metadataCache);
+                            themeMap.put(theme.getId(), theme);
+                            log.info("Loaded theme '" + themeName + "'");
+                        } catch (Exception unexpected) {
+                            // shouldn't happen, so let's learn why it did
+                            log.error("Problem processing theme '" + themeName + "':", unexpected);
+                        }
+                    }));
                 }
+                for (Future<?> load : loads) {
+                    load.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Interrupted while loading themes", e);
+            } catch (ExecutionException e) {
+                log.error("Problem loading themes", e);
+            } finally {
+                pool.shutdownNow();
             }
         }
 
 		return themeMap;
 	}
 
+	/**
+	 * The names of the theme directories, or null if the theme dir can't be
+	 * listed.
+	 */
+	private String[] listThemeDirs() {
+		File themesdir = new File(this.themeDir);
+		FilenameFilter filter = (File dir, String name) -> {
+            File file = new File(dir.getAbsolutePath() + File.separator + name);
+            return file.isDirectory() && !file.getName().startsWith(".");
+        };
+		return themesdir.list(filter);
+	}
+
+	/**
+	 * Start watching the theme directories so that changed themes are
+	 * reloaded without checking the disk on every request.  If the
+	 * directories can't be watched we fall back to the latter.
+	 */
+	private void startWatcher() {
+		String[] themenames = listThemeDirs();
+		if (themenames == null) {
+			return;
+		}
+		ThemeDirWatcher dirWatcher = null;
+		try {
+			dirWatcher = new ThemeDirWatcher(Paths.get(this.themeDir));
+			for (String themeName : themenames) {
+				dirWatcher.watch(themeName);
+			}
+			dirWatcher.start();
+			this.watcher = dirWatcher;
+			log.info("Watching " + themenames.length + " theme directories for changes");
+		} catch (IOException e) {
+			log.warn("Unable to watch theme directories, checking themes on each request instead", e);
+			if (dirWatcher != null) {
+				dirWatcher.shutdown();
+			}
+		}
+	}
+
 	/**
 	 * @see ThemeManager#reLoadThemeFromDisk(String)
 	 */
     @Override
 	public boolean reLoadThemeFromDisk(String reloadTheme) {
 
+		if (watcher == null) {
+			return reLoadWholeThemeFromDisk(reloadTheme, true);
+		}
+
+		Set<String> changed = watcher.drainChanges(reloadTheme);
+		if (changed.isEmpty()) {
+			return false;
+		}
+
+		// just the templates if only template files changed, otherwise all
+		SharedTheme loadedTheme = themes.get(reloadTheme);
+		if (loadedTheme instanceof SharedThemeFromDir
+				&& !changed.contains(ThemeDirWatcher.ALL)
+				&& ((SharedThemeFromDir) loadedTheme).reloadTemplateFiles(changed)) {
+			log.info("Reloaded " + changed + " of theme " + reloadTheme);
+			return true;
+		}
+		return reLoadWholeThemeFromDisk(reloadTheme, false);
+	}
+
+	/**
+	 * Read a theme from disk again and replace the loaded one with it.
+	 *
+	 * @param onlyIfNewer only replace the loaded theme if the files on disk
+	 *            are newer.
+	 */
+	private boolean reLoadWholeThemeFromDisk(String reloadTheme, boolean onlyIfNewer) {
+
 		boolean reloaded = false;
 
 		try {
 
             SharedTheme theme = new SharedThemeFromDir(this.themeDir + File.separator
-					+ reloadTheme);
+					+ reloadTheme, metadataCache);
 
             Theme loadedTheme = themes.get(theme.getId());
 
-            if (loadedTheme != null
-                    && theme.getLastModified().after(
-                            loadedTheme.getLastModified())) {
-                themes.remove(theme.getId());
+            if (loadedTheme != null && (!onlyIfNewer
+                    || theme.getLastModified().after(
+                            loadedTheme.getLastModified()))) {
                 themes.put(theme.getId(), theme);
+                MultiWeblogURLStrategy.clearThemeFingerprints(theme.getId());
                 reloaded = true;
             }
 
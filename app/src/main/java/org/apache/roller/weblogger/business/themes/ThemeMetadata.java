@@ -18,13 +18,16 @@
 
 package org.apache.roller.weblogger.business.themes;
 
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Represents a parsed version of a theme xml metadata descriptor.
  */
-public class ThemeMetadata {
+public class ThemeMetadata implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String id = null;
     private String name = null;
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.themes;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jdom2.JDOMException;
+
+
+/**
+ * Keeps parsed theme descriptors on disk so that themes don't have their
+ * theme.xml parsed again on every restart.
+ *
+ * Each theme directory gets one file in the cache directory holding the
+ * parsed ThemeMetadata along with the path, modification time and size of
+ * the theme.xml it came from.  An entry is only used if all three still
+ * match, otherwise the descriptor is parsed and the entry rewritten.
+ */
+final class ThemeMetadataCache {
+
+    private static Log log = LogFactory.getLog(ThemeMetadataCache.class);
+
+    private static final String DESCRIPTOR = "theme.xml";
+
+    // only our own metadata classes may be read back
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+            "org.apache.roller.weblogger.business.themes.ThemeMetadata*;"
+            + "org.apache.roller.weblogger.pojos.*;java.lang.*;java.util.*;!*");
+
+    private final File cacheDir;
+
+
+    ThemeMetadataCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+
+    /**
+     * Get the parsed descriptor of a theme, from the cache if it is current.
+     */
+    ThemeMetadata getMetadata(File themeDir)
+            throws ThemeParsingException, IOException, JDOMException {
+
+        File descriptor = new File(themeDir, DESCRIPTOR);
+        String path = descriptor.getAbsolutePath();
+        long lastModified = descriptor.lastModified();
+        long length = descriptor.length();
+
+        File cacheFile = new File(cacheDir, themeDir.getName() + ".ser");
+        if (cacheFile.isFile()) {
+            try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(cacheFile))) {
+                in.setObjectInputFilter(FILTER);
+                Entry entry = (Entry) in.readObject();
+                if (entry.matches(path, lastModified, length)) {
+                    log.debug("Using cached descriptor for " + themeDir);
+                    return entry.metadata;
+                }
+            } catch (Exception e) {
+                log.debug("Ignoring unreadable theme cache file " + cacheFile, e);
+            }
+        }
+
+        ThemeMetadata metadata;
+        try (InputStream is = new FileInputStream(descriptor)) {
+            metadata = new ThemeMetadataParser().unmarshall(is);
+        }
+
+        try {
+            write(cacheFile, new Entry(path, lastModified, length, metadata));
+        } catch (IOException e) {
+            log.warn("Unable to cache descriptor of theme " + themeDir + ": " + e.getMessage());
+        }
+
+        return metadata;
+    }
+
+
+    private void write(File cacheFile, Entry entry) throws IOException {
+
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            throw new IOException("Unable to create " + cacheDir);
+        }
+
+        // write to a temp file and move it into place so that readers,
+        // including other nodes sharing the directory, never see half a file
+        File tmp = File.createTempFile(cacheFile.getName(), ".tmp", cacheDir);
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp.toPath());
+                    ObjectOutputStream out = new ObjectOutputStream(os)) {
+                out.writeObject(entry);
+            }
+            Files.move(tmp.toPath(), cacheFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+
+    private static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String path;
+        private final long lastModified;
+        private final long length;
+        private final ThemeMetadata metadata;
+
+        Entry(String path, long lastModified, long length, ThemeMetadata metadata) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.metadata = metadata;
+        }
+
+        boolean matches(String path, long lastModified, long length) {
+            return this.path.equals(path) && this.lastModified == lastModified
+                    && this.length == length;
+        }
+    }
+
+}
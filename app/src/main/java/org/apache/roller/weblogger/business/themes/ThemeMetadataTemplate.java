@@ -18,6 +18,7 @@
 
 package org.apache.roller.weblogger.business.themes;
 
+import java.io.Serializable;
 import java.util.EnumMap;
 import org.apache.roller.weblogger.pojos.TemplateRendition.RenditionType;
 import org.apache.roller.weblogger.pojos.ThemeTemplate.ComponentType;
@@ -28,7 +29,9 @@ import java.util.Map;
 /**
  * A parsed 'template' element of a theme metadata descriptor.
  */
-public class ThemeMetadataTemplate {
+public class ThemeMetadataTemplate implements Serializable {
+
+    private static final long serialVersionUID = 1L;
     
     private ComponentType action = null;
     private String name = null;
@@ -19,10 +19,13 @@
 
 package org.apache.roller.weblogger.business.themes;
 
+import java.io.Serializable;
 import org.apache.roller.weblogger.pojos.TemplateRendition.RenditionType;
 import org.apache.roller.weblogger.pojos.TemplateRendition.TemplateLanguage;
 
-public class ThemeMetadataTemplateRendition {
+public class ThemeMetadataTemplateRendition implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private TemplateLanguage templateLang = null;
     private String contentsFile = null;
     private RenditionType type = null;
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.pojos;
+
+
+/**
+ * An immutable Resource whose content was read and hashed when it was
+ * loaded, so that it can be served with an entity tag and a fingerprinted
+ * URL without touching the disk.
+ */
+public interface CacheableResource extends Resource {
+
+    /**
+     * A short hash of the content, changes whenever the content does.
+     *
+     * @return the fingerprint, safe to use in URLs.
+     */
+    String getFingerprint();
+
+
+    /**
+     * Strong entity tag for the content, quoted as it goes in an ETag header.
+     *
+     * @param gzip true for the tag of the gzip encoded content.
+     * @return the entity tag.
+     */
+    String getETag(boolean gzip);
+
+
+    /**
+     * The content, if it is held in memory.
+     *
+     * @return the content or null if it is too large to be held in memory.
+     */
+    byte[] getContent();
+
+
+    /**
+     * The gzip encoded content, for text resources which compress well.
+     *
+     * @return the encoded content or null if there is none.
+     */
+    byte[] getGzipContent();
+
+}
@@ -40,6 +40,8 @@ public class CommentSearchCriteria {
     private int offset = 0;
     // Max comments to return (or -1 for no limit)
     private int maxResults = -1;
+    // Position to continue after, or null to start at the beginning
+    private KeysetCursor cursor;
 
     public Weblog getWeblog() {
         return weblog;
@@ -113,4 +115,15 @@ public class CommentSearchCriteria {
         this.maxResults = maxResults;
     }
 
+    /**
+     * Continue the list after this position, instead of counting off rows
+     * from the start, see KeysetCursor.  Any offset counts from the cursor.
+     */
+    public KeysetCursor getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(KeysetCursor cursor) {
+        this.cursor = cursor;
+    }
 }
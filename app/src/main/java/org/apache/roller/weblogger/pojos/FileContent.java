@@ -65,6 +65,13 @@ public class FileContent {
         return resourceFile.length();
     }
     
+    /**
+     * The underlying file, for callers that can serve it directly.
+     */
+    public File getFile() {
+        return resourceFile;
+    }
+    
     /**
      * Returns the input stream for the underlying file.
      */
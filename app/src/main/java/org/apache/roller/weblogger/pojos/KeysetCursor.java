@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.pojos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+
+/**
+ * Position in a list of entries or comments, to continue the list after
+ * without counting off the rows before it.
+ *
+ * A cursor holds the sort time and id of the last item shown.  Lists are
+ * ordered by time and then id, so the next page is simply the items on the
+ * far side of that pair, which the database finds using its indexes however
+ * deep into the list the page is.  Cursors go in URLs as opaque tokens.
+ */
+public final class KeysetCursor {
+
+    private final Date time;
+    private final String id;
+
+
+    public KeysetCursor(Date time, String id) {
+        if (time == null || id == null) {
+            throw new IllegalArgumentException("cursor needs a time and an id");
+        }
+        this.time = new Date(time.getTime());
+        this.id = id;
+    }
+
+
+    /**
+     * Cursor to continue a list of entries after the given one.
+     * @param entry last entry shown
+     * @param sortBy time the list is sorted by
+     */
+    public static KeysetCursor after(WeblogEntry entry, WeblogEntrySearchCriteria.SortBy sortBy) {
+        Date time = WeblogEntrySearchCriteria.SortBy.UPDATE_TIME.equals(sortBy)
+                ? entry.getUpdateTime() : entry.getPubTime();
+        return time != null ? new KeysetCursor(time, entry.getId()) : null;
+    }
+
+
+    /**
+     * Cursor to continue a list of comments after the given one.
+     * @param comment last comment shown
+     */
+    public static KeysetCursor after(WeblogEntryComment comment) {
+        return comment.getPostTime() != null
+                ? new KeysetCursor(comment.getPostTime(), comment.getId()) : null;
+    }
+
+
+    /**
+     * Parse a token made by toToken().
+     * @return the cursor, or null if the token is not a valid one.
+     */
+    public static KeysetCursor fromToken(String token) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = value.indexOf(':');
+            if (sep < 1 || sep == value.length() - 1) {
+                return null;
+            }
+            return new KeysetCursor(new Date(Long.parseLong(value.substring(0, sep))),
+                    value.substring(sep + 1));
+        } catch (IllegalArgumentException e) {
+            // also covers NumberFormatException, bad input
+            return null;
+        }
+    }
+
+
+    /**
+     * Opaque, URL safe form of the cursor.
+     */
+    public String toToken() {
+        String value = time.getTime() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                value.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    public Date getTime() {
+        return new Date(time.getTime());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+
+    @Override
+    public String toString() {
+        return toToken();
+    }
+
+}
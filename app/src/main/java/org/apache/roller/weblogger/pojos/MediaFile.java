@@ -333,6 +333,14 @@ public class MediaFile implements Serializable {
         this.is = is;
     }
 
+    /**
+     * The file in the file system holding the content of this media file,
+     * or null if it has not been stored yet.
+     */
+    public FileContent getContent() {
+        return content;
+    }
+
     public void setContent(FileContent content) {
         this.content = content;
     }
@@ -464,6 +472,14 @@ public class MediaFile implements Serializable {
         return null;
     }
 
+    /**
+     * The file in the file system holding the thumbnail of this media file,
+     * or null if there is none.
+     */
+    public FileContent getThumbnailContent() {
+        return thumbnail;
+    }
+
     public void setThumbnailContent(FileContent thumbnail) {
         this.thumbnail = thumbnail;
     }
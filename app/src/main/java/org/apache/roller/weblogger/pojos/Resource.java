@@ -18,6 +18,7 @@
 
 package org.apache.roller.weblogger.pojos;
 
+import java.io.File;
 import java.io.InputStream;
 
 
@@ -68,4 +69,15 @@ public interface Resource {
      */
     InputStream getInputStream();
     
+    
+    /**
+     * The file backing this resource, if it is a plain file on the local
+     * filesystem, so that it can be handed to the container to serve.
+     *
+     * @return the file or null if the resource is not backed by one.
+     */
+    default File getFile() {
+        return null;
+    }
+    
 }
@@ -31,7 +31,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
@@ -49,7 +48,7 @@ import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.UserManager;
 import org.apache.roller.weblogger.business.WeblogEntryManager;
 import org.apache.roller.weblogger.business.WebloggerFactory;
-import org.apache.roller.weblogger.business.plugins.entry.WeblogEntryPlugin;
+import org.apache.roller.weblogger.business.plugins.entry.TransformedTextCache;
 import org.apache.roller.weblogger.config.WebloggerConfig;
 import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
 import org.apache.roller.weblogger.util.HTMLSanitizer;
@@ -90,6 +89,9 @@ public class WeblogEntry implements Serializable {
     private String    creatorUserName = null;      
     private String    searchDescription = null;
 
+    // number of approved comments, kept up to date by the WeblogEntryManager
+    private int       commentCount  = 0;
+
     // set to true when switching between pending/draft/scheduled and published
     // either the aggregate table needs the entry's tags added (for published)
     // or subtracted (anything else)
@@ -733,8 +735,19 @@ public class WeblogEntry implements Serializable {
         return Collections.emptyList();
     }
     
+    /**
+     * Number of approved comments on this entry.
+     */
     public int getCommentCount() {
-        return getComments(true, true).size();
+        return commentCount;
+    }
+
+    /**
+     * Number of approved comments on this entry.  Only the WeblogEntryManager
+     * should set this, the stored count is never written by saving the entry.
+     */
+    public void setCommentCount(int commentCount) {
+        this.commentCount = commentCount;
     }
     
     //------------------------------------------------------------------------
@@ -894,14 +907,14 @@ public class WeblogEntry implements Serializable {
      * Get entry text, transformed by plugins enabled for entry.
      */
     public String getTransformedText() {
-        return render(getText());
+        return render(getText(), TransformedTextCache.TEXT);
     }
 
     /**
      * Get entry summary, transformed by plugins enabled for entry.
      */
     public String getTransformedSummary() {
-        return render(getSummary());
+        return render(getSummary(), TransformedTextCache.SUMMARY);
     }
 
     /**
@@ -936,35 +949,33 @@ public class WeblogEntry implements Serializable {
         return author || (limited && (status == PubStatus.DRAFT || status == PubStatus.PENDING));
     }
     
+    /**
+     * Transform string based on plugins enabled for this weblog entry,
+     * reusing a previously transformed value when nothing has changed.
+     */
+    private String render(String str, String field) {
+        if (str == null) {
+            return null;
+        }
+
+        TransformedTextCache cache = TransformedTextCache.getInstance();
+        String cacheKey = cache.isEnabled() ? cache.generateKey(this, field, str) : null;
+        String cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        String ret = transform(str);
+        cache.put(cacheKey, ret);
+        return ret;
+    }
+
     /**
      * Transform string based on plugins enabled for this weblog entry.
      */
-    private String render(String str) {
-        String ret = str;
+    private String transform(String str) {
         mLogger.debug("Applying page plugins to string");
-        Map<String, WeblogEntryPlugin> inPlugins = getWebsite().getInitializedPlugins();
-        if (str != null && inPlugins != null) {
-            List<String> entryPlugins = getPluginsList();
-            
-            // if no Entry plugins, don't bother looping.
-            if (entryPlugins != null && !entryPlugins.isEmpty()) {
-                
-                // now loop over mPagePlugins, matching
-                // against Entry plugins (by name):
-                // where a match is found render Plugin.
-                for (Map.Entry<String, WeblogEntryPlugin> entry : inPlugins.entrySet()) {
-                    if (entryPlugins.contains(entry.getKey())) {
-                        WeblogEntryPlugin pagePlugin = entry.getValue();
-                        try {
-                            ret = pagePlugin.render(this, ret);
-                        } catch (Exception e) {
-                            mLogger.error("ERROR from plugin: " + pagePlugin.getName(), e);
-                        }
-                    }
-                }
-            }
-        } 
-        return HTMLSanitizer.conditionallySanitize(ret);
+        return WebloggerFactory.getWeblogger().getPluginManager().applyWeblogEntryPlugins(this, str);
     }
     
     
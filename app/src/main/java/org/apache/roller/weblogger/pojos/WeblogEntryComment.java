@@ -50,6 +50,9 @@ public class WeblogEntryComment implements Serializable {
     private String    plugins = null;
     private String    contentType = "text/plain";
 
+    // status as last loaded or saved, to tell which status changes on save
+    private ApprovalStatus savedStatus = null;
+
     // associations
     private WeblogEntry weblogEntry = null;
     
@@ -175,6 +178,23 @@ public class WeblogEntryComment implements Serializable {
     public void setStatus(ApprovalStatus status) {
         this.status = status;
     }
+
+
+    /**
+     * Status of the comment as it was last loaded or saved, or null for a
+     * new comment.
+     */
+    public ApprovalStatus getSavedStatus() {
+        return savedStatus;
+    }
+
+    /**
+     * Record the current status as saved, called when the comment is loaded
+     * and by the WeblogEntryManager when it is saved.
+     */
+    public void updateSavedStatus() {
+        this.savedStatus = status;
+    }
     
     
     /**
@@ -54,6 +54,8 @@ public class WeblogEntrySearchCriteria {
     private int offset = 0;
 
     private int maxResults = -1;
+    // Position to continue after, or null to start at the beginning
+    private KeysetCursor cursor;
 
     public Weblog getWeblog() {
         return weblog;
@@ -159,4 +161,15 @@ public class WeblogEntrySearchCriteria {
         this.maxResults = maxResults;
     }
 
+    /**
+     * Continue the list after this position, instead of counting off rows
+     * from the start, see KeysetCursor.  Any offset counts from the cursor.
+     */
+    public KeysetCursor getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(KeysetCursor cursor) {
+        this.cursor = cursor;
+    }
 }
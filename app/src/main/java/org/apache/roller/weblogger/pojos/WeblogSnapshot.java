@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.pojos;
+
+import java.util.Date;
+import java.util.Locale;
+import org.apache.roller.weblogger.util.I18nUtils;
+
+
+/**
+ * Immutable copy of the few weblog properties needed to answer a request
+ * from the rendering caches: freshness checks, cache keys and whether the
+ * weblog may be shown at all.
+ *
+ * Snapshots are kept by the WeblogManager, which replaces them when the
+ * weblog is saved, so that a cached page or feed can be served without
+ * loading the weblog itself.
+ */
+public final class WeblogSnapshot {
+
+    private final String id;
+    private final String handle;
+    private final long lastModified;
+    private final boolean active;
+    private final boolean visible;
+    private final String locale;
+    private final String timeZone;
+    private final String editorTheme;
+
+
+    public WeblogSnapshot(Weblog weblog) {
+        this.id = weblog.getId();
+        this.handle = weblog.getHandle();
+        this.lastModified = weblog.getLastModified() != null
+                ? weblog.getLastModified().getTime() : 0;
+        this.active = Boolean.TRUE.equals(weblog.getActive());
+        this.visible = Boolean.TRUE.equals(weblog.getVisible());
+        this.locale = weblog.getLocale();
+        this.timeZone = weblog.getTimeZone();
+        this.editorTheme = weblog.getEditorTheme();
+    }
+
+
+    public String getId() {
+        return id;
+    }
+
+    public String getHandle() {
+        return handle;
+    }
+
+    /**
+     * Last time the weblog was saved, or null if it never was.
+     */
+    public Date getLastModified() {
+        return lastModified != 0 ? new Date(lastModified) : null;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public String getLocale() {
+        return locale;
+    }
+
+    public Locale getLocaleInstance() {
+        return I18nUtils.toLocale(locale);
+    }
+
+    public String getTimeZone() {
+        return timeZone;
+    }
+
+    public String getEditorTheme() {
+        return editorTheme;
+    }
+
+
+    @Override
+    public String toString() {
+        return "WeblogSnapshot{" + handle + ", lastModified=" + lastModified + "}";
+    }
+
+}
@@ -46,6 +46,7 @@ import org.apache.roller.weblogger.ui.core.plugins.UIPluginManager;
 import org.apache.roller.weblogger.ui.core.plugins.UIPluginManagerImpl;
 import org.apache.roller.weblogger.ui.core.security.AutoProvision;
 import org.apache.roller.weblogger.util.Reflection;
+import org.apache.roller.weblogger.ui.rendering.util.cache.StartupCacheWarmup;
 import org.apache.roller.weblogger.util.cache.CacheManager;
 import org.apache.velocity.runtime.RuntimeSingleton;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
@@ -197,6 +198,11 @@ public class RollerContext extends ContextLoaderListener
             log.fatal("Error initializing Roller Weblogger web tier", ex);
         }
 
+        // warm up rendering caches in the background
+        if (WebloggerFactory.isBootstrapped()) {
+            StartupCacheWarmup.start();
+        }
+
     }
 
 
@@ -205,6 +211,7 @@ public class RollerContext extends ContextLoaderListener
      */
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
+        StartupCacheWarmup.stop();
         WebloggerFactory.getWeblogger().shutdown();
         // do we need a more generic mechanism for presentation layer shutdown?
         CacheManager.shutdown();
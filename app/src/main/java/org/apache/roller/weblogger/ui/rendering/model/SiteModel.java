@@ -28,6 +28,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.business.SiteStatsCache;
 import org.apache.roller.weblogger.business.URLStrategy;
 import org.apache.roller.weblogger.business.Weblogger;
 import org.apache.roller.weblogger.business.WebloggerFactory;
@@ -287,9 +288,7 @@ public class SiteModel implements Model {
      */
     public Map<String, Long> getUserNameLetterMap() {
         try {
-            Weblogger roller = WebloggerFactory.getWeblogger();
-            UserManager umgr = roller.getUserManager();
-            return umgr.getUserNameLetterMap();
+            return SiteStatsCache.getInstance().getStats().getUserNameLetterMap();
         } catch (Exception e) {
             log.error("ERROR: fetching username letter map", e);
         }
@@ -304,7 +303,7 @@ public class SiteModel implements Model {
      */
     public Map<String, Long> getWeblogHandleLetterMap() {
         try {
-            return WebloggerFactory.getWeblogger().getWeblogManager().getWeblogHandleLetterMap();
+            return SiteStatsCache.getInstance().getStats().getWeblogHandleLetterMap();
         } catch (Exception e) {
             log.error("ERROR: fetching weblog handle letter map", e);
         }
@@ -505,6 +504,7 @@ public class SiteModel implements Model {
             Weblogger roller = WebloggerFactory.getWeblogger();
             WeblogEntryManager wmgr = roller.getWeblogEntryManager();
             List<WeblogEntry> weblogEntries = wmgr.getWeblogEntriesPinnedToMain(length);
+            wmgr.prefetchWeblogEntries(weblogEntries);
             for (WeblogEntry entry : weblogEntries) {
                 results.add(WeblogEntryWrapper.wrap(entry, urlStrategy));
             }
@@ -543,9 +543,7 @@ public class SiteModel implements Model {
     public long getCommentCount() {
         long count = 0;
         try {
-            Weblogger roller = WebloggerFactory.getWeblogger();
-            WeblogEntryManager mgr = roller.getWeblogEntryManager();
-            count = mgr.getCommentCount();            
+            count = SiteStatsCache.getInstance().getStats().getCommentCount();
         } catch (WebloggerException e) {
             log.error("Error getting comment count for site ", e);
         }
@@ -556,9 +554,7 @@ public class SiteModel implements Model {
     public long getEntryCount() {
         long count = 0;
         try {
-            Weblogger roller = WebloggerFactory.getWeblogger();
-            WeblogEntryManager mgr = roller.getWeblogEntryManager();
-            count = mgr.getEntryCount();            
+            count = SiteStatsCache.getInstance().getStats().getEntryCount();
         } catch (WebloggerException e) {
             log.error("Error getting entry count for site", e);
         }
@@ -569,7 +565,7 @@ public class SiteModel implements Model {
     public long getWeblogCount() {
         long count = 0;
         try {
-            count = WebloggerFactory.getWeblogger().getWeblogManager().getWeblogCount();            
+            count = SiteStatsCache.getInstance().getStats().getWeblogCount();
         } catch (WebloggerException e) {
             log.error("Error getting weblog count for site", e);
         }
@@ -580,9 +576,7 @@ public class SiteModel implements Model {
     public long getUserCount() {
         long count = 0;
         try {
-            Weblogger roller = WebloggerFactory.getWeblogger();
-            UserManager mgr = roller.getUserManager();
-            count = mgr.getUserCount();            
+            count = SiteStatsCache.getInstance().getStats().getUserCount();
         } catch (WebloggerException e) {
             log.error("Error getting user count for site", e);
         }
@@ -20,14 +20,19 @@ package org.apache.roller.weblogger.ui.rendering.pagers;
 
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
 import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
 import org.apache.roller.util.DateUtil;
 import org.apache.roller.weblogger.business.URLStrategy;
 import org.apache.roller.weblogger.util.I18nMessages;
@@ -183,6 +188,19 @@ public abstract class AbstractWeblogEntriesPager implements WeblogEntriesPager {
     }
     
     
+    /**
+     * Load what templates read from the entries of a page in bulk, before
+     * they are wrapped.
+     */
+    protected void prefetch(Map<Date, List<WeblogEntry>> entryMap) throws WebloggerException {
+        List<WeblogEntry> all = new ArrayList<>();
+        for (List<WeblogEntry> day : entryMap.values()) {
+            all.addAll(day);
+        }
+        WebloggerFactory.getWeblogger().getWeblogEntryManager().prefetchWeblogEntries(all);
+    }
+    
+    
     /**
      * Parse data as either 6-char or 8-char format.
      */
@@ -130,6 +130,7 @@ public class WeblogEntriesDayPager extends AbstractWeblogEntriesPager {
                 wesc.setMaxResults(length+1);
                 Map<Date, List<WeblogEntry>> mmap =
                         WebloggerFactory.getWeblogger().getWeblogEntryManager().getWeblogEntryObjectMap(wesc);
+                prefetch(mmap);
 
                 // need to wrap pojos
                 int count = 0;
@@ -28,6 +28,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.business.URLStrategy;
 import org.apache.roller.weblogger.business.WebloggerFactory;
+import org.apache.roller.weblogger.pojos.KeysetCursor;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.WeblogEntrySearchCriteria;
@@ -47,6 +48,12 @@ public class WeblogEntriesLatestPager extends AbstractWeblogEntriesPager {
     // are there more pages?
     private boolean more = false;
     
+    // token of the cursor this page continues after, or null
+    private String cursor = null;
+    
+    // token of the cursor the next page continues after
+    private String nextCursor = null;
+    
     
     public WeblogEntriesLatestPager(
             URLStrategy        strat,
@@ -59,7 +66,28 @@ public class WeblogEntriesLatestPager extends AbstractWeblogEntriesPager {
             List<String>       tags,
             int                page) {
         
+        this(strat, weblog, locale, pageLink, entryAnchor, dateString, catName, tags, page, null);
+    }
+    
+    
+    /**
+     * @param cursor token of the KeysetCursor to continue after, instead of
+     *               counting off the entries of the pages before
+     */
+    public WeblogEntriesLatestPager(
+            URLStrategy        strat,
+            Weblog             weblog,
+            String             locale,
+            String             pageLink,
+            String             entryAnchor,
+            String             dateString,
+            String             catName,
+            List<String>       tags,
+            int                page,
+            String             cursor) {
+        
         super(strat, weblog, locale, pageLink, entryAnchor, dateString, catName, tags, page);
+        this.cursor = cursor;
         
         // initialize the pager collection
         getEntries();
@@ -79,19 +107,27 @@ public class WeblogEntriesLatestPager extends AbstractWeblogEntriesPager {
                 wesc.setTags(tags);
                 wesc.setStatus(WeblogEntry.PubStatus.PUBLISHED);
                 wesc.setLocale(locale);
-                wesc.setOffset(offset);
+                KeysetCursor after = KeysetCursor.fromToken(cursor);
+                if (after != null) {
+                    wesc.setCursor(after);
+                } else {
+                    wesc.setOffset(offset);
+                }
                 wesc.setMaxResults(length+1);
                 Map<Date, List<WeblogEntry>> mmap = WebloggerFactory.getWeblogger().getWeblogEntryManager().getWeblogEntryObjectMap(wesc);
+                prefetch(mmap);
 
                 // need to wrap pojos
                 int count = 0;
+                WeblogEntry last = null;
                 for (Map.Entry<Date, List<WeblogEntry>> entry : mmap.entrySet()) {
                     // now we need to go through each entry in a day and wrap
                     List<WeblogEntryWrapper> wrapped = new ArrayList<>();
                     List<WeblogEntry> unwrapped = entry.getValue();
                     for (int i=0; i < unwrapped.size(); i++) {
                         if (count++ < length) {
-                            wrapped.add(i,WeblogEntryWrapper.wrap(unwrapped.get(i), urlStrategy));
+                            last = unwrapped.get(i);
+                            wrapped.add(i,WeblogEntryWrapper.wrap(last, urlStrategy));
                         } else {
                             more = true;
                         }
@@ -102,6 +138,11 @@ public class WeblogEntriesLatestPager extends AbstractWeblogEntriesPager {
                         entries.put(entry.getKey(), wrapped);
                     }
                 }
+                
+                if (more && last != null) {
+                    KeysetCursor next = KeysetCursor.after(last, WeblogEntrySearchCriteria.SortBy.PUBLICATION_TIME);
+                    nextCursor = next != null ? next.toToken() : null;
+                }
             } catch (Exception e) {
                 log.error("ERROR: getting entry month map", e);
             }
@@ -116,4 +157,19 @@ public class WeblogEntriesLatestPager extends AbstractWeblogEntriesPager {
         return more;
     }
     
+    
+    /**
+     * Next page continues after the last entry of this one, so deep pages
+     * cost no more to render than the first.  The page number stays in the
+     * link for the previous link and for caching.
+     */
+    @Override
+    public String getNextLink() {
+        String link = super.getNextLink();
+        if (link != null && nextCursor != null) {
+            link += (link.contains("?") ? "&" : "?") + "cursor=" + nextCursor;
+        }
+        return link;
+    }
+    
 }
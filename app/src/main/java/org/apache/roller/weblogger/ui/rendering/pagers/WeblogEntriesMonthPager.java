@@ -120,6 +120,7 @@ public class WeblogEntriesMonthPager extends AbstractWeblogEntriesPager {
                 wesc.setMaxResults(length+1);
                 Map<Date, List<WeblogEntry>> mmap = WebloggerFactory.getWeblogger()
                         .getWeblogEntryManager().getWeblogEntryObjectMap(wesc);
+                prefetch(mmap);
 
                 // need to wrap pojos
                 int count = 0;
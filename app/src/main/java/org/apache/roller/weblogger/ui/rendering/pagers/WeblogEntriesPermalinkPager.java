@@ -75,6 +75,7 @@ public class WeblogEntriesPermalinkPager extends AbstractWeblogEntriesPager {
                 WeblogEntryManager wmgr = roller.getWeblogEntryManager();
                 currEntry = wmgr.getWeblogEntryByAnchor(weblog, entryAnchor);
                 if (currEntry != null && currEntry.getStatus().equals(PubStatus.PUBLISHED)) {
+                    wmgr.prefetchWeblogEntries(List.of(currEntry));
                     entries = Map.of(new Date(currEntry.getPubTime().getTime()), List.of(WeblogEntryWrapper.wrap(currEntry, urlStrategy)));
                 }
             } catch (Exception e) {
@@ -37,7 +37,7 @@ import org.apache.roller.util.RollerConstants;
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.config.WebloggerConfig;
 import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
-import org.apache.roller.weblogger.business.search.IndexManager;
+import org.apache.roller.weblogger.business.EntryChangeQueue;
 import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.business.WeblogEntryManager;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment;
@@ -58,7 +58,6 @@ import org.apache.roller.weblogger.util.RollerMessages;
 import org.apache.roller.weblogger.util.RollerMessages.RollerMessage;
 import org.apache.roller.weblogger.util.URLUtilities;
 import org.apache.roller.weblogger.util.Utilities;
-import org.apache.roller.weblogger.util.cache.CacheManager;
 
 /**
  * The CommentServlet handles all incoming weblog entry comment posts.
@@ -377,22 +376,9 @@ public class CommentServlet extends HttpServlet {
                             messageUtils, notifySubscribers);
 
                     // only re-index/invalidate the cache if comment isn't
-                    // moderated
+                    // moderated, re-indexing happens asynchronously
                     if (!weblog.getCommentModerationRequired()) {
-                        IndexManager manager = WebloggerFactory.getWeblogger()
-                                .getIndexManager();
-
-                        // remove entry before (re)adding it, or in case it
-                        // isn't Published
-                        manager.removeEntryIndexOperation(entry);
-
-                        // if published, index the entry
-                        if (entry.isPublished()) {
-                            manager.addEntryIndexOperation(entry);
-                        }
-
-                        // Clear all caches associated with comment
-                        CacheManager.invalidate(comment);
+                        EntryChangeQueue.getInstance().entryChanged(entry, comment);
                     }
 
                     // comment was successful, clear the comment form
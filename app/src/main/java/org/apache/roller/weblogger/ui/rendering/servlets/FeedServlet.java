@@ -38,6 +38,7 @@ import org.apache.roller.weblogger.pojos.StaticTemplate;
 import org.apache.roller.weblogger.pojos.Template;
 import org.apache.roller.weblogger.pojos.TemplateRendition.TemplateLanguage;
 import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogSnapshot;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogFeedRequest;
 import org.apache.roller.weblogger.util.cache.CachedContent;
 import org.apache.roller.weblogger.ui.rendering.Renderer;
@@ -60,6 +61,12 @@ public class FeedServlet extends HttpServlet {
     private WeblogFeedCache weblogFeedCache = null;
     private SiteWideCache siteWideCache = null;
 
+    // stream rendered feeds to the client while they are captured for the cache
+    private boolean streamRendering = true;
+
+    // bytes held back before streaming starts, smaller output is sent whole
+    private int streamThreshold = RollerConstants.TWENTYFOUR_KB_IN_BYTES;
+
 
     /**
      * Init method for this servlet
@@ -76,6 +83,10 @@ public class FeedServlet extends HttpServlet {
 
         // get a reference to the site wide cache
         this.siteWideCache = SiteWideCache.getInstance();
+
+        streamRendering = WebloggerConfig.getBooleanProperty("rendering.streaming.enabled", true);
+        streamThreshold = WebloggerConfig.getIntProperty("rendering.streaming.threshold",
+                RollerConstants.TWENTYFOUR_KB_IN_BYTES);
     }
 
 
@@ -88,7 +99,9 @@ public class FeedServlet extends HttpServlet {
 
         log.debug("Entering");
 
-        Weblog weblog;
+        // the weblog itself is only loaded if the feed has to be rendered,
+        // cached feeds are served using the snapshot
+        WeblogSnapshot snapshot;
         boolean isSiteWide;
 
         WeblogFeedRequest feedRequest;
@@ -96,8 +109,8 @@ public class FeedServlet extends HttpServlet {
             // parse the incoming request and extract the relevant data
             feedRequest = new WeblogFeedRequest(request);
 
-            weblog = feedRequest.getWeblog();
-            if (weblog == null) {
+            snapshot = feedRequest.getWeblogSnapshot();
+            if (snapshot == null || !snapshot.isVisible()) {
                 throw new WebloggerException("unable to lookup weblog: "
                         + feedRequest.getWeblogHandle());
             }
@@ -117,8 +130,8 @@ public class FeedServlet extends HttpServlet {
         long lastModified = System.currentTimeMillis();
         if (isSiteWide) {
             lastModified = siteWideCache.getLastModified().getTime();
-        } else if (weblog.getLastModified() != null) {
-            lastModified = weblog.getLastModified().getTime();
+        } else if (snapshot.getLastModified() != null) {
+            lastModified = snapshot.getLastModified().getTime();
         }
 
         // Respond with 304 Not Modified if it is not modified.
@@ -177,6 +190,16 @@ public class FeedServlet extends HttpServlet {
             log.debug("MISS " + cacheKey);
         }
 
+        Weblog weblog = feedRequest.getWeblog();
+        if (weblog == null) {
+            // hidden or removed since the snapshot was taken
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
         // validation. make sure that request input makes sense.
         boolean invalid = false;
         if (feedRequest.getLocale() != null
@@ -304,32 +327,42 @@ public class FeedServlet extends HttpServlet {
             return;
         }
 
-        // render content. use default size of 24K for a standard page
-        CachedContent rendererOutput = new CachedContent(RollerConstants.TWENTYFOUR_KB_IN_BYTES);
+        // render content. use default size of 24K for a standard page, when
+        // streaming the output goes to the client as it is produced once it
+        // grows past the threshold
+        CachedContent rendererOutput;
+        if (streamRendering) {
+            rendererOutput = new CachedContent(RollerConstants.TWENTYFOUR_KB_IN_BYTES,
+                    null, response.getOutputStream(), streamThreshold);
+        } else {
+            rendererOutput = new CachedContent(RollerConstants.TWENTYFOUR_KB_IN_BYTES);
+        }
         try {
             log.debug("Doing rendering");
             renderer.render(model, rendererOutput.getCachedWriter());
 
             // flush rendered output and close
-            rendererOutput.flush();
             rendererOutput.close();
         } catch (Exception e) {
             // bummer, error during rendering
             log.error("Error during rendering for page " + pageId, e);
 
+            // nothing has reached the client unless the output grew past the
+            // streaming threshold, in which case all we can do is stop
             if (!response.isCommitted()) {
                 response.reset();
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
             }
-            response.sendError(HttpServletResponse.SC_NOT_FOUND);
             return;
         }
 
         // post rendering process
-
-        // flush rendered content to response
-        log.debug("Flushing response output");
-        response.setContentLength(rendererOutput.getContent().length);
-        response.getOutputStream().write(rendererOutput.getContent());
+        if (!rendererOutput.isPassedThrough()) {
+            // flush rendered content to response
+            log.debug("Flushing response output");
+            response.setContentLength(rendererOutput.getContent().length);
+            response.getOutputStream().write(rendererOutput.getContent());
+        }
 
         // cache rendered content. only cache if user is not logged in?
         log.debug("PUT " + cacheKey);
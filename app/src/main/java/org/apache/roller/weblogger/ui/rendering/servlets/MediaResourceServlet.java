@@ -19,8 +19,6 @@
 package org.apache.roller.weblogger.ui.rendering.servlets;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -30,12 +28,14 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.roller.util.RollerConstants;
 import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.business.ImageDerivativeQueue;
 import org.apache.roller.weblogger.business.MediaFileManager;
 import org.apache.roller.weblogger.business.WebloggerFactory;
+import org.apache.roller.weblogger.pojos.FileContent;
 import org.apache.roller.weblogger.pojos.MediaFile;
 import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.ui.rendering.util.FileResponseUtil;
 import org.apache.roller.weblogger.ui.rendering.util.ModDateHeaderUtil;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogMediaResourceRequest;
 
@@ -89,7 +89,6 @@ public class MediaResourceServlet extends HttpServlet {
         }
 
         long resourceLastMod;
-        InputStream resourceStream = null;
         MediaFile mediaFile;
 
         try {
@@ -104,6 +103,38 @@ public class MediaResourceServlet extends HttpServlet {
             return;
         }
 
+        // pick the file to send, falling back to the original if the
+        // requested size is unknown or has not been generated yet
+        FileContent content = null;
+        String contentType = null;
+        String size = resourceRequest.isThumbnail()
+                ? ImageDerivativeQueue.THUMBNAIL : resourceRequest.getSize();
+        if (size != null && ImageDerivativeQueue.getInstance().isSize(size)) {
+            try {
+                content = WebloggerFactory.getWeblogger().getFileContentManager()
+                        .getFileContent(mediaFile.getWeblog(),
+                                ImageDerivativeQueue.getFileId(mediaFile.getId(), size));
+                contentType = ImageDerivativeQueue.getContentType(mediaFile, size);
+            } catch (Exception e) {
+                log.debug("No " + size + " image for " + mediaFile.getId());
+            }
+        }
+
+        if (content == null) {
+            content = mediaFile.getContent();
+            contentType = mediaFile.getContentType();
+        }
+
+        if (content == null || !content.getFile().isFile()) {
+            log.debug("No file for media file " + mediaFile.getId());
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // a derivative generated after the media file was last updated
+        // must not be answered with Not Modified
+        resourceLastMod = Math.max(resourceLastMod, content.getLastModified());
+
         // Respond with 304 Not Modified if it is not modified.
         if (ModDateHeaderUtil.respondIfNotModified(request, response,
                 resourceLastMod, resourceRequest.getDeviceType())) {
@@ -114,49 +145,17 @@ public class MediaResourceServlet extends HttpServlet {
                     resourceRequest.getDeviceType());
         }
 
-        // set the content type based on whatever is in our web.xml mime defs
-        if (resourceRequest.isThumbnail()) {
-            response.setContentType("image/png");
-            try {
-                resourceStream = mediaFile.getThumbnailInputStream();
-            } catch (Exception e) {
-                if (log.isDebugEnabled()) {
-                    log.debug(
-                            "ERROR loading thumbnail for " + mediaFile.getId(),
-                            e);
-                } else {
-                    log.warn("ERROR loading thumbnail for " + mediaFile.getId());
-                }
-            }
-        }
-
-        if (resourceStream == null) {
-            response.setContentType(mediaFile.getContentType());
-            resourceStream = mediaFile.getInputStream();
-        }
-
-        OutputStream out;
         try {
             // ok, lets serve up the file
-            byte[] buf = new byte[RollerConstants.EIGHT_KB_IN_BYTES];
-            int length;
-            out = response.getOutputStream();
-            while ((length = resourceStream.read(buf)) > 0) {
-                out.write(buf, 0, length);
-            }
+            FileResponseUtil.sendFile(request, response, content.getFile(),
+                    contentType, resourceLastMod);
 
-            // close output stream
-            out.close();
-
-        } catch (Exception ex) {
-            log.error("ERROR", ex);
+        } catch (IOException ex) {
+            log.debug("ERROR sending media file " + mediaFile.getId(), ex);
             if (!response.isCommitted()) {
                 response.reset();
                 response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             }
-        } finally {
-            // make sure stream to resource file is closed
-            resourceStream.close();
         }
 
     }
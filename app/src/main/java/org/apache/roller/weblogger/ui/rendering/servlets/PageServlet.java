@@ -38,6 +38,7 @@ import org.apache.roller.weblogger.pojos.ThemeTemplate;
 import org.apache.roller.weblogger.pojos.ThemeTemplate.ComponentType;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogSnapshot;
 import org.apache.roller.weblogger.pojos.WeblogTheme;
 import org.apache.roller.weblogger.ui.core.RollerContext;
 import org.apache.roller.weblogger.ui.rendering.Renderer;
@@ -49,6 +50,7 @@ import org.apache.roller.weblogger.ui.rendering.util.WeblogEntryCommentForm;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogPageRequest;
 import org.apache.roller.weblogger.ui.rendering.util.cache.SiteWideCache;
 import org.apache.roller.weblogger.ui.rendering.util.cache.WeblogPageCache;
+import org.apache.roller.weblogger.ui.rendering.velocity.VelocityTemplateCache;
 import org.apache.roller.weblogger.util.BannedwordslistChecker;
 import org.apache.roller.weblogger.util.I18nMessages;
 import org.apache.roller.weblogger.util.cache.CachedContent;
@@ -83,6 +85,12 @@ public class PageServlet extends HttpServlet {
     // Development theme reloading
     Boolean themeReload = false;
 
+    // stream rendered pages to the client while they are captured for the cache
+    private boolean streamRendering = true;
+
+    // bytes held back before streaming starts, smaller output is sent whole
+    private int streamThreshold = RollerConstants.TWENTYFOUR_KB_IN_BYTES;
+
     /**
      * Init method for this servlet
      */
@@ -127,6 +135,10 @@ public class PageServlet extends HttpServlet {
 
         // Development theme reloading
         themeReload = WebloggerConfig.getBooleanProperty("themes.reload.mode");
+
+        streamRendering = WebloggerConfig.getBooleanProperty("rendering.streaming.enabled", true);
+        streamThreshold = WebloggerConfig.getIntProperty("rendering.streaming.threshold",
+                RollerConstants.TWENTYFOUR_KB_IN_BYTES);
     }
 
     /**
@@ -154,15 +166,17 @@ public class PageServlet extends HttpServlet {
             }
         }
 
-        Weblog weblog;
+        // the weblog itself is only loaded if the page has to be rendered,
+        // cached pages are served using the snapshot
+        WeblogSnapshot snapshot;
         boolean isSiteWide;
 
         WeblogPageRequest pageRequest;
         try {
             pageRequest = new WeblogPageRequest(request);
 
-            weblog = pageRequest.getWeblog();
-            if (weblog == null) {
+            snapshot = pageRequest.getWeblogSnapshot();
+            if (snapshot == null || !snapshot.isVisible()) {
                 throw new WebloggerException("unable to lookup weblog: "
                         + pageRequest.getWeblogHandle());
             }
@@ -181,8 +195,8 @@ public class PageServlet extends HttpServlet {
         long lastModified = System.currentTimeMillis();
         if (isSiteWide) {
             lastModified = siteWideCache.getLastModified().getTime();
-        } else if (weblog.getLastModified() != null) {
-            lastModified = weblog.getLastModified().getTime();
+        } else if (snapshot.getLastModified() != null) {
+            lastModified = snapshot.getLastModified().getTime();
         }
 
         // 304 Not Modified handling.
@@ -209,22 +223,26 @@ public class PageServlet extends HttpServlet {
 
         // Development only. Reload if theme has been modified
         if (themeReload
-                && !weblog.getEditorTheme().equals(WeblogTheme.CUSTOM)
+                && !snapshot.getEditorTheme().equals(WeblogTheme.CUSTOM)
                 && (pageRequest.getPathInfo() == null || pageRequest
                         .getPathInfo() != null
                         && !pageRequest.getPathInfo().endsWith(".css"))) {
             try {
                 ThemeManager manager = WebloggerFactory.getWeblogger()
                         .getThemeManager();
-                boolean reloaded = manager.reLoadThemeFromDisk(weblog
+                boolean reloaded = manager.reLoadThemeFromDisk(snapshot
                         .getEditorTheme());
                 if (reloaded) {
+                    VelocityTemplateCache templateCache = VelocityTemplateCache.getInstance();
+                    if (templateCache != null) {
+                        templateCache.invalidateTheme(snapshot.getEditorTheme());
+                    }
                     if (isSiteWide) {
                         siteWideCache.clear();
                     } else {
                         weblogPageCache.clear();
                     }
-                    I18nMessages.reloadBundle(weblog.getLocaleInstance());
+                    I18nMessages.reloadBundle(snapshot.getLocaleInstance());
                 }
 
             } catch (Exception ex) {
@@ -252,7 +270,7 @@ public class PageServlet extends HttpServlet {
                 if (!isSiteWide
                         && (pageRequest.isWebsitePageHit() || pageRequest
                                 .isOtherPageHit())) {
-                    this.processHit(weblog);
+                    this.processHit(snapshot.getHandle());
                 }
 
                 response.setContentLength(cachedContent.getContent().length);
@@ -264,6 +282,16 @@ public class PageServlet extends HttpServlet {
             }
         }
 
+        Weblog weblog = pageRequest.getWeblog();
+        if (weblog == null) {
+            // hidden or removed since the snapshot was taken
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
         log.debug("Looking for template to use for rendering");
 
         // figure out what template to use
@@ -415,7 +443,7 @@ public class PageServlet extends HttpServlet {
         if (!isSiteWide
                 && (pageRequest.isWebsitePageHit() || pageRequest
                         .isOtherPageHit())) {
-            this.processHit(weblog);
+            this.processHit(weblog.getHandle());
         }
 
         // looks like we need to render content
@@ -503,33 +531,45 @@ public class PageServlet extends HttpServlet {
             return;
         }
 
-        // render content
-        CachedContent rendererOutput = new CachedContent(
-                RollerConstants.TWENTYFOUR_KB_IN_BYTES, contentType);
+        // render content, when streaming the output goes to the client as it
+        // is produced once it grows past the threshold and is captured for
+        // the cache at the same time
+        CachedContent rendererOutput;
+        if (streamRendering) {
+            response.setContentType(contentType);
+            rendererOutput = new CachedContent(RollerConstants.TWENTYFOUR_KB_IN_BYTES,
+                    contentType, response.getOutputStream(), streamThreshold);
+        } else {
+            rendererOutput = new CachedContent(RollerConstants.TWENTYFOUR_KB_IN_BYTES,
+                    contentType);
+        }
         try {
             log.debug("Doing rendering");
             renderer.render(model, rendererOutput.getCachedWriter());
 
             // flush rendered output and close
-            rendererOutput.flush();
             rendererOutput.close();
         } catch (Exception e) {
             // bummer, error during rendering
             log.error("Error during rendering for page " + page.getId(), e);
 
+            // nothing has reached the client unless the output grew past the
+            // streaming threshold, in which case all we can do is stop
             if (!response.isCommitted()) {
                 response.reset();
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
             }
-            response.sendError(HttpServletResponse.SC_NOT_FOUND);
             return;
         }
 
         // post rendering process
-        // flush rendered content to response
-        log.debug("Flushing response output");
-        response.setContentType(contentType);
-        response.setContentLength(rendererOutput.getContent().length);
-        response.getOutputStream().write(rendererOutput.getContent());
+        if (!rendererOutput.isPassedThrough()) {
+            // flush rendered content to response
+            log.debug("Flushing response output");
+            response.setContentType(contentType);
+            response.setContentLength(rendererOutput.getContent().length);
+            response.getOutputStream().write(rendererOutput.getContent());
+        }
 
         // cache rendered content. only cache if user is not logged in?
         if ((!this.excludeOwnerPages || !pageRequest.isLoggedIn())
@@ -571,10 +611,10 @@ public class PageServlet extends HttpServlet {
     /**
      * Notify the hit tracker that it has an incoming page hit.
      */
-    private void processHit(Weblog weblog) {
+    private void processHit(String weblogHandle) {
 
         HitCountQueue counter = HitCountQueue.getInstance();
-        counter.processHit(weblog);
+        counter.processHit(weblogHandle);
     }
 
     /**
@@ -18,8 +18,10 @@
 
 package org.apache.roller.weblogger.ui.rendering.servlets;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Locale;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
@@ -33,10 +35,14 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.MediaFileManager;
 import org.apache.roller.weblogger.business.WebloggerFactory;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.CacheableResource;
+import org.apache.roller.weblogger.pojos.FileContent;
 import org.apache.roller.weblogger.pojos.MediaFile;
-import org.apache.roller.weblogger.pojos.ThemeResource;
+import org.apache.roller.weblogger.pojos.Resource;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.WeblogTheme;
+import org.apache.roller.weblogger.ui.rendering.util.FileResponseUtil;
 import org.apache.roller.weblogger.ui.rendering.util.ModDateHeaderUtil;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogResourceRequest;
 
@@ -52,6 +58,12 @@ public class ResourceServlet extends HttpServlet {
 
     private ServletContext context = null;
 
+    // seconds clients may cache fingerprinted theme resources
+    private long maxAge = 31536000;
+
+    // seconds clients may cache theme resources requested without fingerprint
+    private long unversionedMaxAge = 300;
+
     @Override
     public void init(ServletConfig config) throws ServletException {
 
@@ -60,6 +72,10 @@ public class ResourceServlet extends HttpServlet {
         log.info("Initializing ResourceServlet");
 
         this.context = config.getServletContext();
+
+        this.maxAge = WebloggerConfig.getIntProperty("themes.resources.maxAge", 31536000);
+        this.unversionedMaxAge = WebloggerConfig.getIntProperty(
+                "themes.resources.unversionedMaxAge", 300);
     }
 
     /**
@@ -98,18 +114,20 @@ public class ResourceServlet extends HttpServlet {
         log.debug("Resource requested [" + resourceRequest.getResourcePath()
                 + "]");
 
+        // look the resource up, it is only opened once we know it has to
+        // be sent
         long resourceLastMod = 0;
-        InputStream resourceStream = null;
+        Resource resource = null;
+        FileContent content = null;
 
         // first see if resource comes from weblog's shared theme
         try {
             WeblogTheme weblogTheme = weblog.getTheme();
             if (weblogTheme != null) {
-                ThemeResource resource = weblogTheme
+                resource = weblogTheme
                         .getResource(resourceRequest.getResourcePath());
                 if (resource != null) {
                     resourceLastMod = resource.getLastModified();
-                    resourceStream = resource.getInputStream();
                 }
             }
         } catch (Exception ex) {
@@ -118,21 +136,21 @@ public class ResourceServlet extends HttpServlet {
                 response.reset();
             }
             response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            if(resourceStream != null) {
-                resourceStream.close();
-            }
             return;
         }
 
         // if not from theme then see if resource is in weblog's upload dir
-        if (resourceStream == null) {
+        if (resource == null) {
             try {
                 MediaFileManager mmgr = WebloggerFactory.getWeblogger()
                         .getMediaFileManager();
                 MediaFile mf = mmgr.getMediaFileByOriginalPath(weblog,
                         resourceRequest.getResourcePath());
                 resourceLastMod = mf.getLastModified();
-                resourceStream = mf.getInputStream();
+                content = mf.getContent();
+                if (content == null) {
+                    throw new WebloggerException("no content for media file " + mf.getId());
+                }
 
             } catch (Exception ex) {
                 // still not found? then we don't have it, 404.
@@ -141,13 +159,22 @@ public class ResourceServlet extends HttpServlet {
                 }
                 log.debug("Unable to get resource", ex);
                 response.sendError(HttpServletResponse.SC_NOT_FOUND);
-                if(resourceStream != null) {
-                    resourceStream.close();
-                }
                 return;
             }
         }
 
+        // set the content type based on whatever is in our web.xml mime defs
+        String contentType = this.context.getMimeType(resourceRequest
+                .getResourcePath());
+
+        // shared theme resources are held in memory with their entity tags
+        if (resource instanceof CacheableResource
+                && ((CacheableResource) resource).getContent() != null) {
+            sendCacheableResource(request, response,
+                    (CacheableResource) resource, contentType);
+            return;
+        }
+
         // Respond with 304 Not Modified if it is not modified.
         if (ModDateHeaderUtil.respondIfNotModified(request, response,
                 resourceLastMod, resourceRequest.getDeviceType())) {
@@ -158,24 +185,90 @@ public class ResourceServlet extends HttpServlet {
                     resourceRequest.getDeviceType());
         }
 
-        // set the content type based on whatever is in our web.xml mime defs
-        response.setContentType(this.context.getMimeType(resourceRequest
-                .getResourcePath()));
+        File file = resource != null ? resource.getFile() : content.getFile();
 
         try {
             // ok, lets serve up the file
-            resourceStream.transferTo(response.getOutputStream());
+            if (file != null) {
+                FileResponseUtil.sendFile(request, response, file,
+                        contentType, resourceLastMod);
+            } else {
+                // not on the local filesystem, stream it as a whole
+                response.setContentType(contentType);
+                response.setContentLengthLong(resource.getLength());
+                try (InputStream resourceStream = resource.getInputStream()) {
+                    resourceStream.transferTo(response.getOutputStream());
+                }
+            }
 
         } catch (IOException ex) {
             if (!response.isCommitted()) {
                 response.reset();
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             }
-            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-        } finally {
-            // make sure stream to resource file is closed
-            resourceStream.close();
         }
 
     }
 
+    /**
+     * Send a resource held in memory, gzipped if the client accepts it.
+     *
+     * Requests carrying the resource's fingerprint, as generated by the URL
+     * strategy, can be cached by clients for good since a changed resource
+     * gets a new fingerprint.  Any other request may be cached briefly and
+     * is then revalidated, which is answered from the entity tag or
+     * modification date.
+     */
+    private void sendCacheableResource(HttpServletRequest request,
+            HttpServletResponse response, CacheableResource resource,
+            String contentType) throws IOException {
+
+        byte[] gzipContent = resource.getGzipContent();
+        boolean gzip = gzipContent != null && acceptsGzip(request);
+
+        if (resource.getFingerprint().equals(request.getParameter("v"))) {
+            response.setHeader("Cache-Control", "public, max-age=" + maxAge + ", immutable");
+        } else {
+            response.setHeader("Cache-Control", "public, max-age=" + unversionedMaxAge);
+        }
+        if (gzipContent != null) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+        response.setHeader("ETag", resource.getETag(gzip));
+        response.setDateHeader("Last-Modified", resource.getLastModified());
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            // either encoding of the same content is fine
+            if (ifNoneMatch.trim().equals("*")
+                    || ifNoneMatch.contains(resource.getETag(false))
+                    || ifNoneMatch.contains(resource.getETag(true))) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        } else if (ModDateHeaderUtil.respondIfNotModified(request, response,
+                resource.getLastModified(), null)) {
+            return;
+        }
+
+        byte[] body = gzip ? gzipContent : resource.getContent();
+        response.setContentType(contentType);
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        response.setContentLength(body.length);
+
+        try {
+            response.getOutputStream().write(body);
+        } catch (IOException ex) {
+            // client went away, nothing more to do
+            log.debug("Error sending resource " + resource.getPath(), ex);
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ENGLISH).contains("gzip");
+    }
+
 }
@@ -48,6 +48,7 @@ import org.apache.roller.weblogger.ui.rendering.util.WeblogPageRequest;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogSearchRequest;
 import org.apache.roller.weblogger.ui.rendering.util.cache.SiteWideCache;
 import org.apache.roller.weblogger.ui.rendering.util.cache.WeblogPageCache;
+import org.apache.roller.weblogger.ui.rendering.velocity.VelocityTemplateCache;
 import org.apache.roller.weblogger.util.I18nMessages;
 import org.apache.roller.weblogger.util.cache.CachedContent;
 
@@ -116,6 +117,10 @@ public class SearchServlet extends HttpServlet {
                 boolean reloaded = manager.reLoadThemeFromDisk(weblog
                         .getEditorTheme());
                 if (reloaded) {
+                    VelocityTemplateCache templateCache = VelocityTemplateCache.getInstance();
+                    if (templateCache != null) {
+                        templateCache.invalidateTheme(weblog.getEditorTheme());
+                    }
                     if (WebloggerRuntimeConfig.isSiteWideWeblog(searchRequest
                             .getWeblogHandle())) {
                         SiteWideCache.getInstance().clear();
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Writes files from the local filesystem to the response, honoring single
+ * and multiple byte ranges (RFC 7233).
+ *
+ * The body is handed to the container with Tomcat's sendfile attributes when
+ * the connector supports it, otherwise it is written with
+ * FileChannel.transferTo.  transferTo onto the servlet output stream still
+ * goes through a buffer, so only the sendfile path avoids copying.  Callers do their conditional GET handling first, the file is
+ * only opened once a body is actually going to be sent.
+ */
+public final class FileResponseUtil {
+
+    private static final Log log = LogFactory.getLog(FileResponseUtil.class);
+
+    // request attributes understood by Tomcat's NIO and APR connectors
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // more ranges than this and we just send the whole file
+    static final int MAX_RANGES = 16;
+
+    private static final String CRLF = "\r\n";
+
+
+    // non-instantiable
+    private FileResponseUtil() {}
+
+
+    /**
+     * Send the file, or the part of it asked for in the Range header, as the
+     * body of the response.
+     *
+     * @param contentType the content type of the file, may be null
+     * @param lastModified last modified time as sent in Last-Modified, used
+     *                     to evaluate If-Range
+     */
+    public static void sendFile(HttpServletRequest request,
+            HttpServletResponse response, File file, String contentType,
+            long lastModified) throws IOException {
+
+        long length = file.length();
+        response.setHeader("Accept-Ranges", "bytes");
+
+        List<ByteRange> ranges = null;
+        if (isRangeApplicable(request, lastModified)) {
+            ranges = parseRanges(request.getHeader("Range"), length);
+        }
+
+        if (ranges == null) {
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            send(request, response, file, 0, length);
+
+        } else if (ranges.isEmpty()) {
+            response.setHeader("Content-Range", "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+
+        } else if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType);
+            response.setHeader("Content-Range", range.toContentRange(length));
+            response.setContentLengthLong(range.getLength());
+            send(request, response, file, range.start, range.getLength());
+
+        } else {
+            sendMultipart(response, file, contentType, length, ranges);
+        }
+    }
+
+
+    /**
+     * Parse a Range header against a resource of the given length.
+     *
+     * @return null if the header is missing or should be ignored and the
+     *         whole file sent, an empty list if none of the ranges can be
+     *         satisfied, otherwise the ranges in the order they were asked for.
+     */
+    static List<ByteRange> parseRanges(String header, long length) {
+
+        if (header == null || !header.startsWith("bytes=")) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+        long total = 0;
+        for (String spec : header.substring("bytes=".length()).split(",")) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+
+            long start;
+            long end;
+            try {
+                if (dash == 0) {
+                    // suffix range, the last n bytes
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix <= 0 || length == 0) {
+                        continue;
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(spec.substring(0, dash));
+                    boolean open = dash == spec.length() - 1;
+                    end = open ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    // checked before clamping the end, an open range starting
+                    // past the end of the file can't be satisfied
+                    if (start >= length) {
+                        continue;
+                    }
+                    end = Math.min(end, length - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+            ranges.add(new ByteRange(start, end));
+            total += end - start + 1;
+        }
+
+        // don't let clients make us send more than the file itself
+        if (ranges.size() > MAX_RANGES || total > length) {
+            return null;
+        }
+        return ranges;
+    }
+
+
+    /**
+     * A Range header only applies to the current version of the file, which
+     * If-Range can assert with the Last-Modified date we sent.  We don't
+     * send strong entity tags so an If-Range holding one never matches.
+     */
+    private static boolean isRangeApplicable(HttpServletRequest request, long lastModified) {
+
+        if (request.getHeader("Range") == null) {
+            return false;
+        }
+
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+
+        try {
+            long since = request.getDateHeader("If-Range");
+            return lastModified / 1000 <= since / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+
+    private static void send(HttpServletRequest request, HttpServletResponse response,
+            File file, long start, long count) throws IOException {
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // the connector writes the file once we return
+            request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            transfer(channel, Channels.newChannel(response.getOutputStream()), start, count);
+        }
+    }
+
+
+    private static void sendMultipart(HttpServletResponse response, File file,
+            String contentType, long length, List<ByteRange> ranges) throws IOException {
+
+        String boundary = UUID.randomUUID().toString();
+
+        // work out the exact length up front so the client gets a Content-Length
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            StringBuilder header = new StringBuilder();
+            header.append(CRLF).append("--").append(boundary).append(CRLF);
+            if (contentType != null) {
+                header.append("Content-Type: ").append(contentType).append(CRLF);
+            }
+            header.append("Content-Range: ").append(range.toContentRange(length)).append(CRLF);
+            header.append(CRLF);
+            byte[] bytes = header.toString().getBytes(StandardCharsets.ISO_8859_1);
+            partHeaders.add(bytes);
+            contentLength += bytes.length + range.getLength();
+        }
+        byte[] trailer = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.ISO_8859_1);
+        contentLength += trailer.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            for (int i = 0; i < ranges.size(); i++) {
+                ByteRange range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                transfer(channel, target, range.start, range.getLength());
+            }
+            out.write(trailer);
+        }
+    }
+
+
+    private static void transfer(FileChannel channel, WritableByteChannel target,
+            long start, long count) throws IOException {
+
+        long position = start;
+        long end = start + count;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, target);
+            if (sent <= 0) {
+                // file got shorter under us, the length we promised is a lie now
+                log.debug("file truncated while sending, "+(end - position)+" bytes short");
+                throw new IOException("Unexpected end of file");
+            }
+            position += sent;
+        }
+    }
+
+
+    /**
+     * An inclusive range of bytes.
+     */
+    static final class ByteRange {
+
+        final long start;
+        final long end;
+
+        ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long getLength() {
+            return end - start + 1;
+        }
+
+        String toContentRange(long length) {
+            return "bytes " + start + "-" + end + "/" + length;
+        }
+    }
+
+}
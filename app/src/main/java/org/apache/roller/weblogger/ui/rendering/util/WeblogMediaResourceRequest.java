@@ -19,6 +19,7 @@
 package org.apache.roller.weblogger.ui.rendering.util;
 
 import javax.servlet.http.HttpServletRequest;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -36,6 +37,8 @@ public class WeblogMediaResourceRequest extends WeblogRequest {
     private String resourceId = null;
 
     private boolean thumbnail = false;
+
+    private String size = null;
     
     
     public WeblogMediaResourceRequest() {}
@@ -76,6 +79,11 @@ public class WeblogMediaResourceRequest extends WeblogRequest {
         if (request.getParameter("t") != null && "true".equals(request.getParameter("t"))) {
             thumbnail = true;
         }
+
+        // one of the image derivative sizes, e.g. "medium"
+        if (StringUtils.isNotEmpty(request.getParameter("size"))) {
+            size = request.getParameter("size");
+        }
         
         if(log.isDebugEnabled()) {
             log.debug("resourceId = "+this.resourceId);
@@ -110,4 +118,18 @@ public class WeblogMediaResourceRequest extends WeblogRequest {
     public void setThumbnail(boolean thumbnail) {
         this.thumbnail = thumbnail;
     }
+
+    /**
+     * @return the requested image size, null for the original
+     */
+    public String getSize() {
+        return size;
+    }
+
+    /**
+     * @param size the requested image size
+     */
+    public void setSize(String size) {
+        this.size = size;
+    }
 }
@@ -26,6 +26,7 @@ import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.WeblogEntryManager;
 import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.KeysetCursor;
 import org.apache.roller.weblogger.pojos.ThemeTemplate;
 import org.apache.roller.weblogger.pojos.WeblogCategory;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
@@ -60,6 +61,7 @@ public class WeblogPageRequest extends WeblogRequest {
     private String weblogDate = null;
     private List<String> tags = null;
     private int pageNum = 0;
+    private String cursor = null;
     private Map<String, String[]> customParams = Collections.emptyMap();
 
     // heavyweight attributes
@@ -246,6 +248,12 @@ public class WeblogPageRequest extends WeblogRequest {
             }
         }
 
+        // position to continue the entries list from, only kept if valid
+        String cursorToken = request.getParameter("cursor");
+        if (cursorToken != null && KeysetCursor.fromToken(cursorToken) != null) {
+            this.cursor = cursorToken;
+        }
+
         // build customParams Map, we remove built-in params because we only
         // want this map to represent params defined by the template author
         customParams = new HashMap<>(request.getParameterMap());
@@ -254,6 +262,7 @@ public class WeblogPageRequest extends WeblogRequest {
         customParams.remove("date");
         customParams.remove("cat");
         customParams.remove("page");
+        customParams.remove("cursor");
         customParams.remove("tags");
 
         if (log.isDebugEnabled()) {
@@ -264,6 +273,7 @@ public class WeblogPageRequest extends WeblogRequest {
             log.debug("tags = " + this.tags);
             log.debug("weblogPage = " + this.weblogPageName);
             log.debug("pageNum = " + this.pageNum);
+            log.debug("cursor = " + this.cursor);
         }
     }
 
@@ -325,6 +335,17 @@ public class WeblogPageRequest extends WeblogRequest {
         this.pageNum = pageNum;
     }
 
+    /**
+     * Token of the KeysetCursor the entries list continues after, or null.
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
     public Map<String, String[]> getCustomParams() {
         return customParams;
     }
@@ -26,6 +26,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogSnapshot;
 
 
 /**
@@ -58,6 +59,7 @@ public class WeblogRequest extends ParsedRequest {
     
     // heavyweight attributes
     private Weblog weblog = null;
+    private WeblogSnapshot weblogSnapshot = null;
     private Locale localeInstance = null;
     
     
@@ -199,6 +201,24 @@ public class WeblogRequest extends ParsedRequest {
         this.weblog = weblog;
     }
     
+    /**
+     * Snapshot of the weblog, whether or not it is visible, which unlike
+     * getWeblog() usually doesn't touch the database.
+     */
+    public WeblogSnapshot getWeblogSnapshot() {
+        
+        if(weblogSnapshot == null && weblogHandle != null) {
+            try {
+                weblogSnapshot = WebloggerFactory.getWeblogger().getWeblogManager()
+                        .getWeblogSnapshot(weblogHandle);
+            } catch (WebloggerException ex) {
+                log.error("Error looking up weblog "+weblogHandle, ex);
+            }
+        }
+        
+        return weblogSnapshot;
+    }
+    
     
     /**
      * Get the Locale instance to be used for this request.
@@ -234,6 +234,9 @@ public final class SiteWideCache implements CacheHandler {
         // add page number when applicable
         if(pageRequest.getWeblogAnchor() == null) {
             key.append("/page=").append(pageRequest.getPageNum());
+            if(pageRequest.getCursor() != null) {
+                key.append("/cursor=").append(pageRequest.getCursor());
+            }
         }
         
         // add login state
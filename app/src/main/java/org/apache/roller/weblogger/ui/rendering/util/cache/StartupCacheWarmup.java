@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.util.RollerConstants;
+import org.apache.roller.weblogger.business.WeblogEntryManager;
+import org.apache.roller.weblogger.business.Weblogger;
+import org.apache.roller.weblogger.business.WebloggerFactory;
+import org.apache.roller.weblogger.business.themes.SharedTheme;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
+import org.apache.roller.weblogger.pojos.Template;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntry.PubStatus;
+import org.apache.roller.weblogger.pojos.WeblogEntrySearchCriteria;
+import org.apache.roller.weblogger.pojos.WeblogHitCount;
+import org.apache.roller.weblogger.ui.core.RollerContext;
+import org.apache.roller.weblogger.ui.rendering.mobile.MobileDeviceRepository.DeviceType;
+import org.apache.roller.weblogger.ui.rendering.velocity.RollerVelocity;
+
+
+/**
+ * Warms up the rendering layer at startup, on a background thread so that
+ * the webapp starts taking requests right away.
+ *
+ * First all shared theme templates and the bundled feed templates are parsed,
+ * which also initializes Velocity and its macro libraries.  Then the most hit
+ * weblogs, ranked by their WeblogHitCount, are handled in parallel on a small
+ * pool: their templates are parsed, the text of their front page entries is
+ * transformed and their entry feeds are rendered into the feed cache.  Front
+ * pages themselves are not rendered since some page models need a real
+ * request.
+ *
+ * Everything is bounded by cache.warmup.timeBudget seconds, checked between
+ * templates and between the steps of each weblog.  Whatever is not done by
+ * then is left to be warmed by real requests.
+ */
+public final class StartupCacheWarmup {
+
+    private static final Log log = LogFactory.getLog(StartupCacheWarmup.class);
+
+    private static final String FEED_TEMPLATES = "/WEB-INF/velocity/templates/feeds/";
+
+    private static final String[] FEED_FORMATS = {"rss", "atom"};
+
+    private static Thread warmupThread = null;
+
+
+    // non-instantiable
+    private StartupCacheWarmup() {}
+
+
+    /**
+     * Start the warm up on a background thread, if it is enabled.
+     */
+    public static synchronized void start() {
+
+        if (!WebloggerConfig.getBooleanProperty("cache.warmup.enabled") || warmupThread != null) {
+            return;
+        }
+
+        warmupThread = new Thread(() -> {
+            try {
+                run();
+            } catch (Exception e) {
+                log.error("Error warming up caches", e);
+            }
+        }, "StartupCacheWarmup");
+        warmupThread.setDaemon(true);
+        warmupThread.start();
+    }
+
+
+    /**
+     * Stop a warm up which is still running.
+     */
+    public static synchronized void stop() {
+
+        if (warmupThread != null) {
+            warmupThread.interrupt();
+            try {
+                warmupThread.join(RollerConstants.GRACEFUL_SHUTDOWN_WAIT_IN_MILLISECONDS);
+            } catch (InterruptedException e) {
+                log.debug(e.getMessage(), e);
+            }
+            warmupThread = null;
+        }
+    }
+
+
+    /**
+     * Run the warm up, returning when it is done or the time budget has been
+     * used up.
+     */
+    static void run() {
+
+        long budget = WebloggerConfig.getIntProperty("cache.warmup.timeBudget", 60)
+                * (long) RollerConstants.SEC_IN_MS;
+        long deadline = System.currentTimeMillis() + budget;
+
+        log.info("Starting cache warm up, time budget "+budget / RollerConstants.SEC_IN_MS+" secs");
+
+        try {
+            precompileTemplates(deadline);
+        } finally {
+            WebloggerFactory.getWeblogger().release();
+        }
+
+        List<Weblog> weblogs = getHotWeblogs();
+        if (weblogs.isEmpty() || outOfTime(deadline)) {
+            log.info("Cache warm up finished");
+            return;
+        }
+
+        int threads = Math.max(1, WebloggerConfig.getIntProperty("cache.warmup.threads", 4));
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, weblogs.size()));
+
+        AtomicInteger done = new AtomicInteger();
+        int total = weblogs.size();
+        for (Weblog weblog : weblogs) {
+            String handle = weblog.getHandle();
+            pool.execute(() -> {
+                if (!outOfTime(deadline)) {
+                    warmupWeblog(handle, deadline);
+                    log.info("Cache warm up: "+done.incrementAndGet()+"/"+total+" weblogs ["+handle+"]");
+                }
+            });
+        }
+        pool.shutdown();
+
+        try {
+            long remaining = deadline - System.currentTimeMillis();
+            if (!pool.awaitTermination(Math.max(remaining, 0), TimeUnit.MILLISECONDS)) {
+                log.warn("Cache warm up ran out of time after "+done.get()+"/"+total+" weblogs");
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        log.info("Cache warm up finished, "+done.get()+"/"+total+" weblogs warmed");
+    }
+
+
+    /**
+     * True once the time budget has been used up or the warm up has been
+     * stopped.
+     */
+    private static boolean outOfTime(long deadline) {
+        return System.currentTimeMillis() >= deadline || Thread.currentThread().isInterrupted();
+    }
+
+
+    /**
+     * Parse the templates of all shared themes and the feed templates.
+     */
+    private static void precompileTemplates(long deadline) {
+
+        int count = 0;
+        long start = System.currentTimeMillis();
+
+        for (SharedTheme theme : WebloggerFactory.getWeblogger().getThemeManager().getEnabledThemesList()) {
+            try {
+                for (Template template : theme.getTemplates()) {
+                    if (outOfTime(deadline)) {
+                        log.warn("Cache warm up ran out of time parsing templates");
+                        return;
+                    }
+                    count += precompile(template.getId());
+                }
+            } catch (Exception e) {
+                log.warn("Unable to precompile templates of theme "+theme.getId(), e);
+            }
+        }
+
+        Set<String> feedTemplates = RollerContext.getServletContext().getResourcePaths(FEED_TEMPLATES);
+        if (feedTemplates != null) {
+            for (String path : feedTemplates) {
+                if (outOfTime(deadline)) {
+                    log.warn("Cache warm up ran out of time parsing templates");
+                    return;
+                }
+                if (path.endsWith(".vm")) {
+                    count += precompile(path.substring(FEED_TEMPLATES.length()));
+                }
+            }
+        }
+
+        log.info("Cache warm up: parsed "+count+" templates in "
+                + (System.currentTimeMillis() - start)+" ms");
+    }
+
+
+    private static int precompile(String name) {
+        int count = 0;
+        for (DeviceType deviceType : DeviceType.values()) {
+            try {
+                RollerVelocity.getTemplate(name, deviceType, "UTF-8");
+                count++;
+            } catch (Exception e) {
+                // no such rendition or a broken template, it will be
+                // reported when someone actually asks for it
+                log.debug("Unable to precompile "+name+"|"+deviceType, e);
+            }
+        }
+        return count;
+    }
+
+
+    private static List<Weblog> getHotWeblogs() {
+
+        List<Weblog> weblogs = new ArrayList<>();
+        int length = WebloggerConfig.getIntProperty("cache.warmup.weblogs", 20);
+        int sinceDays = WebloggerConfig.getIntProperty("cache.warmup.sinceDays", 30);
+        if (length <= 0) {
+            return weblogs;
+        }
+
+        try {
+            List<WeblogHitCount> hotBlogs = WebloggerFactory.getWeblogger()
+                    .getWeblogEntryManager().getHotWeblogs(sinceDays, 0, length);
+            for (WeblogHitCount hitCount : hotBlogs) {
+                // the site-wide weblog has caches of its own
+                if (!WebloggerRuntimeConfig.isSiteWideWeblog(hitCount.getWeblog().getHandle())) {
+                    weblogs.add(hitCount.getWeblog());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Unable to find weblogs to warm up", e);
+        } finally {
+            WebloggerFactory.getWeblogger().release();
+        }
+
+        return weblogs;
+    }
+
+
+    private static void warmupWeblog(String handle, long deadline) {
+
+        Weblogger roller = WebloggerFactory.getWeblogger();
+        try {
+            Weblog weblog = roller.getWeblogManager().getWeblogByHandle(handle);
+            if (weblog == null) {
+                return;
+            }
+
+            for (Template template : weblog.getTheme().getTemplates()) {
+                if (outOfTime(deadline)) {
+                    return;
+                }
+                precompile(template.getId());
+            }
+
+            // entries on the front page, transforming their text fills the
+            // transformed text cache
+            WeblogEntryManager mgr = roller.getWeblogEntryManager();
+            WeblogEntrySearchCriteria wesc = new WeblogEntrySearchCriteria();
+            wesc.setWeblog(weblog);
+            wesc.setStatus(PubStatus.PUBLISHED);
+            wesc.setMaxResults(weblog.getEntryDisplayCount());
+            for (WeblogEntry entry : mgr.getWeblogEntries(wesc)) {
+                if (outOfTime(deadline)) {
+                    return;
+                }
+                entry.getTransformedText();
+                entry.getTransformedSummary();
+            }
+
+            for (String format : FEED_FORMATS) {
+                if (outOfTime(deadline)) {
+                    return;
+                }
+                WeblogCacheWarmupJob.warmupFeed(weblog, "entries", format);
+            }
+
+        } catch (Exception e) {
+            log.warn("Error warming up weblog "+handle, e);
+        } finally {
+            roller.release();
+        }
+    }
+
+}
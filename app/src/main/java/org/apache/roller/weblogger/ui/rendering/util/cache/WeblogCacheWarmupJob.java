@@ -24,10 +24,12 @@ import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.util.RollerConstants;
+import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.business.runnable.Job;
 import org.apache.roller.weblogger.config.WebloggerConfig;
 import org.apache.roller.weblogger.pojos.StaticTemplate;
 import org.apache.roller.weblogger.pojos.Template;
+import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.TemplateRendition.TemplateLanguage;
 import org.apache.roller.weblogger.ui.rendering.Renderer;
 import org.apache.roller.weblogger.ui.rendering.RendererManager;
@@ -102,57 +104,17 @@ public class WeblogCacheWarmupJob implements Job {
             return;
         }
         
-        // we are working on the feed cache
-        WeblogFeedCache feedCache = WeblogFeedCache.getInstance();
         long start = System.currentTimeMillis();
         
         for (String weblogHandle : weblogs) {
             log.debug("doing weblog "+weblogHandle);
             
             try {
-                // we need a feed request to represent the data
-                WeblogFeedRequest feedRequest = new WeblogFeedRequest();
-                feedRequest.setWeblogHandle(weblogHandle);
-                feedRequest.setType(type);
-                feedRequest.setFormat(format);
-                
-                
-                // populate the rendering model
-                Map<String, Object> modelMap = new HashMap<>();
-                Map<String, Object> initData = new HashMap<>();
-                initData.put("request", null);
-                initData.put("feedRequest", feedRequest);
-                initData.put("weblogRequest", feedRequest);
-                
-                // Load models for feeds
-                String feedModels = WebloggerConfig.getProperty("rendering.feedModels");
-                ModelLoader.loadModels(feedModels, modelMap, initData, true);
-                
-                // TODO: re-enable custom models when they are actually used
-                // Load weblog custom models
-                //ModelLoader.loadCustomModels(weblog, model, initData);
-                
-                
-                // lookup Renderer we are going to use
-                Renderer renderer;
-                Template template = new StaticTemplate(
-					"weblog-"+type+"-"+format+".vm", TemplateLanguage.VELOCITY);
-                renderer = RendererManager.getRenderer(template, DeviceType.standard);
-                
-                
-                // render content.  use default size of about 24K for a standard page
-                CachedContent rendererOutput = new CachedContent(RollerConstants.TWENTYFOUR_KB_IN_BYTES);
-                renderer.render(modelMap, rendererOutput.getCachedWriter());
-                
-                
-                // flush rendered output and close
-                rendererOutput.flush();
-                rendererOutput.close();
-                
-                // now just put it in the cache
-                String key = feedCache.generateKey(feedRequest);
-                feedCache.put(key, rendererOutput);
-                
+                Weblog weblog = WebloggerFactory.getWeblogger().getWeblogManager()
+                        .getWeblogByHandle(weblogHandle);
+                if (weblog != null) {
+                    warmupFeed(weblog, type, format);
+                }
             } catch(Exception e) {
                 // bummer, error during rendering
                 log.error("Error rendering for weblog "+weblogHandle, e);
@@ -160,10 +122,59 @@ public class WeblogCacheWarmupJob implements Job {
         }
         
         long end = System.currentTimeMillis();
-        long time = (end-start) * RollerConstants.SEC_IN_MS;
+        long time = (end-start) / RollerConstants.SEC_IN_MS;
         
         log.info("Completed warmup for "+type+"/"+format+" in "+time+" secs.");
         
     }
     
+    
+    /**
+     * Render one feed of a weblog into the feed cache, under the same key
+     * the FeedServlet would use for a plain request for that feed.
+     */
+    static void warmupFeed(Weblog weblog, String type, String format) throws Exception {
+        
+        // we need a feed request to represent the data
+        WeblogFeedRequest feedRequest = new WeblogFeedRequest();
+        feedRequest.setWeblogHandle(weblog.getHandle());
+        feedRequest.setWeblog(weblog);
+        feedRequest.setType(type);
+        feedRequest.setFormat(format);
+        
+        // key is generated before any locale is forced, like the FeedServlet
+        WeblogFeedCache feedCache = WeblogFeedCache.getInstance();
+        String key = feedCache.generateKey(feedRequest);
+        
+        if (!weblog.isShowAllLangs()) {
+            feedRequest.setLocale(weblog.getLocale());
+        }
+        
+        // populate the rendering model
+        Map<String, Object> modelMap = new HashMap<>();
+        Map<String, Object> initData = new HashMap<>();
+        initData.put("parsedRequest", feedRequest);
+        initData.put("urlStrategy", WebloggerFactory.getWeblogger().getUrlStrategy());
+        
+        // Load models for feeds
+        String feedModels = WebloggerConfig.getProperty("rendering.feedModels");
+        ModelLoader.loadModels(feedModels, modelMap, initData, true);
+        
+        // lookup Renderer we are going to use
+        Template template = new StaticTemplate(
+                "weblog-"+type+"-"+format+".vm", TemplateLanguage.VELOCITY);
+        Renderer renderer = RendererManager.getRenderer(template, DeviceType.standard);
+        
+        // render content.  use default size of about 24K for a standard page
+        CachedContent rendererOutput = new CachedContent(RollerConstants.TWENTYFOUR_KB_IN_BYTES);
+        renderer.render(modelMap, rendererOutput.getCachedWriter());
+        
+        // flush rendered output and close
+        rendererOutput.flush();
+        rendererOutput.close();
+        
+        // now just put it in the cache
+        feedCache.put(key, rendererOutput);
+    }
+    
 }
@@ -118,8 +118,9 @@ public class RollerResourceLoader extends ResourceLoader {
 
 	/**
 	 * Files loaded by this resource loader are not reloadable here, as they are
-	 * stored in custom themes and there is no way velocity can trigger a
-	 * reload.
+	 * stored in custom themes and checking would mean a database query.
+	 * Cached copies are dropped by VelocityTemplateCache when the template is
+	 * saved instead.
 	 * 
 	 * @see org.apache.velocity.runtime.resource.loader.ResourceLoader#isSourceModified(org.apache.velocity.runtime.resource.Resource)
 	 */
@@ -129,12 +130,26 @@ public class RollerResourceLoader extends ResourceLoader {
 	}
 
 	/**
-	 * Defaults to return 0.
+	 * Last modified time of the template, only asked for once a template has
+	 * been loaded so the lookup is served from the current session.
 	 * 
 	 * @see org.apache.velocity.runtime.resource.loader.ResourceLoader#getLastModified(org.apache.velocity.runtime.resource.Resource)
 	 */
     @Override
 	public long getLastModified(Resource resource) {
+		String name = resource.getName();
+		if (name.contains("|")) {
+			name = name.substring(0, name.indexOf('|'));
+		}
+		try {
+			WeblogTemplate page = WebloggerFactory.getWeblogger()
+					.getWeblogManager().getTemplate(name);
+			if (page != null && page.getLastModified() != null) {
+				return page.getLastModified().getTime();
+			}
+		} catch (WebloggerException re) {
+			logger.debug("Unable to get last modified time of " + name, re);
+		}
 		return 0;
 	}
 
@@ -67,6 +67,7 @@ public class RollerVelocity {
                 velocityProps.setProperty("resource.loader.class.modification_check_interval", "2");
                 velocityProps.setProperty("resource.loader.webapp.cache", "false");
                 velocityProps.setProperty("resource.loader.webapp.modification_check_interval", "2");
+                velocityProps.setProperty("resource.loader.theme.modification_check_interval", "2");
                 velocityProps.setProperty("velocimacro.library.autoreload", "true");
             }
            
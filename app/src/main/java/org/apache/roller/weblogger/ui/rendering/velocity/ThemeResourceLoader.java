@@ -139,15 +139,15 @@ public class ThemeResourceLoader extends ResourceLoader {
     }
 
     /**
-     * Files loaded by this resource loader are not reloadable here, as they are
-     * stored in shared themes and there is no way velocity can trigger a
-     * reload.
+     * Shared themes are held in memory, so this is a cheap comparison against
+     * the template of the currently loaded theme, which only changes when a
+     * theme is reloaded from disk.
      * 
      * @see org.apache.velocity.runtime.resource.loader.ResourceLoader#isSourceModified(org.apache.velocity.runtime.resource.Resource)
      */
     @Override
     public boolean isSourceModified(Resource resource) {
-        return false;
+        return getLastModified(resource) != resource.getLastModified();
     }
 
     /**
@@ -155,6 +155,24 @@ public class ThemeResourceLoader extends ResourceLoader {
      */
     @Override
     public long getLastModified(Resource resource) {
+        String name = resource.getName();
+        if (name.contains("|")) {
+            name = name.substring(0, name.indexOf('|'));
+        }
+        String[] split = name.split(":", 2);
+        if (split.length < 2) {
+            return 0;
+        }
+        try {
+            Theme theme = WebloggerFactory.getWeblogger().getThemeManager()
+                    .getTheme(split[0]);
+            ThemeTemplate template = theme != null ? theme.getTemplateByName(split[1]) : null;
+            if (template != null && template.getLastModified() != null) {
+                return template.getLastModified().getTime();
+            }
+        } catch (WebloggerException re) {
+            logger.debug("Unable to get last modified time of " + name, re);
+        }
         return 0;
     }
 
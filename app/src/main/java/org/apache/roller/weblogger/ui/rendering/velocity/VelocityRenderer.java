@@ -61,6 +61,12 @@ public class VelocityRenderer implements Renderer {
         this.deviceType = deviceType;
 
         try {
+            // drop parsed copies of a template which has since been edited
+            VelocityTemplateCache cache = VelocityTemplateCache.getInstance();
+            if (cache != null) {
+                cache.validate(template);
+            }
+
             // make sure that we can locate the template
             // if we can't then this will throw an exception
             velocityTemplate = RollerVelocity.getTemplate(template.getId(),
@@ -125,7 +131,8 @@ public class VelocityRenderer implements Renderer {
                  * recursive. This is just to keep it simple.
                  */
 
-                // render base template to a temporary StringWriter
+                // render base template to a temporary StringWriter, once and
+                // before any of the decorator reaches the output
                 StringWriter sw = new StringWriter();
                 velocityTemplate.merge(ctx, sw);
 
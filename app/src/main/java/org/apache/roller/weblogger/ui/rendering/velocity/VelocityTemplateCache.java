@@ -0,0 +1,442 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.velocity;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.Template;
+import org.apache.roller.weblogger.pojos.User;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogBookmark;
+import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
+import org.apache.roller.weblogger.pojos.WeblogCategory;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.pojos.WeblogTemplate;
+import org.apache.roller.weblogger.util.cache.Cache;
+import org.apache.roller.weblogger.util.cache.CacheHandler;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.resource.Resource;
+import org.apache.velocity.runtime.resource.ResourceCache;
+
+
+/**
+ * Velocity resource cache holding parsed templates, configured as the
+ * resource.manager.cache.class in velocity.properties.
+ *
+ * Velocity asks this cache for every template it resolves, including
+ * templates pulled in with #parse, so custom and shared theme templates are
+ * only fetched and parsed again after they change.  Entries are indexed by
+ * template id (the resource name minus its "|rendition" suffix) so that a
+ * WeblogTemplate invalidation or theme reload drops every rendition of the
+ * affected templates, and the last modified time of each parsed template is
+ * kept so that renderers can detect edits made elsewhere.  The index is
+ * bounded by the cache size: when it grows past it the least recently used
+ * keys are dropped from the index and the cache together, and keys velocity
+ * finds expired are dropped from the index as they are asked for.
+ *
+ * Templates pulled in with #parse are resolved on every render and cached
+ * under their own keys, so no dependencies between templates are recorded:
+ * invalidating a template is enough for every template which #parses it.
+ * Only the template being rendered is checked against its last modified
+ * time though, so an edit to a #parsed template made on another server is
+ * picked up when its entry expires (see cache.velocity.timeout).
+ *
+ * If cache.velocity.enabled is false custom and theme templates are not
+ * cached, which is how Roller behaved before this cache existed.
+ */
+public class VelocityTemplateCache implements ResourceCache, CacheHandler {
+
+    private static final Log log = LogFactory.getLog(VelocityTemplateCache.class);
+
+    // a unique identifier for this cache, this is used as the prefix for
+    // roller config properties that apply to this cache
+    public static final String CACHE_ID = "cache.velocity";
+
+    // the instance velocity constructed, if any
+    private static volatile VelocityTemplateCache instance = null;
+
+    private boolean cacheEnabled = true;
+    private Cache templateCache = null;
+
+    // template id -> (cache key -> indexed entry)
+    private final Map<String, Map<String, IndexEntry>> keysByTemplate = new ConcurrentHashMap<>();
+
+    // cache key -> indexed entry, everything in the cache is in here
+    private final Map<String, IndexEntry> entries = new ConcurrentHashMap<>();
+
+    // held while dropping the least recently used keys
+    private final Object sweepLock = new Object();
+
+    // orders the uses of entries, the least recently used has the lowest
+    private static final AtomicLong uses = new AtomicLong();
+
+    private int maxKeys = 100;
+    private long timeoutMillis = 15 * 60 * 1000L;
+
+    // start of loads in progress on each thread, keyed by cache key
+    private final ThreadLocal<Map<String, Long>> loadStarts = ThreadLocal.withInitial(HashMap::new);
+
+    private final LongAdder parses = new LongAdder();
+    private final LongAdder parseTime = new LongAdder();
+    private final AtomicLong maxParseTime = new AtomicLong();
+
+
+    public VelocityTemplateCache() {
+        // constructed by velocity, see initialize()
+    }
+
+
+    /**
+     * The cache velocity is using, or null if velocity has not been
+     * initialized or is configured with a different cache.
+     */
+    public static VelocityTemplateCache getInstance() {
+        return instance;
+    }
+
+
+    @Override
+    public void initialize(RuntimeServices rs) {
+
+        cacheEnabled = WebloggerConfig.getBooleanProperty(CACHE_ID+".enabled");
+
+        Map<String, String> cacheProps = new HashMap<>();
+        cacheProps.put("id", CACHE_ID);
+        Enumeration<Object> allProps = WebloggerConfig.keys();
+        String prop;
+        while(allProps.hasMoreElements()) {
+            prop = (String) allProps.nextElement();
+
+            // we are only interested in props for this cache
+            if(prop.startsWith(CACHE_ID+".")) {
+                cacheProps.put(prop.substring(CACHE_ID.length()+1),
+                        WebloggerConfig.getProperty(prop));
+            }
+        }
+
+        log.info(cacheProps);
+
+        maxKeys = WebloggerConfig.getIntProperty(CACHE_ID+".size", maxKeys);
+        timeoutMillis = WebloggerConfig.getIntProperty(CACHE_ID+".timeout", 15 * 60) * 1000L;
+
+        // velocity's own templates and macro libraries are always cached
+        templateCache = CacheManager.constructCache(this, cacheProps);
+
+        if(!cacheEnabled) {
+            log.warn("Caching of custom and theme templates has been DISABLED");
+        }
+
+        instance = this;
+    }
+
+
+    @Override
+    public Resource get(Object resourceKey) {
+
+        String key = String.valueOf(resourceKey);
+        Resource resource = (Resource) templateCache.get(key);
+        IndexEntry entry = entries.get(key);
+
+        if(resource == null) {
+            log.debug("MISS "+key);
+            if (entry != null && System.currentTimeMillis() - entry.putAt >= timeoutMillis) {
+                // expired, unless it was put again meanwhile
+                unindex(key, entry);
+            }
+            // velocity is about to load and parse it, time until the put
+            loadStarts.get().put(key, System.nanoTime());
+        } else {
+            log.debug("HIT "+key);
+            if (entry != null) {
+                entry.lastUsed = uses.incrementAndGet();
+            }
+        }
+
+        return resource;
+    }
+
+
+    @Override
+    public Resource put(Object resourceKey, Resource resource) {
+
+        String key = String.valueOf(resourceKey);
+
+        Long start = loadStarts.get().remove(key);
+        if (start != null) {
+            long elapsed = System.nanoTime() - start;
+            parses.increment();
+            parseTime.add(elapsed);
+            maxParseTime.accumulateAndGet(elapsed, Math::max);
+        }
+
+        if (!cacheEnabled && isRollerResource(resource)) {
+            return null;
+        }
+
+        // indexed before it is cached, so that an invalidation never misses it
+        IndexEntry entry = new IndexEntry(getTemplateId(resource), resource.getLastModified());
+        IndexEntry previous = entries.put(key, entry);
+        if (previous != null && !previous.templateId.equals(entry.templateId)) {
+            unindex(previous.templateId, key, previous);
+        }
+        keysByTemplate.compute(entry.templateId, (id, keys) -> {
+            Map<String, IndexEntry> indexed = keys != null ? keys : new ConcurrentHashMap<>();
+            indexed.put(key, entry);
+            return indexed;
+        });
+        templateCache.put(key, resource);
+        log.debug("PUT "+key);
+
+        if (entries.size() > maxKeys) {
+            sweep();
+        }
+
+        // velocity ignores the previous value, so don't look it up
+        return null;
+    }
+
+
+    @Override
+    public Resource remove(Object resourceKey) {
+
+        String key = String.valueOf(resourceKey);
+        Resource previous = (Resource) templateCache.get(key);
+        IndexEntry entry = entries.get(key);
+        if (entry != null) {
+            unindex(key, entry);
+        }
+        templateCache.remove(key);
+        return previous;
+    }
+
+
+    private void unindex(String key, IndexEntry entry) {
+        if (entries.remove(key, entry)) {
+            unindex(entry.templateId, key, entry);
+        }
+    }
+
+
+    private void unindex(String templateId, String key, IndexEntry entry) {
+        keysByTemplate.computeIfPresent(templateId, (id, keys) -> {
+            keys.remove(key, entry);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+
+    /**
+     * Drop the least recently used tenth of the keys from the index and the
+     * cache, once the index has grown past the size of the cache.
+     */
+    private void sweep() {
+
+        synchronized (sweepLock) {
+            if (entries.size() <= maxKeys) {
+                return;
+            }
+            int excess = entries.size() - (maxKeys - maxKeys / 10);
+
+            List<Map.Entry<String, IndexEntry>> oldest = new ArrayList<>(entries.entrySet());
+            oldest.sort((a, b) -> Long.compare(a.getValue().lastUsed, b.getValue().lastUsed));
+            for (Map.Entry<String, IndexEntry> dropped : oldest.subList(0, Math.min(excess, oldest.size()))) {
+                unindex(dropped.getKey(), dropped.getValue());
+                templateCache.remove(dropped.getKey());
+            }
+            log.debug("dropped "+excess+" least recently used templates");
+        }
+    }
+
+
+    public void clear() {
+        templateCache.clear();
+        keysByTemplate.clear();
+        entries.clear();
+        log.debug("CLEAR");
+    }
+
+
+    @Override
+    public Iterator<Object> enumerateKeys() {
+        return new ArrayList<Object>(entries.keySet()).iterator();
+    }
+
+
+    /**
+     * Drop all renditions of a template.
+     */
+    public void invalidate(String templateId) {
+
+        Map<String, IndexEntry> keys = keysByTemplate.remove(templateId);
+        if (keys != null) {
+            for (Map.Entry<String, IndexEntry> key : keys.entrySet()) {
+                entries.remove(key.getKey(), key.getValue());
+                templateCache.remove(key.getKey());
+            }
+            log.debug("invalidated template "+templateId);
+        }
+    }
+
+
+    /**
+     * Drop all templates of a shared theme, called when a theme is reloaded.
+     */
+    public void invalidateTheme(String themeId) {
+
+        String prefix = themeId + ":";
+        for (String templateId : new ArrayList<>(keysByTemplate.keySet())) {
+            if (templateId.startsWith(prefix)) {
+                invalidate(templateId);
+            }
+        }
+    }
+
+
+    /**
+     * Drop all renditions of a template if they were parsed from an older
+     * version than the one about to be rendered.
+     */
+    public void validate(Template template) {
+
+        Date lastModified = template.getLastModified();
+        Map<String, IndexEntry> keys = keysByTemplate.get(template.getId());
+        if (lastModified == null || keys == null) {
+            return;
+        }
+
+        for (IndexEntry parsed : keys.values()) {
+            if (parsed.lastModified < lastModified.getTime()) {
+                log.debug("template "+template.getId()+" modified since it was parsed");
+                invalidate(template.getId());
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Cache stats plus the number and duration, in milliseconds, of the
+     * loads and parses which happened on cache misses.
+     */
+    public Map<String, Object> getStats() {
+
+        Map<String, Object> stats = new HashMap<>(templateCache.getStats());
+        long count = parses.sum();
+        stats.put("parses", count);
+        stats.put("parseTime", parseTime.sum() / 1000000);
+        stats.put("maxParseTime", maxParseTime.get() / 1000000);
+        stats.put("avgParseTime", count > 0 ? parseTime.sum() / count / 1000000.0 : 0);
+        return stats;
+    }
+
+
+    private static boolean isRollerResource(Resource resource) {
+        return resource.getResourceLoader() instanceof RollerResourceLoader
+                || resource.getResourceLoader() instanceof ThemeResourceLoader;
+    }
+
+
+    /**
+     * What the index knows about a cached template.
+     */
+    private static final class IndexEntry {
+
+        private final String templateId;
+        private final long lastModified;
+        private final long putAt = System.currentTimeMillis();
+        private volatile long lastUsed = uses.incrementAndGet();
+
+        IndexEntry(String templateId, long lastModified) {
+            this.templateId = templateId;
+            this.lastModified = lastModified;
+        }
+    }
+
+
+    private static String getTemplateId(Resource resource) {
+        String name = resource.getName();
+        int rendition = name.indexOf('|');
+        return rendition < 0 ? name : name.substring(0, rendition);
+    }
+
+
+    @Override
+    public void invalidate(WeblogEntry entry) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(Weblog website) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogBookmark bookmark) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogBookmarkFolder folder) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogEntryComment comment) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(User user) {
+        // ignored
+    }
+
+
+    @Override
+    public void invalidate(WeblogCategory category) {
+        // ignored
+    }
+
+
+    /**
+     * A weblog template has changed.
+     */
+    @Override
+    public void invalidate(WeblogTemplate template) {
+        invalidate(template.getId());
+    }
+
+}
@@ -21,7 +21,11 @@ package org.apache.roller.weblogger.ui.struts2.admin;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import org.apache.roller.weblogger.business.EntryChangeQueue;
+import org.apache.roller.weblogger.business.WebloggerFactory;
+import org.apache.roller.weblogger.business.jpa.SharedCacheMonitor;
 import org.apache.roller.weblogger.pojos.GlobalPermission;
+import org.apache.roller.weblogger.ui.rendering.velocity.VelocityTemplateCache;
 import org.apache.roller.weblogger.ui.struts2.util.UIAction;
 import org.apache.roller.weblogger.util.cache.CacheManager;
 import org.apache.struts2.convention.annotation.AllowedMethods;
@@ -60,7 +64,16 @@ public class CacheInfo extends UIAction {
     
     @Override
     public void myPrepare() {
-        setStats(CacheManager.getStats());
+        Map<String, Map<String, Object>> allStats = CacheManager.getStats();
+        allStats.put("plugins.weblogentry",
+                WebloggerFactory.getWeblogger().getPluginManager().getWeblogEntryPluginStats());
+        allStats.put("queue.entrychange", EntryChangeQueue.getInstance().getStats());
+        VelocityTemplateCache templateCache = VelocityTemplateCache.getInstance();
+        if (templateCache != null) {
+            allStats.put(VelocityTemplateCache.CACHE_ID, templateCache.getStats());
+        }
+        allStats.putAll(SharedCacheMonitor.getInstance().getStats());
+        setStats(allStats);
     }
     
     
@@ -80,10 +93,13 @@ public class CacheInfo extends UIAction {
         
         // see if a specific cache was specified
         String handlerClass = getCache();
-        if(handlerClass != null && handlerClass.length() > 0) {
+        if(handlerClass != null && handlerClass.startsWith(SharedCacheMonitor.CACHE_ID)) {
+            SharedCacheMonitor.getInstance().clear(handlerClass);
+        } else if(handlerClass != null && handlerClass.length() > 0) {
             CacheManager.clear(handlerClass);
         } else {
             CacheManager.clear();
+            SharedCacheMonitor.getInstance().clear(null);
         }
         
         // update stats after clear
@@ -31,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.business.WeblogEntryManager;
+import org.apache.roller.weblogger.business.runnable.CommentBulkOperation;
 import org.apache.roller.weblogger.pojos.CommentSearchCriteria;
 import org.apache.roller.weblogger.pojos.GlobalPermission;
 import org.apache.roller.weblogger.pojos.Weblog;
@@ -188,17 +189,10 @@ public class GlobalCommentManagement extends UIAction implements ServletRequestA
         try {
             WeblogEntryManager wmgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
 
-            CommentSearchCriteria csc = new CommentSearchCriteria();
-            csc.setSearchText(getBean().getSearchString());
-            csc.setStartDate(getBean().getStartDate());
-            csc.setEndDate(getBean().getEndDate());
-            csc.setStatus(getBean().getStatus());
-            csc.setReverseChrono(true);
+            List<String> allMatchingIds = wmgr.getCommentIds(getCommentSearchCriteria());
 
-            List<WeblogEntryComment> allMatchingComments = wmgr.getComments(csc);
-
-            if(allMatchingComments.size() > COUNT) {
-                setBulkDeleteCount(allMatchingComments.size());
+            if(allMatchingIds.size() > COUNT) {
+                setBulkDeleteCount(allMatchingIds.size());
             }
             
         } catch (WebloggerException ex) {
@@ -210,22 +204,70 @@ public class GlobalCommentManagement extends UIAction implements ServletRequestA
     }
     
     
+    private CommentSearchCriteria getCommentSearchCriteria() {
+        CommentSearchCriteria csc = new CommentSearchCriteria();
+        csc.setSearchText(getBean().getSearchString());
+        csc.setStartDate(getBean().getStartDate());
+        csc.setEndDate(getBean().getEndDate());
+        csc.setStatus(getBean().getStatus());
+        csc.setReverseChrono(true);
+        return csc;
+    }
+    
+    
     /**
-     * Bulk delete all comments matching query criteria.
+     * Bulk delete all comments matching query criteria, in the background.
      */
     public String delete() {
+        return startBulkOperation(CommentBulkOperation.Action.DELETE);
+    }
+    
+    
+    /**
+     * Bulk approve all comments matching query criteria, in the background.
+     */
+    public String approve() {
+        return startBulkOperation(CommentBulkOperation.Action.APPROVE);
+    }
+    
+    
+    /**
+     * Bulk mark as spam all comments matching query criteria, in the background.
+     */
+    public String spam() {
+        return startBulkOperation(CommentBulkOperation.Action.SPAM);
+    }
+    
+    
+    /**
+     * Cancel the running bulk operation after its current batch.
+     */
+    public String cancel() {
+        if (!"POST".equals(httpMethod)) {
+            return ERROR;
+        }
+        
+        CommentBulkOperation op = CommentBulkOperation.getCurrent();
+        if (op != null && op.isRunning()) {
+            op.cancel();
+            addMessage("commentManagement.bulkCancelled");
+        }
+        return execute();
+    }
+    
+    
+    private String startBulkOperation(CommentBulkOperation.Action action) {
+        if (!"POST".equals(httpMethod)) {
+            return ERROR;
+        }
         
         try {
-            WeblogEntryManager wmgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
-            int deleted = wmgr.removeMatchingComments(
-                    null,
-                    null,
-                    getBean().getSearchString(),
-                    getBean().getStartDate(),
-                    getBean().getEndDate(),
-                    getBean().getStatus());
+            if (CommentBulkOperation.start(action, getCommentSearchCriteria()) == null) {
+                addError("commentManagement.bulkRunning");
+                return execute();
+            }
             
-            addMessage("commentManagement.deleteSuccess",Integer.toString(deleted));
+            addMessage("commentManagement.bulkStarted");
             
             // reset form and load fresh comments list
             setBean(new GlobalCommentManagementBean());
@@ -233,8 +275,8 @@ public class GlobalCommentManagement extends UIAction implements ServletRequestA
             return execute();
             
         } catch (WebloggerException ex) {
-            log.error("Error doing bulk delete", ex);
-            addError("commentManagement.deleteError");
+            log.error("Error starting bulk " + action, ex);
+            addError("commentManagement.bulkError");
         }
         
         return LIST;
@@ -346,6 +388,13 @@ public class GlobalCommentManagement extends UIAction implements ServletRequestA
         this.bean = bean;
     }
 
+    /**
+     * The running bulk operation or, if none is, the last one to have run.
+     */
+    public CommentBulkOperation getBulkOperation() {
+        return CommentBulkOperation.getCurrent();
+    }
+
     public int getBulkDeleteCount() {
         return bulkDeleteCount;
     }
@@ -187,9 +187,9 @@ public class Comments extends UIAction {
 
             CommentSearchCriteria csc = getCommentSearchCriteria();
 
-            List<WeblogEntryComment> allMatchingComments = wmgr.getComments(csc);
-            if (allMatchingComments.size() > COUNT) {
-                setBulkDeleteCount(allMatchingComments.size());
+            List<String> allMatchingIds = wmgr.getCommentIds(csc);
+            if (allMatchingIds.size() > COUNT) {
+                setBulkDeleteCount(allMatchingIds.size());
             }
 
         } catch (WebloggerException ex) {
@@ -221,33 +221,23 @@ public class Comments extends UIAction {
         try {
             WeblogEntryManager wmgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
 
-            // if search is enabled, we will need to re-index all entries with
-            // comments that have been deleted, so build a list of those entries
-            Set<WeblogEntry> reindexEntries = new HashSet<>();
-            if (WebloggerConfig.getBooleanProperty("search.enabled")) {
-
-                CommentSearchCriteria csc = getCommentSearchCriteria();
+            CommentSearchCriteria csc = getCommentSearchCriteria();
 
-                List<WeblogEntryComment> targetted = wmgr.getComments(csc);
-                for (WeblogEntryComment comment : targetted) {
-                    reindexEntries.add(comment.getWeblogEntry());
-                }
-            }
+            List<String> ids = wmgr.getCommentIds(csc);
+            List<WeblogEntry> entries = wmgr.removeComments(ids);
+            WebloggerFactory.getWeblogger().flush();
 
-            int deleted = wmgr.removeMatchingComments(getActionWeblog(), null,
-                    getBean().getSearchString(), getBean().getStartDate(),
-                    getBean().getEndDate(), getBean().getStatus());
+            CacheManager.invalidate(getActionWeblog());
 
-            // if we've got entries to reindex then do so
-            if (!reindexEntries.isEmpty()) {
+            // if search is enabled, re-index all entries with comments that
+            // have been deleted
+            if (WebloggerConfig.getBooleanProperty("search.enabled")) {
                 IndexManager imgr = WebloggerFactory.getWeblogger().getIndexManager();
-                for (WeblogEntry entry : reindexEntries) {
-                    imgr.addEntryReIndexOperation(entry);
-                }
+                imgr.addEntriesReIndexOperation(entries);
             }
 
             addMessage("commentManagement.deleteSuccess",
-                    Integer.toString(deleted));
+                    Integer.toString(ids.size()));
 
             // reset form and load fresh comments list
             setBean(new CommentsBean());
@@ -42,7 +42,6 @@ package org.apache.roller.weblogger.util;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.validator.routines.UrlValidator;
@@ -54,16 +53,10 @@ public class HTMLSanitizer {
     public static Pattern forbiddenTags = Pattern.compile("^(script|object|embed|link|style|form|input)$");
     public static Pattern allowedTags = Pattern.compile("^(b|p|i|s|a|img|table|thead|tbody|tfoot|tr|th|td|dd|dl|dt|em|h1|h2|h3|h4|h5|h6|li|ul|ol|span|div|strike|strong|"
             + "sub|sup|pre|del|code|blockquote|kbd|br|hr|area|map|object|embed|param|link|form|small|big)$");
-    // <!--.........>
-    private static final Pattern commentPattern = Pattern.compile("<!--.*");
     // <tag ....props.....>
     private static final Pattern tagStartPattern = Pattern.compile("<(?i)(\\w+\\b)\\s*(.*)/?>$");
     // </tag .........>
     private static final Pattern tagClosePattern = Pattern.compile("</(?i)(\\w+\\b)\\s*>$");
-    private static final Pattern standAloneTags = Pattern.compile("^(img|br|hr)$");
-    private static final Pattern selfClosed = Pattern.compile("<.+/>");
-    // prop="...."
-    private static final Pattern attributesPattern = Pattern.compile("(\\w*)\\s*=\\s*\"([^\"]*)\"");
     // color:red;
     private static final Pattern stylePattern = Pattern.compile("([^\\s^:]+)\\s*:\\s*([^;]+);?");
     // url('....')"
@@ -71,6 +64,9 @@ public class HTMLSanitizer {
     // expression(....)"   thanks to Ben Summer
     private static final Pattern forbiddenStylePattern = Pattern.compile("(?:(expression|eval|javascript))\\s*\\(");
 
+    // validators are immutable, so one instance does for every url we check
+    private static final UrlValidator urlValidator = new UrlValidator(new String[]{"http", "https"});
+
     /**
      * This method should be used to test input.
      *
@@ -119,33 +115,53 @@ public class HTMLSanitizer {
         return sanitizer(html, allowedTags, forbiddenTags);
     }
 
+    /**
+     * Scans the html once, token by token, appending to the result buffers as
+     * it goes.  Tags are parsed by hand; the regular expressions are only used
+     * for style attributes and for odd tokens holding more than one '&lt;'.
+     */
     public static SanitizeResult sanitizer(String html, Pattern allowedTags, Pattern forbiddenTags) {
         SanitizeResult ret = new SanitizeResult();
-        Stack<String> openTags = new Stack<>();
+        List<String> openTags = new ArrayList<>();
 
-
-        List<String> tokens = tokenize(html);
+        int len = html.length();
+        StringBuilder retHtml = new StringBuilder(len + 16);
+        StringBuilder retText = new StringBuilder(len);
+        StringBuilder retVal = new StringBuilder(len + 16);
 
         // -------------------   LOOP for every token --------------------------
-        for (String token : tokens) {
+        int pos = 0;
+        while (pos < len) {
+            int tokenEnd = nextTokenEnd(html, pos);
+            String token = html.substring(pos, tokenEnd);
+            pos = tokenEnd;
+
             boolean isAcceptedToken = false;
 
-            Matcher startMatcher = tagStartPattern.matcher(token);
-            Matcher endMatcher = tagClosePattern.matcher(token);
+            // plain text never holds a '<', so it can't be a comment or a tag
+            if (token.charAt(0) != '<') {
+                retVal.append(token);
+                appendEncodedText(retHtml, token, false);
+                appendEncodedText(retText, token, true);
+                continue;
+            }
 
+            String[] startTag;
+            String[] closeTag;
 
             //--------------------------------------------------------------------------------  COMMENT    <!-- ......... -->
-            if (commentPattern.matcher(token).find()) {
-                ret.val = ret.val + token + (token.endsWith("-->") ? "" : "-->");
-                ret.invalidTags.add(token + (token.endsWith("-->") ? "" : "-->"));
+            if (token.contains("<!--")) {
+                String comment = token + (token.endsWith("-->") ? "" : "-->");
+                retVal.append(comment);
+                ret.invalidTags.add(comment);
                 continue;
 
 
                 //--------------------------------------------------------------------------------  OPEN TAG    <tag .........>
-            } else if (startMatcher.find()) {
+            } else if ((startTag = matchStartTag(token)) != null) {
 
                 //tag name extraction
-                String tag = startMatcher.group(1).toLowerCase();
+                String tag = startTag[0].toLowerCase();
 
 
                 //-----------------------------------------------------  FORBIDDEN TAG   <script .........>
@@ -158,45 +174,45 @@ public class HTMLSanitizer {
                 } else if (allowedTags.matcher(tag).find()) {
 
 
-                    String cleanToken = "<" + tag;
-                    String tokenBody = startMatcher.group(2);
+                    StringBuilder cleanToken = new StringBuilder(token.length() + 16).append('<').append(tag);
+                    String tokenBody = startTag[1];
 
 
                     //first test table consistency
                     //table tbody tfoot thead th tr td
                     if ("thead".equals(tag) || "tbody".equals(tag) || "tfoot".equals(tag) || "tr".equals(tag)) {
-                        if (openTags.search("table") < 1) {
+                        if (!openTags.contains("table")) {
                             ret.invalidTags.add("<" + tag + ">");
                             continue;
                         }
-                    } else if (("td".equals(tag) || "th".equals(tag)) && openTags.search("tr") < 1) {
+                    } else if (("td".equals(tag) || "th".equals(tag)) && !openTags.contains("tr")) {
                         ret.invalidTags.add("<" + tag + ">");
                         continue;
                     }
 
 
                     // then test properties
-                    Matcher attributes = attributesPattern.matcher(tokenBody);
-
                     // URL flag
                     boolean foundURL = false;
-                    while (attributes.find()) {
+                    int attrPos = 0;
+                    String[] attribute;
+                    while ((attribute = nextAttribute(tokenBody, attrPos)) != null) {
+                        attrPos = Integer.parseInt(attribute[2]);
 
-                        String attr = attributes.group(1).toLowerCase();
-                        String val = attributes.group(2);
+                        String attr = attribute[0].toLowerCase();
+                        String val = attribute[1];
 
                         // we will accept href in case of <A>
                         // <a href="......">
                         if ("a".equals(tag) && "href".equals(attr)) {
-                            String[] customSchemes = {"http", "https"};
-                            if (new UrlValidator(customSchemes).isValid(val)) {
+                            if (urlValidator.isValid(val)) {
                                 foundURL = true;
                             } else {
                                 // may be it is a mailto?
                                 // case <a href="mailto:pippo@pippo.com?subject=...."
                                 if (val.toLowerCase().startsWith("mailto:") && val.indexOf('@') >= 0) {
                                     String val1 = "http://www." + val.substring(val.indexOf('@') + 1);
-                                    if (new UrlValidator(customSchemes).isValid(val1)) {
+                                    if (urlValidator.isValid(val1)) {
                                         foundURL = true;
                                     } else {
                                         ret.invalidTags.add(attr + " " + val);
@@ -208,10 +224,9 @@ public class HTMLSanitizer {
                                 }
                             }
 
-                        } else if (tag.matches("img|embed") && "src".equals(attr)) {
+                        } else if (("img".equals(tag) || "embed".equals(tag)) && "src".equals(attr)) {
                             // <img src="......">
-                            String[] customSchemes = {"http", "https"};
-                            if (new UrlValidator(customSchemes).isValid(val)) {
+                            if (urlValidator.isValid(val)) {
                                 foundURL = true;
                             } else {
                                 ret.invalidTags.add(attr + " " + val);
@@ -221,9 +236,9 @@ public class HTMLSanitizer {
                             // <tag src/href="......">   skipped
                             ret.invalidTags.add(tag + " " + attr + " " + val);
                             continue;
-                        } else if (attr.matches("width|height")) {
+                        } else if ("width".equals(attr) || "height".equals(attr)) {
                             // <tag width/height="......">
-                            if (!val.toLowerCase().matches("\\d+%|\\d+$")) {
+                            if (!isSize(val)) {
                                 // test numeric values
                                 ret.invalidTags.add(tag + " " + attr + " " + val);
                                 continue;
@@ -233,7 +248,7 @@ public class HTMLSanitizer {
                             // <tag style="......">
                             // then test properties
                             Matcher styles = stylePattern.matcher(val);
-                            String cleanStyle = "";
+                            StringBuilder cleanStyle = new StringBuilder();
 
                             while (styles.find()) {
                                 String styleName = styles.group(1).toLowerCase();
@@ -248,18 +263,17 @@ public class HTMLSanitizer {
                                 // check if valid url
                                 Matcher urlStyleMatcher = urlStylePattern.matcher(styleValue);
                                 if (urlStyleMatcher.find()) {
-                                    String[] customSchemes = {"http", "https"};
                                     String url = urlStyleMatcher.group(1);
-                                    if (!new UrlValidator(customSchemes).isValid(url)) {
+                                    if (!urlValidator.isValid(url)) {
                                         ret.invalidTags.add(tag + " " + attr + " " + styleValue);
                                         continue;
                                     }
                                 }
 
-                                cleanStyle = cleanStyle + styleName + ":" + encode(styleValue) + ";";
+                                cleanStyle.append(styleName).append(':').append(encode(styleValue)).append(';');
 
                             }
-                            val = cleanStyle;
+                            val = cleanStyle.toString();
 
                         } else if (attr.startsWith("on")) {
                             // skip all javascript events
@@ -271,94 +285,90 @@ public class HTMLSanitizer {
                             val = encode(val);
                         }
 
-                        cleanToken = cleanToken + " " + attr + "=\"" + val + "\"";
+                        cleanToken.append(' ').append(attr).append("=\"").append(val).append('"');
                     }
-                    cleanToken = cleanToken + ">";
+                    cleanToken.append('>');
 
                     isAcceptedToken = true;
 
                     // for <img> and <a>
-                    if (tag.matches("a|img|embed") && !foundURL) {
+                    if (("a".equals(tag) || "img".equals(tag) || "embed".equals(tag)) && !foundURL) {
                         isAcceptedToken = false;
-                        cleanToken = "";
+                        cleanToken.setLength(0);
                     }
 
-                    token = cleanToken;
+                    token = cleanToken.toString();
 
 
                     // push the tag if require closure and it is accepted (otherwise is encoded)
-                    if (isAcceptedToken && !(standAloneTags.matcher(tag).find() || selfClosed.matcher(tag).find())) {
-                        openTags.push(tag);
+                    if (isAcceptedToken && !("img".equals(tag) || "br".equals(tag) || "hr".equals(tag))) {
+                        openTags.add(tag);
                     }
 
                     // --------------------------------------------------------------------------------  UNKNOWN TAG
                 } else {
                     ret.invalidTags.add(token);
-                    ret.val = ret.val + token;
+                    retVal.append(token);
                     continue;
 
 
                 }
 
                 // --------------------------------------------------------------------------------  CLOSE TAG </tag>
-            } else if (endMatcher.find()) {
-                String tag = endMatcher.group(1).toLowerCase();
+            } else if ((closeTag = matchCloseTag(token)) != null) {
+                String tag = closeTag[0].toLowerCase();
 
-                //is self closing
-                if (selfClosed.matcher(tag).find()) {
-                    ret.invalidTags.add(token);
-                    continue;
-                }
                 if (forbiddenTags.matcher(tag).find()) {
                     ret.invalidTags.add("/" + tag);
                     continue;
                 }
                 if (!allowedTags.matcher(tag).find()) {
                     ret.invalidTags.add(token);
-                    ret.val = ret.val + token;
+                    retVal.append(token);
                     continue;
                 } else {
 
 
-                    String cleanToken = "";
+                    StringBuilder cleanToken = new StringBuilder();
 
-                    // check tag position in the stack
-                    int pos = openTags.search(tag);
-                    // if found on top ok
-                    for (int i = 1; i <= pos; i++) {
-                        //pop all elements before tag and close it
-                        String poppedTag = openTags.pop();
-                        cleanToken = cleanToken + "</" + poppedTag + ">";
+                    // check tag position in the stack, if found pop all
+                    // elements above the tag and close them along with it
+                    int idx = openTags.lastIndexOf(tag);
+                    if (idx >= 0) {
+                        for (int i = openTags.size() - 1; i >= idx; i--) {
+                            cleanToken.append("</").append(openTags.remove(i)).append('>');
+                        }
                         isAcceptedToken = true;
                     }
 
-                    token = cleanToken;
+                    token = cleanToken.toString();
                 }
 
             }
 
-            ret.val = ret.val + token;
+            retVal.append(token);
 
             if (isAcceptedToken) {
-                ret.html = ret.html + token;
-                //ret.text = ret.text + " ";
+                retHtml.append(token);
             } else {
-                String sanToken = htmlEncodeApexesAndTags(token);
-                ret.html = ret.html + sanToken;
-                ret.text = ret.text + htmlEncodeApexesAndTags(removeLineFeed(token));
+                appendEncodedText(retHtml, token, false);
+                appendEncodedText(retText, token, true);
             }
 
 
         }
 
         // must close remaining tags
-        while (!openTags.isEmpty()) {
-            //pop all elements before tag and close it
-            String poppedTag = openTags.pop();
-            ret.html = ret.html + "</" + poppedTag + ">";
-            ret.val = ret.val + "</" + poppedTag + ">";
+        for (int i = openTags.size() - 1; i >= 0; i--) {
+            String poppedTag = openTags.get(i);
+            retHtml.append("</").append(poppedTag).append('>');
+            retVal.append("</").append(poppedTag).append('>');
         }
 
+        ret.html = retHtml.toString();
+        ret.text = retText.toString();
+        ret.val = retVal.toString();
+
         //set boolean value
         ret.isValid = ret.invalidTags.isEmpty();
 
@@ -366,66 +376,17 @@ public class HTMLSanitizer {
     }
 
     /**
-     * Splits html tag and tag content <......>.
-     *
-     * @param html
-     * @return a list of token
+     * Finds the end of the token starting at pos.  Tokens are comments
+     * &lt;!-- ... --&gt;, tags &lt;......&gt; and the text between them.
      */
-    private static List<String> tokenize(String html) {
-        List<String> tokens = new ArrayList<>();
-        int pos = 0;
-        String token = "";
-        int len = html.length();
-        while (pos < len) {
-            char c = html.charAt(pos);
-
-            String ahead = html.substring(pos, pos > len - 4 ? len : pos + 4);
-
-            //a comment is starting
-            if ("<!--".equals(ahead)) {
-                //store the current token
-                if (token.length() > 0) {
-                    tokens.add(token);
-                }
-
-                //clear the token
-                token = "";
-
-                // search the end of <......>
-                int end = moveToMarkerEnd(pos, "-->", html);
-                tokens.add(html.substring(pos, end));
-                pos = end;
-
-
-                // a new "<" token is starting
-            } else if ('<' == c) {
-
-                //store the current token
-                if (token.length() > 0) {
-                    tokens.add(token);
-                }
-
-                //clear the token
-                token = "";
-
-                // serch the end of <......>
-                int end = moveToMarkerEnd(pos, ">", html);
-                tokens.add(html.substring(pos, end));
-                pos = end;
-
-            } else {
-                token = token + c;
-                pos++;
-            }
-
-        }
-
-        //store the last token
-        if (token.length() > 0) {
-            tokens.add(token);
+    private static int nextTokenEnd(String html, int pos) {
+        if (html.startsWith("<!--", pos)) {
+            return moveToMarkerEnd(pos, "-->", html);
+        } else if (html.charAt(pos) == '<') {
+            return moveToMarkerEnd(pos, ">", html);
         }
-
-        return tokens;
+        int next = html.indexOf('<', pos);
+        return next < 0 ? html.length() : next;
     }
 
     private static int moveToMarkerEnd(int pos, String marker, String s) {
@@ -438,6 +399,124 @@ public class HTMLSanitizer {
         return pos;
     }
 
+    /**
+     * Hand written equivalent of tagStartPattern, returns {name, body} or null.
+     * Tokens with more than one '&lt;' are left to the regex.
+     */
+    private static String[] matchStartTag(String token) {
+        int len = token.length();
+        int nameEnd = 1;
+        while (nameEnd < len && isWordChar(token.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        // \b treats non-ascii letters as word characters, leave those to the regex
+        if (token.indexOf('<', 1) >= 0 || (nameEnd < len && token.charAt(nameEnd) > 0x7f)) {
+            Matcher m = tagStartPattern.matcher(token);
+            return m.find() ? new String[]{m.group(1), m.group(2)} : null;
+        }
+        if (nameEnd == 1 || token.charAt(len - 1) != '>') {
+            return null;
+        }
+        int bodyStart = nameEnd;
+        while (bodyStart < len - 1 && isSpace(token.charAt(bodyStart))) {
+            bodyStart++;
+        }
+        for (int i = bodyStart; i < len - 1; i++) {
+            if (isLineTerminator(token.charAt(i))) {
+                return null;
+            }
+        }
+        return new String[]{token.substring(1, nameEnd), token.substring(bodyStart, len - 1)};
+    }
+
+    /**
+     * Hand written equivalent of tagClosePattern, returns {name} or null.
+     */
+    private static String[] matchCloseTag(String token) {
+        int len = token.length();
+        if (token.indexOf('<', 1) >= 0) {
+            Matcher m = tagClosePattern.matcher(token);
+            return m.find() ? new String[]{m.group(1)} : null;
+        }
+        if (len < 4 || token.charAt(1) != '/' || token.charAt(len - 1) != '>') {
+            return null;
+        }
+        int nameEnd = 2;
+        while (nameEnd < len && isWordChar(token.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        if (nameEnd == 2) {
+            return null;
+        }
+        for (int i = nameEnd; i < len - 1; i++) {
+            if (!isSpace(token.charAt(i))) {
+                return null;
+            }
+        }
+        return new String[]{token.substring(2, nameEnd)};
+    }
+
+    /**
+     * Finds the next name="value" pair in a tag body at or after from, the
+     * same way the old (\\w*)\\s*=\\s*"([^"]*)" pattern did, returning
+     * {name, value, end} or null when there are no more attributes.
+     */
+    private static String[] nextAttribute(String body, int from) {
+        int len = body.length();
+        int start = from;
+        while (start < len) {
+            int i = start;
+            while (i < len && isWordChar(body.charAt(i))) {
+                i++;
+            }
+            int nameEnd = i;
+            while (i < len && isSpace(body.charAt(i))) {
+                i++;
+            }
+            if (i >= len || body.charAt(i) != '=') {
+                // no match starting anywhere up to here either
+                start = Math.max(i, start + 1);
+                continue;
+            }
+            int equals = i++;
+            while (i < len && isSpace(body.charAt(i))) {
+                i++;
+            }
+            int close = (i < len && body.charAt(i) == '"') ? body.indexOf('"', i + 1) : -1;
+            if (close < 0) {
+                start = equals + 1;
+                continue;
+            }
+            return new String[]{body.substring(start, nameEnd), body.substring(i + 1, close), String.valueOf(close + 1)};
+        }
+        return null;
+    }
+
+    // \\w
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    // \\s
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // characters which '.' does not match
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    // \\d+%|\\d+
+    private static boolean isSize(String val) {
+        int len = val.length();
+        int digits = 0;
+        while (digits < len && val.charAt(digits) >= '0' && val.charAt(digits) <= '9') {
+            digits++;
+        }
+        return digits > 0 && (digits == len || (digits == len - 1 && val.charAt(digits) == '%'));
+    }
+
     /**
      * Contains the sanitizing results.
      * html is the sanitized html encoded  ready to be printed. Unaccepted tag are encode, text inside tag is always encoded    MUST BE USED WHEN PRINTING HTML
@@ -455,8 +534,49 @@ public class HTMLSanitizer {
         public List<String> invalidTags = new ArrayList<>();
     }
 
+    /**
+     * Appends s with quotes and angle brackets encoded, and when
+     * removeLineFeeds is set with line feeds turned into spaces, in one pass.
+     */
+    private static void appendEncodedText(StringBuilder buf, String s, boolean removeLineFeeds) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': buf.append("&quot;"); break;
+                case '\'': buf.append("&#39;"); break;
+                case '<': buf.append("&lt;"); break;
+                case '>': buf.append("&gt;"); break;
+                case '\n':
+                case '\f':
+                case '\r':
+                    buf.append(removeLineFeeds ? ' ' : c);
+                    break;
+                default: buf.append(c);
+            }
+        }
+    }
+
     public static String encode(String s) {
-        return convertLineFeedToBR(htmlEncodeApexesAndTags(s == null ? "" : s));
+        if (s == null || s.isEmpty()) {
+            return "";
+        }
+        StringBuilder buf = new StringBuilder(s.length() + 16);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': buf.append("&quot;"); break;
+                case '\'': buf.append("&#39;"); break;
+                case '<': buf.append("&lt;"); break;
+                case '>': buf.append("&gt;"); break;
+                case '\n':
+                case '\f':
+                    buf.append("<br>");
+                    break;
+                case '\r': buf.append(' '); break;
+                default: buf.append(c);
+            }
+        }
+        return buf.toString();
     }
 
     public static final String htmlEncodeApexesAndTags(String source) {
@@ -16,6 +16,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,6 +30,7 @@ import org.apache.commons.text.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.roller.util.LiteralReplacer;
 import org.apache.roller.util.RegexUtil;
 import org.apache.roller.util.RollerConstants;
 
@@ -43,46 +45,30 @@ public class Utilities {
 
     private static final Pattern mLinkPattern = Pattern.compile("<a href=.*?>",
             Pattern.CASE_INSENSITIVE);
-    private static final Pattern OPENING_B_TAG_PATTERN = Pattern.compile(
-            "&lt;b&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CLOSING_B_TAG_PATTERN = Pattern.compile(
-            "&lt;/b&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern OPENING_I_TAG_PATTERN = Pattern.compile(
-            "&lt;i&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CLOSING_I_TAG_PATTERN = Pattern.compile(
-            "&lt;/i&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern OPENING_BLOCKQUOTE_TAG_PATTERN = Pattern
-            .compile("&lt;blockquote&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CLOSING_BLOCKQUOTE_TAG_PATTERN = Pattern
-            .compile("&lt;/blockquote&gt;", Pattern.CASE_INSENSITIVE);
+    // escaped html subset tags allowed in comments, mapped to the real tags
+    private static final LiteralReplacer HTML_SUBSET_TAGS = new LiteralReplacer(Map.ofEntries(
+            Map.entry("&lt;b&gt;", "<b>"),
+            Map.entry("&lt;/b&gt;", "</b>"),
+            Map.entry("&lt;i&gt;", "<i>"),
+            Map.entry("&lt;/i&gt;", "</i>"),
+            Map.entry("&lt;blockquote&gt;", "<blockquote>"),
+            Map.entry("&lt;/blockquote&gt;", "</blockquote>"),
+            Map.entry("&lt;p&gt;", "<p>"),
+            Map.entry("&lt;/p&gt;", "</p>"),
+            Map.entry("&lt;pre&gt;", "<pre>"),
+            Map.entry("&lt;/pre&gt;", "</pre>"),
+            Map.entry("&lt;ul&gt;", "<ul>"),
+            Map.entry("&lt;/ul&gt;", "</ul>"),
+            Map.entry("&lt;ol&gt;", "<ol>"),
+            Map.entry("&lt;/ol&gt;", "</ol>"),
+            Map.entry("&lt;li&gt;", "<li>"),
+            Map.entry("&lt;/li&gt;", "</li>"),
+            Map.entry("&lt;/a&gt;", "</a>"),
+            Map.entry("&quot;", "\"")), true);
     private static final Pattern BR_TAG_PATTERN = Pattern.compile(
             "&lt;br */*&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern OPENING_P_TAG_PATTERN = Pattern.compile(
-            "&lt;p&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CLOSING_P_TAG_PATTERN = Pattern.compile(
-            "&lt;/p&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern OPENING_PRE_TAG_PATTERN = Pattern.compile(
-            "&lt;pre&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CLOSING_PRE_TAG_PATTERN = Pattern.compile(
-            "&lt;/pre&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern OPENING_UL_TAG_PATTERN = Pattern.compile(
-            "&lt;ul&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CLOSING_UL_TAG_PATTERN = Pattern.compile(
-            "&lt;/ul&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern OPENING_OL_TAG_PATTERN = Pattern.compile(
-            "&lt;ol&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CLOSING_OL_TAG_PATTERN = Pattern.compile(
-            "&lt;/ol&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern OPENING_LI_TAG_PATTERN = Pattern.compile(
-            "&lt;li&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CLOSING_LI_TAG_PATTERN = Pattern.compile(
-            "&lt;/li&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CLOSING_A_TAG_PATTERN = Pattern.compile(
-            "&lt;/a&gt;", Pattern.CASE_INSENSITIVE);
     private static final Pattern OPENING_A_TAG_PATTERN = Pattern.compile(
             "&lt;a href=.*?&gt;", Pattern.CASE_INSENSITIVE);
-    private static final Pattern QUOTE_PATTERN = Pattern.compile("&quot;",
-            Pattern.CASE_INSENSITIVE);
 
     // ------------------------------------------------------------------------
     /** Strip jsessionid off of a URL */
@@ -956,27 +942,12 @@ public class Utilities {
             return null;
         }
 
-        s = replace(s, OPENING_B_TAG_PATTERN, "<b>");
-        s = replace(s, CLOSING_B_TAG_PATTERN, "</b>");
-        s = replace(s, OPENING_I_TAG_PATTERN, "<i>");
-        s = replace(s, CLOSING_I_TAG_PATTERN, "</i>");
-        s = replace(s, OPENING_BLOCKQUOTE_TAG_PATTERN, "<blockquote>");
-        s = replace(s, CLOSING_BLOCKQUOTE_TAG_PATTERN, "</blockquote>");
+        // none of the literal tags can overlap each other or the br tag,
+        // so one pass over all of them gives the same result as one per tag
+        s = HTML_SUBSET_TAGS.replace(s);
         s = replace(s, BR_TAG_PATTERN, "<br />");
-        s = replace(s, OPENING_P_TAG_PATTERN, "<p>");
-        s = replace(s, CLOSING_P_TAG_PATTERN, "</p>");
-        s = replace(s, OPENING_PRE_TAG_PATTERN, "<pre>");
-        s = replace(s, CLOSING_PRE_TAG_PATTERN, "</pre>");
-        s = replace(s, OPENING_UL_TAG_PATTERN, "<ul>");
-        s = replace(s, CLOSING_UL_TAG_PATTERN, "</ul>");
-        s = replace(s, OPENING_OL_TAG_PATTERN, "<ol>");
-        s = replace(s, CLOSING_OL_TAG_PATTERN, "</ol>");
-        s = replace(s, OPENING_LI_TAG_PATTERN, "<li>");
-        s = replace(s, CLOSING_LI_TAG_PATTERN, "</li>");
-        s = replace(s, QUOTE_PATTERN, "\"");
 
         // HTTP links
-        s = replace(s, CLOSING_A_TAG_PATTERN, "</a>");
         Matcher m = OPENING_A_TAG_PATTERN.matcher(s);
         while (m.find()) {
             int start = m.start();
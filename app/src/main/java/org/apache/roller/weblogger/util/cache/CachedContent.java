@@ -3,11 +3,13 @@ package org.apache.roller.weblogger.util.cache;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import java.util.Arrays;
 import org.apache.roller.util.RollerConstants;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -26,22 +28,51 @@ public class CachedContent implements AutoCloseable, Serializable {
     private final String contentType;
     
     // Use a byte array output stream to cached the output bytes
-    private transient ByteArrayOutputStream outstream = null;
+    private transient ContentOutputStream outstream = null;
+    
+    // number of bytes written up to the last flush(), -1 once copied to content
+    private transient int flushedSize = -1;
     
     // The PrintWriter that users will be writing to
     private transient PrintWriter cachedWriter = null;
     
+    // true once output has started passing through to the tee
+    private transient volatile boolean passedThrough = false;
+    
     
     public CachedContent(int size) {
         this(size, null);
     }
     
     public CachedContent(int size, String contentType) {
+        this(size, contentType, null);
+    }
+    
+    /**
+     * Construct a CachedContent which also passes everything written to it
+     * straight through to another stream, normally a response, so that the
+     * client sees output as it is produced while it is captured for the cache.
+     *
+     * Errors writing to the other stream, like the client going away, stop
+     * the pass through but not the capture.
+     */
+    public CachedContent(int size, String contentType, OutputStream tee) {
+        this(size, contentType, tee, 0);
+    }
+    
+    /**
+     * Construct a CachedContent which holds output back until more than
+     * threshold bytes have been written and only then starts passing it
+     * through to another stream.  Output which never grows past the threshold
+     * is not passed through at all, see {@link #isPassedThrough()}, so the
+     * caller can still send an error instead, or send it with a length.
+     */
+    public CachedContent(int size, String contentType, OutputStream tee, int threshold) {
         // construct output stream
         if(size > 0) {
-            this.outstream = new ByteArrayOutputStream(size);
+            this.outstream = new ContentOutputStream(size, tee, threshold);
         } else {
-            this.outstream = new ByteArrayOutputStream(RollerConstants.EIGHT_KB_IN_BYTES);
+            this.outstream = new ContentOutputStream(RollerConstants.EIGHT_KB_IN_BYTES, tee, threshold);
         }
         
         // construct writer from output stream
@@ -58,6 +89,11 @@ public class CachedContent implements AutoCloseable, Serializable {
      *       enclosed Writer up until the last call to flush().
      */
     public byte[] getContent() {
+        if(this.flushedSize >= 0) {
+            // only copy the bytes out when someone actually wants them
+            this.content = this.outstream.toByteArray(this.flushedSize);
+            this.flushedSize = -1;
+        }
         return this.content;
     }
     
@@ -69,7 +105,7 @@ public class CachedContent implements AutoCloseable, Serializable {
      *       enclosed Writer up until the last call to flush().
      */
     public String getContentAsString() {
-        return new String(this.content, UTF_8);
+        return new String(getContent(), UTF_8);
     }
     
     
@@ -83,6 +119,15 @@ public class CachedContent implements AutoCloseable, Serializable {
     }
     
     
+    /**
+     * True if any output has started passing through to the stream given at
+     * construction, false if all of it is still only held here.
+     */
+    public boolean isPassedThrough() {
+        return passedThrough;
+    }
+    
+    
     /**
      * Called to flush any output in the cached Writer to
      * the cached content for more permanent storage.
@@ -96,9 +141,9 @@ public class CachedContent implements AutoCloseable, Serializable {
         }
         
         this.cachedWriter.flush();
-        this.content = this.outstream.toByteArray();
+        this.flushedSize = this.outstream.size();
         
-        log.debug("FLUSHED "+this.content.length);
+        log.debug("FLUSHED "+this.flushedSize);
     }
     
     
@@ -115,15 +160,106 @@ public class CachedContent implements AutoCloseable, Serializable {
         }
         
         if(this.outstream != null) {
-            // avoid copying the content again if it hasn't changed since last flush
-            if(this.content.length != this.outstream.size()) {
-                this.content = this.outstream.toByteArray();
-            }
-            this.outstream.close();
+            // copy the content exactly once
+            this.flushedSize = this.outstream.size();
+            getContent();
             this.outstream = null;
         }
         
         log.debug("CLOSED");
     }
     
+    
+    /**
+     * Byte array stream which can copy out a prefix of its content and
+     * optionally passes writes through to another stream once more than
+     * a threshold of bytes has been written.
+     */
+    private final class ContentOutputStream extends ByteArrayOutputStream {
+        
+        private OutputStream tee;
+        
+        private final int threshold;
+        
+        ContentOutputStream(int size, OutputStream tee, int threshold) {
+            super(size);
+            this.tee = tee;
+            this.threshold = threshold;
+        }
+        
+        @Override
+        public synchronized void write(int b) {
+            super.write(b);
+            if (passThrough(1)) {
+                try {
+                    tee.write(b);
+                } catch (IOException e) {
+                    teeFailed(e);
+                }
+            }
+        }
+        
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            super.write(b, off, len);
+            if (passThrough(len)) {
+                try {
+                    tee.write(b, off, len);
+                } catch (IOException e) {
+                    teeFailed(e);
+                }
+            }
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            if (tee != null && passedThrough) {
+                try {
+                    tee.flush();
+                } catch (IOException e) {
+                    teeFailed(e);
+                }
+            }
+        }
+        
+        @Override
+        public void close() {
+            // the tee belongs to someone else, leave it open
+            tee = null;
+        }
+        
+        synchronized byte[] toByteArray(int len) {
+            return (len == buf.length) ? buf : Arrays.copyOf(buf, len);
+        }
+        
+        /**
+         * True if the last len bytes written should go to the tee as well,
+         * sending everything held back so far first when crossing the threshold.
+         */
+        private boolean passThrough(int len) {
+            if (tee == null) {
+                return false;
+            }
+            if (passedThrough) {
+                return true;
+            }
+            if (count <= threshold) {
+                return false;
+            }
+            passedThrough = true;
+            try {
+                tee.write(buf, 0, count - len);
+            } catch (IOException e) {
+                teeFailed(e);
+                return false;
+            }
+            return true;
+        }
+        
+        private void teeFailed(IOException e) {
+            log.debug("Stopped passing output through: "+e.getMessage());
+            tee = null;
+        }
+    }
+    
 }
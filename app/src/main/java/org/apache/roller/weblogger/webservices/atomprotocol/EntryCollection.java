@@ -50,6 +50,7 @@ import org.apache.roller.weblogger.business.Weblogger;
 import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.business.search.IndexManager;
 import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
+import org.apache.roller.weblogger.pojos.KeysetCursor;
 import org.apache.roller.weblogger.pojos.User;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.WeblogCategory;
@@ -165,7 +166,15 @@ public class EntryCollection {
                 } catch (Exception e) {
                     log.warn("Unparsable range: " + pathInfo[2]);
                 }
-            }        
+            }
+            // cursor of the entry the page continues after, if any
+            KeysetCursor after = null;
+            if (pathInfo.length > 3) {
+                after = KeysetCursor.fromToken(pathInfo[3].trim());
+                if (after == null) {
+                    log.warn("Unparsable cursor: " + pathInfo[3]);
+                }
+            }
             String handle = pathInfo[0];
             String absUrl = WebloggerRuntimeConfig.getAbsoluteContextURL();
             Weblog website = roller.getWeblogManager().getWeblogByHandle(handle);
@@ -178,7 +187,11 @@ public class EntryCollection {
             WeblogEntrySearchCriteria wesc = new WeblogEntrySearchCriteria();
             wesc.setWeblog(website);
             wesc.setSortBy(WeblogEntrySearchCriteria.SortBy.UPDATE_TIME);
-            wesc.setOffset(start);
+            if (after != null) {
+                wesc.setCursor(after);
+            } else {
+                wesc.setOffset(start);
+            }
             wesc.setMaxResults(max + 1);
             List<WeblogEntry> entries = roller.getWeblogEntryManager().getWeblogEntries(wesc);
             Feed feed = new Feed();
@@ -194,10 +207,12 @@ public class EntryCollection {
 
             List<Entry> atomEntries = new ArrayList<>();
             int count = 0;
+            WeblogEntry last = null;
             for (WeblogEntry rollerEntry : entries) {
                 if (count++ >= MAX_ENTRIES) {
                     break;
                 }
+                last = rollerEntry;
                 Entry entry = createAtomEntry(rollerEntry);
                 atomEntries.add(entry);
                 if (count == 1) {
@@ -211,6 +226,12 @@ public class EntryCollection {
                 int nextOffset = start + max;
                 String url = atomURL+"/"
                         + website.getHandle() + "/entries/" + nextOffset;
+                // continue after the last entry rather than skipping rows
+                KeysetCursor next = last != null
+                        ? KeysetCursor.after(last, WeblogEntrySearchCriteria.SortBy.UPDATE_TIME) : null;
+                if (next != null) {
+                    url += "/" + next.toToken();
+                }
                 Link nextLink = new Link();
                 nextLink.setRel("next");
                 nextLink.setHref(url);
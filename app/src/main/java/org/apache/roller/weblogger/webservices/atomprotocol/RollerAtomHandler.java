@@ -24,6 +24,7 @@ import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.util.RollerConstants;
+import org.apache.roller.weblogger.business.CredentialCache;
 import org.apache.roller.weblogger.business.Weblogger;
 import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.pojos.User;
@@ -475,10 +476,19 @@ public class RollerAtomHandler implements AtomHandler {
                         int p = userPass.indexOf(':');
                         if (p != -1) {
                             userID = userPass.substring(0, p);
-                            User inUser = roller.getUserManager().getUserByUserName(userID);
-                            if (inUser.getEnabled()) {
-                                String password = userPass.substring(p+1);
-                                valid = RollerContext.getPasswordEncoder().matches(password, user.getPassword());
+                            String password = userPass.substring(p+1);
+                            CredentialCache credentialCache = CredentialCache.getInstance();
+                            if (credentialCache.isVerified(userID, password)) {
+                                valid = true;
+                            } else {
+                                long generation = credentialCache.getGeneration(userID);
+                                User inUser = roller.getUserManager().getUserByUserName(userID);
+                                if (inUser != null && inUser.getEnabled()) {
+                                    valid = RollerContext.getPasswordEncoder().matches(password, inUser.getPassword());
+                                    if (valid) {
+                                        credentialCache.putVerified(userID, generation, password);
+                                    }
+                                }
                             }
                         }
                     }
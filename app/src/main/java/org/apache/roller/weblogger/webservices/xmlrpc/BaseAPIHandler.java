@@ -26,6 +26,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.xmlrpc.XmlRpcException;
 import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
+import org.apache.roller.weblogger.business.CredentialCache;
 import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.business.UserManager;
 import org.apache.roller.weblogger.business.WeblogManager;
@@ -116,9 +117,7 @@ public class BaseAPIHandler implements Serializable {
         boolean weblogFound = false;
         Weblog website = null;
         try {
-            UserManager userMgr = WebloggerFactory.getWeblogger().getUserManager();
             WeblogManager weblogMgr = WebloggerFactory.getWeblogger().getWeblogManager();
-            User user = userMgr.getUserByUserName(username);
             
             website = weblogMgr.getWeblogByHandle(blogid);
             if (website != null) {
@@ -128,9 +127,20 @@ public class BaseAPIHandler implements Serializable {
                 	&& WebloggerRuntimeConfig.getBooleanProperty("webservices.enableXmlRpc");
             }
             
-            if (user != null) {
-                userEnabled = user.getEnabled();
-                authenticated = RollerContext.getPasswordEncoder().matches(password, user.getPassword());
+            if (CredentialCache.getInstance().isVerified(username, password)) {
+                userEnabled = true;
+                authenticated = true;
+            } else {
+                long generation = CredentialCache.getInstance().getGeneration(username);
+                UserManager userMgr = WebloggerFactory.getWeblogger().getUserManager();
+                User user = userMgr.getUserByUserName(username);
+                if (user != null) {
+                    userEnabled = user.getEnabled();
+                    authenticated = RollerContext.getPasswordEncoder().matches(password, user.getPassword());
+                    if (authenticated && userEnabled) {
+                        CredentialCache.getInstance().putVerified(username, generation, password);
+                    }
+                }
             }
         } catch (Exception e) {
             mLogger.error("ERROR internal error validating user", e);
@@ -167,14 +177,25 @@ public class BaseAPIHandler implements Serializable {
         boolean apiEnabled = false;
         try {
             
-            UserManager userMgr = WebloggerFactory.getWeblogger().getUserManager();
-            User user = userMgr.getUserByUserName(username);
-            
-            if (user != null) {
-                enabled = user.getEnabled();
-                authenticated = RollerContext.getPasswordEncoder().matches(password, user.getPassword());
+            if (CredentialCache.getInstance().isVerified(username, password)) {
+                enabled = true;
+                authenticated = true;
                 
                 apiEnabled = WebloggerRuntimeConfig.getBooleanProperty("webservices.enableXmlRpc");
+            } else {
+                long generation = CredentialCache.getInstance().getGeneration(username);
+                UserManager userMgr = WebloggerFactory.getWeblogger().getUserManager();
+                User user = userMgr.getUserByUserName(username);
+                
+                if (user != null) {
+                    enabled = user.getEnabled();
+                    authenticated = RollerContext.getPasswordEncoder().matches(password, user.getPassword());
+                    if (authenticated && enabled) {
+                        CredentialCache.getInstance().putVerified(username, generation, password);
+                    }
+                    
+                    apiEnabled = WebloggerRuntimeConfig.getBooleanProperty("webservices.enableXmlRpc");
+                }
             }
         } catch (Exception e) {
             mLogger.error("ERROR internal error validating user", e);
@@ -45,6 +45,24 @@
     </s:else>
 </p>
 
+<%-- progress of the global bulk operation, running in the background --%>
+<s:if test="actionName != 'comments' && bulkOperation != null">
+    <s:form action="globalCommentManagement!cancel" id="bulkOperation" cssClass="form-inline">
+        <s:hidden name="salt"/>
+        <p>
+            <s:text name="commentManagement.bulkProgress">
+                <s:param value="bulkOperation.action"/>
+                <s:param value="bulkOperation.processed"/>
+                <s:param value="bulkOperation.total"/>
+                <s:param value="bulkOperation.state"/>
+            </s:text>
+            <s:if test="bulkOperation.running">
+                <s:submit cssClass="btn btn-default btn-xs" value="%{getText('commentManagement.bulkCancel')}"/>
+            </s:if>
+        </p>
+    </s:form>
+</s:if>
+
 <s:if test="pager.items.isEmpty">
     <s:text name="commentManagement.noCommentsFound"/>
 </s:if>
@@ -137,9 +155,17 @@
                 <s:text name="commentManagement.bulkDeletePrompt1">
                     <s:param value="bulkDeleteCount"/>
                 </s:text>
-                <a href="#" onclick="bulkDelete()">
+                <a href="#" onclick="bulkAction('delete', '<s:text name="commentManagement.confirmBulkDelete"><s:param value="bulkDeleteCount"/></s:text>')">
                     <s:text name="commentManagement.bulkDeletePrompt2"/>
                 </a>
+                <s:if test="actionName != 'comments'">
+                    <a href="#" onclick="bulkAction('approve', '<s:text name="commentManagement.confirmBulkApprove"><s:param value="bulkDeleteCount"/></s:text>')">
+                        <s:text name="commentManagement.bulkApprovePrompt"/>
+                    </a>
+                    <a href="#" onclick="bulkAction('spam', '<s:text name="commentManagement.confirmBulkSpam"><s:param value="bulkDeleteCount"/></s:text>')">
+                        <s:text name="commentManagement.bulkSpamPrompt"/>
+                    </a>
+                </s:if>
             </p>
         </s:if>
 
@@ -398,15 +424,22 @@
     });
     </s:if>
 
-    <%-- TODO: hook this up; it is currently not working in Roller trunk either --%>
-
-    function bulkDelete() {
-        if (window.confirm('<s:text name="commentManagement.confirmBulkDelete"><s:param value="bulkDeleteCount" /></s:text>')) {
-            document.commentQueryForm.method.value = "bulkDelete";
-            document.commentQueryForm.submit();
+    <%-- run a bulk action on all comments matching the query of the sidebar form --%>
+    function bulkAction(method, confirmText) {
+        if (window.confirm(confirmText)) {
+            var form = document.getElementById("commentsQuery");
+            form.action = form.action.replace("!query", "!" + method);
+            form.submit();
         }
     }
 
+    <%-- follow the progress of a running bulk operation --%>
+    <s:if test="actionName != 'comments' && bulkOperation != null && bulkOperation.running">
+    setTimeout(function () {
+        window.location = '<s:url action="globalCommentManagement" namespace="/roller-ui/admin"/>';
+    }, 5000);
+    </s:if>
+
     var comments = {};
 
     function editComment(id) {
@@ -24,6 +24,9 @@ import org.apache.roller.weblogger.TestUtils;
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.pojos.*;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment.ApprovalStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
@@ -48,6 +51,7 @@ public class CommentTest  {
     /**
      * All tests in this suite require a user, weblog, and an entry.
      */
+    @BeforeEach
     public void setUp() throws Exception {
         
         // setup weblogger
@@ -64,6 +68,7 @@ public class CommentTest  {
         }
     }
     
+    @AfterEach
     public void tearDown() throws Exception {
         
         try {
@@ -81,6 +86,7 @@ public class CommentTest  {
     /**
      * Test basic persistence operations ... Create, Update, Delete
      */
+    @Test
     public void testCommentCRUD() throws Exception {
         
         WeblogEntryManager mgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
@@ -128,6 +134,7 @@ public class CommentTest  {
     /**
      * Test lookup mechanisms ... 
      */
+    @Test
     public void testCommentLookups() throws Exception {
         
         WeblogEntryManager mgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
@@ -172,6 +179,11 @@ public class CommentTest  {
         assertNotNull(comments);
         assertEquals(2, comments.size());
         
+        // entry keeps count of approved comments only
+        testEntry = TestUtils.getManagedWeblogEntry(testEntry);
+        assertEquals(2, testEntry.getCommentCount());
+        assertEquals(0, mgr.reconcileCommentCounts());
+        
         // get comments with offset
         csc.setStatus(null);
         csc.setOffset(1);
@@ -187,12 +199,66 @@ public class CommentTest  {
     }
     
     
+    /**
+     * Test bulk status updates and deletes by comment id.
+     */
+    @Test
+    public void testBulkCommentModeration() throws Exception {
+        
+        WeblogEntryManager mgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
+        
+        testEntry = TestUtils.getManagedWeblogEntry(testEntry);
+        WeblogEntryComment comment1 = TestUtils.setupComment("bulk1", testEntry);
+        WeblogEntryComment comment2 = TestUtils.setupComment("bulk2", testEntry);
+        WeblogEntryComment comment3 = TestUtils.setupComment("bulk3", testEntry);
+        TestUtils.endSession(true);
+        
+        CommentSearchCriteria csc = new CommentSearchCriteria();
+        csc.setEntry(TestUtils.getManagedWeblogEntry(testEntry));
+        List<String> ids = mgr.getCommentIds(csc);
+        assertEquals(3, ids.size());
+        
+        // mark two as spam
+        List<WeblogEntry> entries = mgr.updateCommentStatus(
+                List.of(comment1.getId(), comment2.getId()), ApprovalStatus.SPAM);
+        assertEquals(1, entries.size());
+        assertEquals(1, entries.get(0).getCommentCount());
+        TestUtils.endSession(true);
+        
+        csc.setStatus(ApprovalStatus.SPAM);
+        assertEquals(2, mgr.getCommentIds(csc).size());
+        assertEquals(0, mgr.reconcileCommentCounts());
+        
+        // setting the same status again changes nothing
+        entries = mgr.updateCommentStatus(List.of(comment1.getId()), ApprovalStatus.SPAM);
+        assertTrue(entries.isEmpty());
+        
+        // approve one back
+        entries = mgr.updateCommentStatus(List.of(comment2.getId()), ApprovalStatus.APPROVED);
+        assertEquals(2, entries.get(0).getCommentCount());
+        TestUtils.endSession(true);
+        assertEquals(0, mgr.reconcileCommentCounts());
+        
+        // delete all of them
+        entries = mgr.removeComments(ids);
+        assertEquals(1, entries.size());
+        assertEquals(0, entries.get(0).getCommentCount());
+        TestUtils.endSession(true);
+        
+        csc.setStatus(null);
+        assertTrue(mgr.getCommentIds(csc).isEmpty());
+        assertNull(mgr.getComment(comment3.getId()));
+        assertEquals(0, mgr.reconcileCommentCounts());
+    }
+    
+    
     /**
      * Test that when deleting parent objects of a comment that everything
      * down the chain is properly deleted as well.  i.e. deleting an entry
      * should delete all comments on that entry, and deleting a weblog should
      * delete all comments, etc.
      */
+    @Test
     public void testCommentParentDeletes() throws Exception {
         
         log.info("BEGIN");
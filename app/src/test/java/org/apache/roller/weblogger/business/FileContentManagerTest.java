@@ -98,6 +98,8 @@ public class FileContentManagerTest  {
             assertTrue(true, "Exception thrown for non-existant file as expected");
         }
 
+        long usage = fmgr.getStorageUsage(testWeblog);
+
         // store a file
         InputStream is = getClass().getResourceAsStream("/bookmarks.opml");
         fmgr.saveFileContent(testWeblog, "bookmarks-file-id", is);
@@ -106,9 +108,14 @@ public class FileContentManagerTest  {
         FileContent fileContent1 = fmgr.getFileContent(testWeblog, "bookmarks-file-id");
         assertEquals("bookmarks-file-id", fileContent1.getFileId());
 
+        // and is accounted for in the weblog's storage usage
+        assertEquals(usage + fileContent1.getLength(), fmgr.getStorageUsage(testWeblog));
+        assertEquals(usage + fileContent1.getLength(), fmgr.reconcileStorageUsage(testWeblog));
+
 
         // delete file
         fmgr.deleteFile(testWeblog, "bookmarks-file-id");
+        assertEquals(usage, fmgr.getStorageUsage(testWeblog));
 
         // File should not exist after delete
         try {
@@ -118,6 +125,18 @@ public class FileContentManagerTest  {
             assertTrue(true, "Exception thrown for non-existant file as expected");
         }
 
+        // a save which would take the weblog over quota is refused
+        config = pmgr.getProperties();
+        config.get("uploads.dir.maxsize").setValue("0.0001");
+        pmgr.saveProperties(config);
+        TestUtils.endSession(true);
+        Weblog weblog = testWeblog;
+        assertThrows(FileIOException.class, () -> fmgr.saveFileContent(weblog,
+                "bookmarks-file-id", getClass().getResourceAsStream("/bookmarks.opml")));
+        assertEquals(usage, fmgr.getStorageUsage(testWeblog));
+        assertThrows(FileNotFoundException.class,
+                () -> fmgr.getFileContent(weblog, "bookmarks-file-id"));
+
         TestUtils.endSession(true);
         TestUtils.teardownWeblog(testWeblog.getId());
         TestUtils.teardownUser(testUser.getUserName());
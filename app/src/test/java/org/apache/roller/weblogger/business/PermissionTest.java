@@ -20,6 +20,7 @@ package org.apache.roller.weblogger.business;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.TestUtils;
+import org.apache.roller.weblogger.business.jpa.QueryCounter;
 import org.apache.roller.weblogger.pojos.User;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.WeblogPermission;
@@ -321,4 +322,46 @@ public class PermissionTest  {
         TestUtils.endSession(true);
         log.info("END");
     }
+
+
+    /**
+     * Tests that permission checks are cached and that changing
+     * permissions takes effect right away.
+     */
+    @Test
+    public void testPermissionCache() throws Exception {
+
+        UserManager umgr = WebloggerFactory.getWeblogger().getUserManager();
+        User user = TestUtils.setupUser("cachedPermsUser");
+        TestUtils.endSession(true);
+
+        WeblogPermission post = new WeblogPermission(testWeblog, user, WeblogPermission.POST);
+        assertFalse(umgr.checkPermission(post, user));
+
+        // a second check is answered from the cache
+        QueryCounter.reset();
+        assertFalse(umgr.checkPermission(post, user));
+        assertEquals(0, QueryCounter.getCount());
+
+        // changes drop what was cached
+        umgr.grantWeblogPermission(testWeblog, user, Collections.singletonList(WeblogPermission.POST));
+        TestUtils.endSession(true);
+        assertTrue(umgr.checkPermission(post, user));
+        QueryCounter.reset();
+        assertTrue(umgr.checkPermission(post, user));
+        assertEquals(0, QueryCounter.getCount());
+
+        umgr.revokeWeblogPermission(testWeblog, user, Collections.singletonList(WeblogPermission.POST));
+        TestUtils.endSession(true);
+        assertFalse(umgr.checkPermission(post, user));
+
+        // roles too
+        umgr.grantRole("admin", user);
+        TestUtils.endSession(true);
+        assertTrue(umgr.getRoles(user).contains("admin"));
+        assertTrue(umgr.checkPermission(post, user));
+
+        TestUtils.teardownUser(user.getUserName());
+        TestUtils.endSession(true);
+    }
 }
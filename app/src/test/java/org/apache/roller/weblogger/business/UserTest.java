@@ -231,4 +231,47 @@ public class UserTest  {
         TestUtils.endSession(true);
     }
 
+
+
+    /**
+     * Test that verified credentials are forgotten when the password changes
+     * or the user is disabled.
+     */
+    @Test
+    public void testCredentialCache() throws Exception {
+
+        UserManager mgr = WebloggerFactory.getWeblogger().getUserManager();
+        CredentialCache credentials = CredentialCache.getInstance();
+        User user = TestUtils.setupUser("credentialsTestUser");
+        TestUtils.endSession(true);
+
+        credentials.putVerified(user.getUserName(), credentials.getGeneration(user.getUserName()), "secret");
+        assertTrue(credentials.isVerified(user.getUserName(), "secret"));
+        assertFalse(credentials.isVerified(user.getUserName(), "other"));
+        assertFalse(credentials.isVerified("someoneElse", "secret"));
+
+        // password change, also while the old one was being checked
+        long generation = credentials.getGeneration(user.getUserName());
+        user = TestUtils.getManagedUser(user);
+        user.setPassword("changed");
+        mgr.saveUser(user);
+        assertFalse(credentials.isVerified(user.getUserName(), "secret"));
+        credentials.putVerified(user.getUserName(), generation, "secret");
+        assertFalse(credentials.isVerified(user.getUserName(), "secret"));
+        TestUtils.endSession(true);
+
+        // user disabled
+        credentials.putVerified(user.getUserName(), credentials.getGeneration(user.getUserName()), "changed");
+        user = TestUtils.getManagedUser(user);
+        user.setEnabled(Boolean.FALSE);
+        mgr.saveUser(user);
+        assertFalse(credentials.isVerified(user.getUserName(), "changed"));
+        TestUtils.endSession(true);
+
+        // and removed
+        credentials.putVerified(user.getUserName(), credentials.getGeneration(user.getUserName()), "changed");
+        TestUtils.teardownUser(user.getUserName());
+        TestUtils.endSession(true);
+        assertFalse(credentials.isVerified(user.getUserName(), "changed"));
+    }
 }
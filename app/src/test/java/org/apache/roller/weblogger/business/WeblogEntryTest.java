@@ -21,6 +21,7 @@ package org.apache.roller.weblogger.business;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.TestUtils;
+import org.apache.roller.weblogger.business.jpa.QueryCounter;
 import org.apache.roller.weblogger.pojos.*;
 import org.apache.roller.weblogger.pojos.WeblogEntry.PubStatus;
 import org.junit.jupiter.api.AfterEach;
@@ -930,6 +931,182 @@ public class WeblogEntryTest  {
 
   
     
+    @Test
+    public void testPublishScheduledEntries() throws Exception {
+        WeblogEntryManager mgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
+
+        testWeblog = TestUtils.getManagedWebsite(testWeblog);
+        testUser = TestUtils.getManagedUser(testUser);
+        WeblogCategory cat = testWeblog.getWeblogCategories().iterator().next();
+
+        WeblogEntry entry = TestUtils.setupWeblogEntry("due1", cat, PubStatus.SCHEDULED, testWeblog, testUser);
+        entry.addTag("one");
+        entry.addTag("two");
+        mgr.saveWeblogEntry(entry);
+        entry = TestUtils.setupWeblogEntry("due2", cat, PubStatus.SCHEDULED, testWeblog, testUser);
+        entry.addTag("one");
+        mgr.saveWeblogEntry(entry);
+        entry = TestUtils.setupWeblogEntry("future", cat, PubStatus.SCHEDULED, testWeblog, testUser);
+        entry.addTag("one");
+        entry.setPubTime(new Timestamp(System.currentTimeMillis() + 3600000));
+        mgr.saveWeblogEntry(entry);
+        TestUtils.endSession(true);
+
+        // scheduled entries don't count towards tag aggregates
+        testWeblog = TestUtils.getManagedWebsite(testWeblog);
+        assertEquals(0, mgr.getTags(testWeblog, null, null, 0, -1).size());
+
+        // one batch at a time
+        assertEquals(1, mgr.publishScheduledEntries(new Date(), 1).size());
+        TestUtils.endSession(true);
+        assertEquals(1, mgr.publishScheduledEntries(new Date(), 1).size());
+        TestUtils.endSession(true);
+        assertEquals(0, mgr.publishScheduledEntries(new Date(), 1).size());
+        TestUtils.endSession(true);
+
+        testWeblog = TestUtils.getManagedWebsite(testWeblog);
+        assertEquals(PubStatus.PUBLISHED, mgr.getWeblogEntryByAnchor(testWeblog, "due1").getStatus());
+        assertEquals(PubStatus.PUBLISHED, mgr.getWeblogEntryByAnchor(testWeblog, "due2").getStatus());
+        assertEquals(PubStatus.SCHEDULED, mgr.getWeblogEntryByAnchor(testWeblog, "future").getStatus());
+
+        Map<String, Integer> weblogTags = new HashMap<>();
+        for (TagStat stat : mgr.getTags(testWeblog, null, null, 0, -1)) {
+            weblogTags.put(stat.getName(), stat.getCount());
+        }
+        assertEquals(Map.of("one", 2, "two", 1), weblogTags);
+
+        Map<String, Integer> siteTags = new HashMap<>();
+        for (TagStat stat : mgr.getTags(null, null, null, 0, -1)) {
+            siteTags.put(stat.getName(), stat.getCount());
+        }
+        assertEquals(Map.of("one", 2, "two", 1), siteTags);
+
+        // aggregates maintained in bulk match the ones recomputed from scratch
+        assertEquals(0, mgr.reconcileTagAggregates());
+        TestUtils.endSession(true);
+
+        // drifted count, duplicate site wide row and unused row are repaired
+        QueryCounter.executeSql("update roller_weblogentrytagagg set total = 7"
+                + " where name = 'one' and websiteid = '" + testWeblog.getId() + "'");
+        QueryCounter.executeSql("insert into roller_weblogentrytagagg (id, websiteid, name, total, lastused)"
+                + " values ('reconcile-dup', null, 'two', 1, CURRENT_TIMESTAMP)");
+        QueryCounter.executeSql("insert into roller_weblogentrytagagg (id, websiteid, name, total, lastused)"
+                + " values ('reconcile-unused', '" + testWeblog.getId() + "', 'unused', 3, CURRENT_TIMESTAMP)");
+        assertEquals(3, mgr.reconcileTagAggregates());
+        TestUtils.endSession(true);
+        assertEquals(0, mgr.reconcileTagAggregates());
+        TestUtils.endSession(true);
+
+        weblogTags.clear();
+        for (TagStat stat : mgr.getTags(testWeblog, null, null, 0, -1)) {
+            weblogTags.put(stat.getName(), stat.getCount());
+        }
+        assertEquals(Map.of("one", 2, "two", 1), weblogTags);
+        siteTags.clear();
+        for (TagStat stat : mgr.getTags(null, null, null, 0, -1)) {
+            siteTags.put(stat.getName(), stat.getCount());
+        }
+        assertEquals(Map.of("one", 2, "two", 1), siteTags);
+    }
+
+    /**
+     * Test that rendering a page of entries takes the same number of queries
+     * however many entries there are on it.
+     */
+    @Test
+    public void testPrefetchWeblogEntries() throws Exception {
+
+        WeblogEntryManager mgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
+        WeblogCategory cat = testWeblog.getWeblogCategory("General");
+
+        for (int i = 0; i < 8; i++) {
+            WeblogEntry entry = TestUtils.setupWeblogEntry("prefetch" + i, cat,
+                    PubStatus.PUBLISHED, testWeblog, testUser);
+            entry.addTag("common");
+            entry.addTag("tag" + i);
+            mgr.saveWeblogEntry(entry);
+        }
+        TestUtils.endSession(true);
+
+        assertEquals(renderQueries(2), renderQueries(8));
+    }
+
+    private int renderQueries(int pageSize) throws Exception {
+
+        WeblogEntryManager mgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
+
+        QueryCounter.clearCache();
+        WeblogEntrySearchCriteria wesc = new WeblogEntrySearchCriteria();
+        wesc.setWeblog(TestUtils.getManagedWebsite(testWeblog));
+        wesc.setMaxResults(pageSize);
+
+        QueryCounter.reset();
+        List<WeblogEntry> entries = mgr.getWeblogEntries(wesc);
+        assertEquals(pageSize, entries.size());
+        mgr.prefetchWeblogEntries(entries);
+
+        // what templates read from each entry
+        for (WeblogEntry entry : entries) {
+            assertEquals(2, entry.getTags().size());
+            assertTrue(entry.getEntryAttributes().isEmpty());
+            assertNotNull(entry.getCategory().getName());
+            assertNotNull(entry.getCreator());
+            assertEquals(0, entry.getCommentCount());
+        }
+        int queries = QueryCounter.getCount();
+
+        TestUtils.endSession(true);
+        return queries;
+    }
+
+    /**
+     * Test that paging with cursors lists the same entries as paging with
+     * offsets, including entries published at the same time.
+     */
+    @Test
+    public void testKeysetPaging() throws Exception {
+
+        WeblogEntryManager mgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
+        WeblogCategory cat = testWeblog.getWeblogCategory("General");
+
+        Timestamp pubTime = new Timestamp(System.currentTimeMillis() - 60000);
+        for (int i = 0; i < 5; i++) {
+            WeblogEntry entry = TestUtils.setupWeblogEntry("keyset" + i, cat,
+                    PubStatus.PUBLISHED, testWeblog, testUser);
+            if (i < 3) {
+                entry.setPubTime(pubTime);
+            }
+            mgr.saveWeblogEntry(entry);
+        }
+        TestUtils.endSession(true);
+
+        WeblogEntrySearchCriteria wesc = new WeblogEntrySearchCriteria();
+        wesc.setWeblog(TestUtils.getManagedWebsite(testWeblog));
+        List<String> byOffset = new ArrayList<>();
+        for (WeblogEntry entry : mgr.getWeblogEntries(wesc)) {
+            byOffset.add(entry.getId());
+        }
+        assertEquals(5, byOffset.size());
+
+        List<String> byCursor = new ArrayList<>();
+        KeysetCursor cursor = null;
+        List<WeblogEntry> page;
+        do {
+            wesc.setMaxResults(2);
+            // cursors go through URLs as tokens
+            wesc.setCursor(cursor != null ? KeysetCursor.fromToken(cursor.toToken()) : null);
+            page = mgr.getWeblogEntries(wesc);
+            for (WeblogEntry entry : page) {
+                byCursor.add(entry.getId());
+                cursor = KeysetCursor.after(entry, WeblogEntrySearchCriteria.SortBy.PUBLICATION_TIME);
+            }
+        } while (!page.isEmpty());
+        assertEquals(byOffset, byCursor);
+
+        assertNull(KeysetCursor.fromToken("not a cursor"));
+        TestUtils.endSession(true);
+    }
+
     /**
      * Test that we can add and remove entry attributes for an entry.
      */
@@ -28,6 +28,8 @@ import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 @TestMethodOrder(MethodOrderer.MethodName.class)
@@ -128,6 +130,49 @@ public class WeblogStatsTest  {
         assertNotNull(map.get("C"));
     }
 
+    @Test
+    public void testLetterMapCounts() throws Exception {
+        Map<String, Long> weblogs = WebloggerFactory.getWeblogger().getWeblogManager().getWeblogHandleLetterMap();
+        assertEquals(26, weblogs.size());
+        assertTrue(weblogs.get("A") >= 1);
+        assertTrue(weblogs.get("B") >= 1);
+        assertEquals(WebloggerFactory.getWeblogger().getWeblogManager().getWeblogsByLetter('A', 0, -1).size(),
+                weblogs.get("A").intValue());
+
+        Map<String, Long> users = WebloggerFactory.getWeblogger().getUserManager().getUserNameLetterMap();
+        assertEquals(26, users.size());
+        // test user names all start with the junit_ prefix
+        assertTrue(users.get("J") >= 2);
+        long j = WebloggerFactory.getWeblogger().getUserManager().getUsersStartingWith(null, null, 0, -1)
+                .stream().filter(u -> u.getUserName().toUpperCase().startsWith("J")).count();
+        assertEquals(j, users.get("J").longValue());
+    }
+
+    @Test
+    public void testSiteStats() throws Exception {
+        SiteStats stats = SiteStatsCache.getInstance().getStats();
+        WeblogManager mgr = WebloggerFactory.getWeblogger().getWeblogManager();
+        assertEquals(mgr.getWeblogCount(), stats.getWeblogCount());
+        assertEquals(mgr.getWeblogHandleLetterMap(), stats.getWeblogHandleLetterMap());
+        assertEquals(WebloggerFactory.getWeblogger().getWeblogEntryManager().getCommentCount(),
+                stats.getCommentCount());
+
+        // same snapshot until weblogs or users are added or removed
+        assertSame(stats, SiteStatsCache.getInstance().getStats());
+
+        Weblog website3 = TestUtils.setupWeblog("a_testWebsite3", user2);
+        TestUtils.endSession(true);
+        try {
+            SiteStats after = SiteStatsCache.getInstance().getStats();
+            assertEquals(stats.getWeblogCount() + 1, after.getWeblogCount());
+            assertEquals(stats.getWeblogHandleLetterMap().get("A") + 1,
+                    after.getWeblogHandleLetterMap().get("A").longValue());
+        } finally {
+            TestUtils.teardownWeblog(website3.getId());
+            TestUtils.endSession(true);
+        }
+    }
+
     @AfterEach
     public void tearDown() throws Exception {
         
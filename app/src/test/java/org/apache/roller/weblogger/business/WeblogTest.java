@@ -20,13 +20,17 @@ package org.apache.roller.weblogger.business;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.TestUtils;
+import org.apache.roller.weblogger.business.jpa.QueryCounter;
+import org.apache.roller.weblogger.business.jpa.SharedCacheMonitor;
 import org.apache.roller.weblogger.pojos.User;
 import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogSnapshot;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -229,5 +233,139 @@ public class WeblogTest  {
         log.info("END");
     }
     
+    
+    /**
+     * Test that weblogs and users looked up again come from the shared cache.
+     */
+    @Test
+    public void testSharedCacheLookups() throws Exception {
+        
+        Weblog testWeblog = null;
+        try {
+            WeblogManager mgr = WebloggerFactory.getWeblogger().getWeblogManager();
+            UserManager umgr = WebloggerFactory.getWeblogger().getUserManager();
+            
+            testWeblog = TestUtils.setupWeblog("sharedCacheWeblog", testUser);
+            TestUtils.endSession(true);
+            
+            QueryCounter.clearCache();
+            assertNotNull(mgr.getWeblogByHandle(testWeblog.getHandle()));
+            assertNotNull(umgr.getUserByUserName(testUser.getUserName()));
+            TestUtils.endSession(true);
+            
+            // a new session finds both without any SQL
+            QueryCounter.reset();
+            Weblog weblog = mgr.getWeblogByHandle(testWeblog.getHandle());
+            assertEquals(testWeblog.getId(), weblog.getId());
+            assertEquals(testUser.getUserName(),
+                    umgr.getUserByUserName(testUser.getUserName()).getUserName());
+            assertEquals(0, QueryCounter.getCount());
+            TestUtils.endSession(true);
+            
+            Map<String, Object> stats = SharedCacheMonitor.getInstance().getStats()
+                    .get(SharedCacheMonitor.CACHE_ID + ".Weblog");
+            assertNotNull(stats);
+            assertTrue((Long) stats.get("hits") > 0);
+            
+        } finally {
+            TestUtils.teardownWeblog(testWeblog.getId());
+            TestUtils.endSession(true);
+        }
+    }
+    
+    
+    /**
+     * Test that looking up a weblog or user before it exists doesn't hide
+     * it once it is created.
+     */
+    @Test
+    public void testLookupBeforeCreate() throws Exception {
+        
+        Weblog testWeblog = null;
+        User lateUser = null;
+        try {
+            WeblogManager mgr = WebloggerFactory.getWeblogger().getWeblogManager();
+            UserManager umgr = WebloggerFactory.getWeblogger().getUserManager();
+            
+            // e.g. registration checking that the handle and name are free
+            assertNull(mgr.getWeblogByHandle("lateWeblog"));
+            assertNull(mgr.getWeblogByHandle("lateWeblog", null));
+            assertNull(umgr.getUserByUserName(TestUtils.JUNIT_PREFIX + "lateUser"));
+            TestUtils.endSession(true);
+            
+            testWeblog = TestUtils.setupWeblog("lateWeblog", testUser);
+            lateUser = TestUtils.setupUser("lateUser");
+            TestUtils.endSession(true);
+            
+            assertNotNull(mgr.getWeblogByHandle("lateWeblog"));
+            assertNotNull(mgr.getWeblogByHandle("lateWeblog", null));
+            assertNotNull(umgr.getUserByUserName(lateUser.getUserName()));
+            TestUtils.endSession(true);
+            
+        } finally {
+            if (testWeblog != null) {
+                TestUtils.teardownWeblog(testWeblog.getId());
+            }
+            if (lateUser != null) {
+                TestUtils.teardownUser(lateUser.getUserName());
+            }
+            TestUtils.endSession(true);
+        }
+    }
+    
+    
+    /**
+     * Test that weblog snapshots are cached and replaced when the weblog
+     * is saved.
+     */
+    @Test
+    public void testWeblogSnapshot() throws Exception {
+        
+        Weblog testWeblog = null;
+        try {
+            WeblogManager mgr = WebloggerFactory.getWeblogger().getWeblogManager();
+            
+            testWeblog = TestUtils.setupWeblog("snapshotWeblog", testUser);
+            TestUtils.endSession(true);
+            
+            WeblogSnapshot snapshot = mgr.getWeblogSnapshot(testWeblog.getHandle());
+            assertNotNull(snapshot);
+            assertEquals(testWeblog.getId(), snapshot.getId());
+            assertEquals(testWeblog.getHandle(), snapshot.getHandle());
+            assertTrue(snapshot.isVisible());
+            TestUtils.endSession(true);
+            
+            // cached snapshots are read without any SQL
+            QueryCounter.reset();
+            assertSame(snapshot, mgr.getWeblogSnapshot(testWeblog.getHandle()));
+            assertEquals(0, QueryCounter.getCount());
+            
+            // saving the weblog replaces its snapshot
+            testWeblog = TestUtils.getManagedWebsite(testWeblog);
+            testWeblog.setVisible(Boolean.FALSE);
+            mgr.saveWeblog(testWeblog);
+            assertFalse(mgr.getWeblogSnapshot(testWeblog.getHandle()).isVisible());
+            TestUtils.endSession(true);
+            
+            WeblogSnapshot saved = mgr.getWeblogSnapshot(testWeblog.getHandle());
+            assertFalse(saved.isVisible());
+            assertFalse(saved.getLastModified().before(snapshot.getLastModified()));
+            assertNull(mgr.getWeblogByHandle(testWeblog.getHandle()));
+            TestUtils.endSession(true);
+            
+            // a snapshot read before the weblog was dropped isn't cached
+            WeblogSnapshotCache cache = WeblogSnapshotCache.getInstance();
+            long generation = cache.getGeneration(testWeblog.getHandle());
+            cache.remove(testWeblog.getHandle());
+            cache.put(saved, generation);
+            assertNull(cache.get(testWeblog.getHandle()));
+            
+            assertNull(mgr.getWeblogSnapshot("nosuchweblog"));
+            
+        } finally {
+            TestUtils.teardownWeblog(testWeblog.getId());
+            TestUtils.endSession(true);
+        }
+    }
+    
 }
-
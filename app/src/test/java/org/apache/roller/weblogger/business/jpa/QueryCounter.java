@@ -0,0 +1,75 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+*  contributor license agreements.  The ASF licenses this file to You
+* under the Apache License, Version 2.0 (the "License"); you may not
+* use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.  For additional information regarding
+* copyright in this work, please see the NOTICE file in the top level
+* directory of this distribution.
+*/
+
+package org.apache.roller.weblogger.business.jpa;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+/**
+ * Counts the SQL statements run by EclipseLink, so that tests can check how
+ * many queries an operation takes.  Registered in roller-custom.properties.
+ */
+public class QueryCounter extends SessionEventAdapter {
+
+    private static final AtomicInteger count = new AtomicInteger();
+
+    private static volatile Session session = null;
+
+    @Override
+    public void postLogin(SessionEvent event) {
+        // the weblogger's session, rather than any other a test creates
+        if (session == null) {
+            session = event.getSession();
+        }
+    }
+
+    @Override
+    public void preExecuteCall(SessionEvent event) {
+        count.incrementAndGet();
+    }
+
+    public static void reset() {
+        count.set(0);
+    }
+
+    public static int getCount() {
+        return count.get();
+    }
+
+    /**
+     * Run a statement straight against the database, for tests which need
+     * data in a state the managers never leave it in.
+     */
+    public static void executeSql(String sql) {
+        session.executeNonSelectingSQL(sql);
+        clearCache();
+    }
+
+    /**
+     * Empty the shared cache, so that entities are read from the database.
+     */
+    public static void clearCache() {
+        if (session != null) {
+            session.getIdentityMapAccessor().initializeAllIdentityMaps();
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+*  contributor license agreements.  The ASF licenses this file to You
+* under the Apache License, Version 2.0 (the "License"); you may not
+* use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.  For additional information regarding
+* copyright in this work, please see the NOTICE file in the top level
+* directory of this distribution.
+*/
+
+package org.apache.roller.weblogger.business.jpa;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import org.apache.roller.weblogger.TestUtils;
+import org.apache.roller.weblogger.business.DatabaseProvider;
+import org.apache.roller.weblogger.business.startup.StartupException;
+import org.apache.roller.weblogger.pojos.RuntimeConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Test where JPAPersistenceStrategy reads from when the database has a
+ * replica.  The replica is a second Derby database, holding a single
+ * property the test database doesn't have, whose user may only read.
+ */
+public class ReplicaReadTest {
+
+    private static final String REPLICA_URL = "jdbc:derby://localhost:4224/memory:replicadb";
+    private static final String REPLICA_USER = "reader";
+    private static final String MARKER = "replica.marker";
+
+    private JPAPersistenceStrategy strategy = null;
+
+
+    /**
+     * The test database with the replica above.
+     */
+    private static class ReplicaDatabaseProvider extends DatabaseProvider {
+
+        ReplicaDatabaseProvider() throws StartupException {
+            super();
+        }
+
+        @Override
+        public String getJdbcConnectionURL() {
+            // a different URL, so EclipseLink doesn't hand out the session
+            // of the weblogger's factory
+            return super.getJdbcConnectionURL() + ";retrieveMessageText=true";
+        }
+
+        @Override
+        public boolean hasReplica() {
+            return true;
+        }
+
+        @Override
+        public String getReplicaJdbcConnectionURL() {
+            return REPLICA_URL;
+        }
+
+        @Override
+        public String getReplicaJdbcUsername() {
+            return REPLICA_USER;
+        }
+
+        @Override
+        public String getReplicaJdbcPassword() {
+            return REPLICA_USER;
+        }
+    }
+
+
+    @BeforeEach
+    public void setUp() throws Exception {
+
+        // the weblogger's factory first, it is the one the tests monitor
+        TestUtils.setupWeblogger();
+
+        try (Connection con = DriverManager.getConnection(
+                REPLICA_URL + ";create=true", REPLICA_USER, REPLICA_USER)) {
+            if (!con.getMetaData().getTables(null, null, "ROLLER_PROPERTIES", null).next()) {
+                try (Statement stmt = con.createStatement()) {
+                    stmt.executeUpdate("create table roller_properties"
+                            + " (name varchar(255) not null primary key, value clob)");
+                    stmt.executeUpdate("insert into roller_properties (name, value)"
+                            + " values ('" + MARKER + "', 'replica')");
+                    stmt.execute("call SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY("
+                            + "'derby.database.readOnlyAccessUsers', '" + REPLICA_USER + "')");
+                }
+            }
+        }
+
+        strategy = new JPAPersistenceStrategy(new ReplicaDatabaseProvider());
+    }
+
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        strategy.release();
+        Object written = strategy.load(RuntimeConfigProperty.class, "replica.written");
+        if (written != null) {
+            strategy.remove(written);
+            strategy.flush();
+        }
+        strategy.release();
+        strategy.shutdown();
+    }
+
+
+    private boolean readFromReplica() throws Exception {
+        List<RuntimeConfigProperty> found = strategy.getDynamicQuery(
+                "SELECT p FROM RuntimeConfigProperty p WHERE p.name LIKE ?1", RuntimeConfigProperty.class)
+                .setParameter(1, MARKER).getResultList();
+        return !found.isEmpty();
+    }
+
+
+    @Test
+    public void testReplicaIsReadOnly() throws Exception {
+        try (Connection con = DriverManager.getConnection(REPLICA_URL, REPLICA_USER, REPLICA_USER);
+             Statement stmt = con.createStatement()) {
+            assertThrows(SQLException.class, () -> stmt.executeUpdate(
+                    "insert into roller_properties (name, value) values ('written', 'x')"));
+        }
+    }
+
+
+    @Test
+    public void testReadRouting() throws Exception {
+
+        // nothing written yet, reads outside of a transaction use the replica
+        assertTrue(readFromReplica());
+        strategy.release();
+
+        // reads in a transaction use the database
+        strategy.store(new RuntimeConfigProperty("replica.written", "x"));
+        assertFalse(readFromReplica());
+
+        // once committed, the rest of the session reads from the replica again
+        strategy.flush();
+        assertTrue(readFromReplica());
+        strategy.release();
+
+        // new sessions read from the database during the window, and see
+        // the write there
+        assertFalse(readFromReplica());
+        assertNotNull(strategy.load(RuntimeConfigProperty.class, "replica.written"));
+    }
+
+}
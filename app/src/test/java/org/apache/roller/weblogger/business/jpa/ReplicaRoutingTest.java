@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.jpa;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Test the read after write window of replica routing.
+ */
+public class ReplicaRoutingTest {
+
+    @Test
+    public void testReadAfterWriteWindow() {
+
+        ReplicaRouting routing = new ReplicaRouting(5000);
+
+        // nothing written yet
+        assertTrue(routing.canReadFromReplica(0));
+        assertTrue(routing.canReadFromReplica(System.currentTimeMillis()));
+
+        // reads stay on the database during the window after a write
+        routing.written(10000);
+        assertFalse(routing.canReadFromReplica(10000));
+        assertFalse(routing.canReadFromReplica(14999));
+        assertTrue(routing.canReadFromReplica(15000));
+
+        // each write starts the window again
+        routing.written(14000);
+        assertFalse(routing.canReadFromReplica(15000));
+        assertTrue(routing.canReadFromReplica(19000));
+    }
+
+    @Test
+    public void testNoWindow() {
+
+        ReplicaRouting routing = new ReplicaRouting(0);
+        routing.written(10000);
+        assertTrue(routing.canReadFromReplica(10000));
+    }
+
+    @Test
+    public void testPrimaryOnlyProperties() {
+        assertEquals("Always",
+                ReplicaRouting.PRIMARY_ONLY.get("eclipselink.jdbc.exclusive-connection.mode"));
+    }
+
+}
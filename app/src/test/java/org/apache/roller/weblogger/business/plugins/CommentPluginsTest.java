@@ -63,4 +63,35 @@ public class CommentPluginsTest  {
         assertEquals(convertLinesFormatted, output);        
     }
     
+    @Test
+    public void testLinkMarkupPlugin() {
+        
+        PluginManager pmgr = WebloggerFactory.getWeblogger().getPluginManager();
+        
+        WeblogEntryComment comment = new WeblogEntryComment();
+        comment.setPlugins("LinkMarkup");
+        
+        String text = "see http://example.com/a?b=1&amp;c=2 and HTTPS://example.org now";
+        assertEquals("see <a href=\"http://example.com/a?b=1&amp;c=2\">http://example.com/a?b=1&amp;c=2</a>"
+                + " and <a href=\"HTTPS://example.org\">HTTPS://example.org</a> now",
+                pmgr.applyCommentPlugins(comment, text));
+        
+        // nothing to link
+        assertEquals("no links here", pmgr.applyCommentPlugins(comment, "no links here"));
+    }
+    
+    @Test
+    public void testHTMLSubsetPlugin() {
+        
+        PluginManager pmgr = WebloggerFactory.getWeblogger().getPluginManager();
+        
+        WeblogEntryComment comment = new WeblogEntryComment();
+        comment.setPlugins("HTMLSubset");
+        comment.setContentType("text/html");
+        
+        String text = "<b>bold</b> &lt;i&gt; <script>x</script> <a href=\"http://example.com\">l</a>";
+        assertEquals("<b>bold</b> &lt;i&gt; &lt;script&gt;x&lt;/script&gt; <a href=\"http://example.com\">l</a>",
+                pmgr.applyCommentPlugins(comment, text));
+    }
+    
 }
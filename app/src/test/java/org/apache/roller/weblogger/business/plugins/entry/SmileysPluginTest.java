@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.plugins.entry;
+
+import org.apache.roller.weblogger.TestUtils;
+import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test SmileysPlugin.
+ */
+public class SmileysPluginTest {
+
+    private SmileysPlugin instance;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        TestUtils.setupWeblogger();
+        instance = new SmileysPlugin();
+        instance.init(null);
+    }
+
+    private static String img(String file, String alt) {
+        return "<img src=\"" + WebloggerRuntimeConfig.getAbsoluteContextURL() + "/images/smileys/" + file
+                + "\" class=\"smiley\" alt=\"" + alt + "\" title=\"" + alt + "\" />";
+    }
+
+    @Test
+    public void passthrough() {
+        String input = "Stay a while and listen.";
+        assertEquals(input, instance.render(null, input));
+        assertEquals("", instance.render(null, ""));
+    }
+
+    @Test
+    public void substitution() {
+        assertEquals("Hello " + img("smile.gif", ":-)") + " and " + img("wink.gif", ";-)") + "!",
+                instance.render(null, "Hello :-) and ;-)!"));
+        assertEquals(img("sad.gif", ":(") + img("sad.gif", ":("),
+                instance.render(null, ":(:("));
+        assertEquals("a " + img("whisper.gif", "=D&gt;") + " b",
+                instance.render(null, "a =D> b"));
+    }
+
+    @Test
+    public void longestMatchWins() {
+        assertEquals(img("laugh.gif", ":))"), instance.render(null, ":))"));
+        assertEquals(img("angelic.gif", "O:-)"), instance.render(null, "O:-)"));
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.themes;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import org.apache.roller.weblogger.pojos.TemplateRendition.RenditionType;
+import org.apache.roller.weblogger.pojos.ThemeTemplate;
+import org.apache.roller.weblogger.pojos.ThemeTemplate.ComponentType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test SharedThemeFromDir.
+ */
+public class SharedThemeFromDirTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testReloadTemplateFiles() throws Exception {
+        Path themeDir = copyTheme("basic");
+        SharedThemeFromDir theme = new SharedThemeFromDir(themeDir.toString());
+
+        ThemeTemplate weblog = theme.getTemplateByAction(ComponentType.WEBLOG);
+        ThemeTemplate permalink = theme.getTemplateByAction(ComponentType.PERMALINK);
+        String before = weblog.getTemplateRendition(RenditionType.STANDARD).getTemplate();
+
+        Files.writeString(themeDir.resolve("weblog.vm"), "reloaded");
+        assertTrue(theme.reloadTemplateFiles(Set.of("weblog.vm")));
+
+        // the changed template is a new object, the old one is left alone
+        ThemeTemplate reloaded = theme.getTemplateByAction(ComponentType.WEBLOG);
+        assertNotSame(weblog, reloaded);
+        assertSame(reloaded, theme.getTemplateByName(weblog.getName()));
+        assertTrue(theme.getTemplates().contains(reloaded));
+        assertEquals("reloaded", reloaded.getTemplateRendition(RenditionType.STANDARD).getTemplate());
+        assertEquals(before, weblog.getTemplateRendition(RenditionType.STANDARD).getTemplate());
+
+        // other templates are kept
+        assertSame(permalink, theme.getTemplateByAction(ComponentType.PERMALINK));
+
+        // files which aren't template contents make the caller reload it all
+        assertFalse(theme.reloadTemplateFiles(Set.of("theme.xml")));
+    }
+
+    /**
+     * Copy one of the themes on the test classpath to the temp directory.
+     */
+    private Path copyTheme(String name) throws Exception {
+        Path from = new File(getClass().getResource("/themes/" + name + "/theme.xml").toURI())
+                .getParentFile().toPath();
+        Path to = tempDir.toPath().resolve(name);
+        Files.createDirectories(to);
+        try (var files = Files.list(from)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+        return to;
+    }
+
+}
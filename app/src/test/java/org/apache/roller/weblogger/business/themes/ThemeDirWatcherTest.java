@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.themes;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test ThemeDirWatcher.
+ */
+public class ThemeDirWatcherTest {
+
+    private static final long WAIT_MILLIS = 10000;
+
+    @TempDir
+    File tempDir;
+
+    private Path themeDir;
+
+    private ThemeDirWatcher watcher;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        themeDir = Files.createDirectories(tempDir.toPath().resolve("mytheme").resolve("templates"))
+                .getParent();
+        watcher = new ThemeDirWatcher(tempDir.toPath());
+        watcher.watch("mytheme");
+        watcher.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        watcher.shutdown();
+    }
+
+    @Test
+    public void testRecordsChangedFiles() throws Exception {
+        // editor swap files are ignored
+        Files.writeString(themeDir.resolve("templates").resolve(".weblog.vm.swp"), "swap");
+        Files.writeString(themeDir.resolve("templates").resolve("weblog.vm"), "changed");
+
+        Set<String> changed = awaitChange("mytheme", "templates/weblog.vm");
+        assertTrue(changed.contains("templates/weblog.vm"));
+        assertFalse(changed.contains("templates/.weblog.vm.swp"));
+
+        // drained, so nothing is left
+        assertTrue(watcher.drainChanges("mytheme").isEmpty());
+        assertTrue(watcher.drainChanges("othertheme").isEmpty());
+    }
+
+    @Test
+    public void testWatchesNewDirectories() throws Exception {
+        Files.createDirectory(themeDir.resolve("styles"));
+        awaitChange("mytheme", "styles");
+
+        Files.writeString(themeDir.resolve("styles").resolve("new.css"), "body {}");
+        assertTrue(awaitChange("mytheme", "styles/new.css").contains("styles/new.css"));
+    }
+
+    /**
+     * Drain the changes of a theme until the expected path turns up.
+     */
+    private Set<String> awaitChange(String theme, String path) throws InterruptedException {
+        Set<String> changed = new HashSet<>();
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!changed.contains(path) && System.currentTimeMillis() < deadline) {
+            changed.addAll(watcher.drainChanges(theme));
+            Thread.sleep(50);
+        }
+        assertTrue(changed.contains(path), "No change of " + path + " in " + changed);
+        return changed;
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.themes;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test ThemeMetadataCache.
+ */
+public class ThemeMetadataCacheTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testCachedUntilDescriptorChanges() throws Exception {
+        File themeDir = copyTheme("basic");
+        File cacheDir = new File(tempDir, "cache");
+
+        ThemeMetadata parsed = new ThemeMetadataCache(cacheDir).getMetadata(themeDir);
+        assertEquals("basic", parsed.getId());
+        assertTrue(new File(cacheDir, "basic.ser").isFile());
+
+        // read back from the cache file by a new instance, as after a restart
+        ThemeMetadata cached = new ThemeMetadataCache(cacheDir).getMetadata(themeDir);
+        assertNotSame(parsed, cached);
+        assertEquals(parsed.getName(), cached.getName());
+        assertEquals(parsed.getTemplates().size(), cached.getTemplates().size());
+        assertEquals(parsed.getStylesheet().getName(), cached.getStylesheet().getName());
+
+        // a changed descriptor is parsed again
+        File descriptor = new File(themeDir, "theme.xml");
+        String xml = Files.readString(descriptor.toPath(), StandardCharsets.UTF_8);
+        Files.writeString(descriptor.toPath(),
+                xml.replace("<name>Basic</name>", "<name>Basic Changed</name>"), StandardCharsets.UTF_8);
+        assertTrue(descriptor.setLastModified(descriptor.lastModified() + 2000));
+        assertEquals("Basic Changed", new ThemeMetadataCache(cacheDir).getMetadata(themeDir).getName());
+    }
+
+    @Test
+    public void testUnreadableCacheFile() throws Exception {
+        File themeDir = copyTheme("basic");
+        File cacheDir = new File(tempDir, "cache");
+        assertTrue(cacheDir.mkdirs());
+        File cacheFile = new File(cacheDir, "basic.ser");
+        Files.writeString(cacheFile.toPath(), "not a cache entry");
+
+        // parsed instead, and the entry rewritten
+        assertEquals("basic", new ThemeMetadataCache(cacheDir).getMetadata(themeDir).getId());
+        assertTrue(cacheFile.length() > "not a cache entry".length());
+    }
+
+    /**
+     * Copy one of the themes on the test classpath to the temp directory.
+     */
+    private File copyTheme(String name) throws Exception {
+        Path from = new File(getClass().getResource("/themes/" + name + "/theme.xml").toURI())
+                .getParentFile().toPath();
+        Path to = tempDir.toPath().resolve("themes").resolve(name);
+        Files.createDirectories(to);
+        try (var files = Files.list(from)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+        return to.toFile();
+    }
+
+}
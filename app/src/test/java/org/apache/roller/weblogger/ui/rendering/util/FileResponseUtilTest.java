@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util;
+
+import java.util.List;
+import org.apache.roller.weblogger.ui.rendering.util.FileResponseUtil.ByteRange;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Range header parsing of FileResponseUtil.
+ */
+public class FileResponseUtilTest {
+
+    private static void assertRange(long start, long end, ByteRange range) {
+        assertEquals(start, range.start);
+        assertEquals(end, range.end);
+    }
+
+    @Test
+    public void testSingleRanges() {
+        assertRange(0, 99, FileResponseUtil.parseRanges("bytes=0-99", 1000).get(0));
+        assertRange(500, 999, FileResponseUtil.parseRanges("bytes=500-", 1000).get(0));
+        assertRange(900, 999, FileResponseUtil.parseRanges("bytes=-100", 1000).get(0));
+        // clamped to the end of the file
+        assertRange(990, 999, FileResponseUtil.parseRanges("bytes=990-2000", 1000).get(0));
+        assertRange(0, 999, FileResponseUtil.parseRanges("bytes=-5000", 1000).get(0));
+    }
+
+    @Test
+    public void testMultipleRanges() {
+        List<ByteRange> ranges = FileResponseUtil.parseRanges("bytes=0-9, 20-29,-10", 1000);
+        assertEquals(3, ranges.size());
+        assertRange(0, 9, ranges.get(0));
+        assertRange(20, 29, ranges.get(1));
+        assertRange(990, 999, ranges.get(2));
+
+        // unsatisfiable parts are dropped
+        ranges = FileResponseUtil.parseRanges("bytes=0-9,2000-3000", 1000);
+        assertEquals(1, ranges.size());
+    }
+
+    @Test
+    public void testUnsatisfiable() {
+        assertTrue(FileResponseUtil.parseRanges("bytes=1000-", 1000).isEmpty());
+        assertTrue(FileResponseUtil.parseRanges("bytes=-0", 1000).isEmpty());
+        assertTrue(FileResponseUtil.parseRanges("bytes=0-", 0).isEmpty());
+    }
+
+    @Test
+    public void testIgnored() {
+        assertNull(FileResponseUtil.parseRanges(null, 1000));
+        assertNull(FileResponseUtil.parseRanges("items=0-9", 1000));
+        assertNull(FileResponseUtil.parseRanges("bytes=abc", 1000));
+        assertNull(FileResponseUtil.parseRanges("bytes=9-0", 1000));
+        // asking for more than the whole file, just send the file
+        assertNull(FileResponseUtil.parseRanges("bytes=0-999,0-999", 1000));
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.velocity;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.velocity.Template;
+import org.apache.velocity.runtime.resource.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test the template id index of VelocityTemplateCache.
+ */
+public class VelocityTemplateCacheTest {
+
+    private VelocityTemplateCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new VelocityTemplateCache();
+        cache.initialize(null);
+    }
+
+    private static Resource template(String name) {
+        Template template = new Template();
+        template.setName(name);
+        template.setLastModified(1000);
+        return template;
+    }
+
+    private List<Object> keys() {
+        List<Object> keys = new ArrayList<>();
+        for (Iterator<Object> it = cache.enumerateKeys(); it.hasNext();) {
+            keys.add(it.next());
+        }
+        return keys;
+    }
+
+    @Test
+    public void testInvalidateDropsAllRenditions() {
+        cache.put("1page", template("page"));
+        cache.put("1page|mobile", template("page|mobile"));
+        cache.put("1other", template("other"));
+        assertEquals(3, keys().size());
+
+        cache.invalidate("page");
+        assertNull(cache.get("1page"));
+        assertNull(cache.get("1page|mobile"));
+        assertNotNull(cache.get("1other"));
+        assertEquals(List.of("1other"), keys());
+
+        cache.remove("1other");
+        assertTrue(keys().isEmpty());
+    }
+
+    @Test
+    public void testIndexBoundedByCacheSize() {
+        int size = WebloggerConfig.getIntProperty(VelocityTemplateCache.CACHE_ID + ".size", 100);
+        for (int i = 0; i < size + 50; i++) {
+            cache.put("1page" + i, template("page" + i));
+        }
+        assertTrue(keys().size() <= size);
+
+        // the most recently used ones are kept, the dropped ones are gone
+        assertNull(cache.get("1page0"));
+        assertNotNull(cache.get("1page" + (size + 49)));
+        for (Object key : keys()) {
+            assertNotNull(cache.get((String) key));
+        }
+    }
+
+}
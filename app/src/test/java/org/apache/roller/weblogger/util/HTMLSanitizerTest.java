@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test HTMLSanitizer, expected values are what the old regex based
+ * sanitizer produced for the same input.
+ */
+public class HTMLSanitizerTest {
+
+    @Test
+    public void testPlainText() {
+        assertEquals("plain text with &quot;quotes&quot; & &#39;apostrophes&#39;",
+                HTMLSanitizer.sanitize("plain text with \"quotes\" & 'apostrophes'"));
+        assertTrue(HTMLSanitizer.isSanitized("<p>Hello <b>world</b></p>"));
+        assertEquals("<p>Hello <b>world</b></p>", HTMLSanitizer.sanitize("<p>Hello <b>world</b></p>"));
+    }
+
+    @Test
+    public void testForbiddenAndUnknownTags() {
+        assertEquals("alert(1)<p>ok</p>", HTMLSanitizer.sanitize("<script>alert(1)</script><p>ok</p>"));
+        assertFalse(HTMLSanitizer.isSanitized("<script>alert(1)</script>"));
+        assertEquals("unknown", HTMLSanitizer.sanitize("<foo bar=\"1\">unknown</foo>"));
+        assertEquals("<p>after</p>", HTMLSanitizer.sanitize("<!-- comment --><p>after</p><!-- open"));
+    }
+
+    @Test
+    public void testAttributes() {
+        assertEquals("<a href=\"http://example.com/page\" title=\"t\">link</a>",
+                HTMLSanitizer.sanitize("<a href=\"http://example.com/page\" title=\"t\">link</a>"));
+        assertEquals("bad", HTMLSanitizer.sanitize("<a href=\"javascript:alert(1)\">bad</a>"));
+        assertEquals("<a href=\"mailto:me@example.com\">mail</a>",
+                HTMLSanitizer.sanitize("<a href=\"mailto:me@example.com\">mail</a>"));
+        assertEquals("<img src=\"http://example.com/i.png\" width=\"100\" height=\"50%\">",
+                HTMLSanitizer.sanitize("<img src=\"http://example.com/i.png\" width=\"100\" height=\"50%\" onclick=\"x()\">"));
+        assertEquals("<div style=\"color:red;background:url(&#39;http://example.com/b.png&#39;);\">x</div>",
+                HTMLSanitizer.sanitize("<div style=\"color:red; background:url('http://example.com/b.png'); width:expression(1)\">x</div>"));
+        assertEquals("<p class=\"x\">multi\nline</p>", HTMLSanitizer.sanitize("<p\nclass=\"x\">multi\nline</p>"));
+    }
+
+    @Test
+    public void testTagNesting() {
+        assertEquals("orphan cell<table><tr><td>cell</td></tr></table>",
+                HTMLSanitizer.sanitize("<td>orphan cell</td><table><tr><td>cell</td></tr></table>"));
+        assertEquals("<ul><li>one<li>two</li></li></ul><b>unclosed</b>",
+                HTMLSanitizer.sanitize("<ul><li>one<li>two</ul><b>unclosed"));
+    }
+
+    @Test
+    public void testEncode() {
+        assertEquals("&lt;b&gt; &quot;a&quot;<br> b", HTMLSanitizer.encode("<b> \"a\"\n\rb"));
+        assertEquals("", HTMLSanitizer.encode(null));
+    }
+
+}
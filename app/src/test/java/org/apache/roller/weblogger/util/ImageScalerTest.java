@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test ImageScaler.
+ */
+public class ImageScalerTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testFit() {
+        assertEquals(new Dimension(120, 60), ImageScaler.fit(2000, 1000, 120, 120));
+        assertEquals(new Dimension(60, 120), ImageScaler.fit(1000, 2000, 120, 120));
+        assertEquals(new Dimension(100, 50), ImageScaler.fit(100, 50, 120, 120));
+        assertEquals(new Dimension(1, 120), ImageScaler.fit(10, 5000, 120, 120));
+
+        assertTrue(ImageScaler.fitsWithin(100, 50, 120, 120));
+        assertTrue(ImageScaler.fitsWithin(120, 120, 120, 120));
+        assertFalse(ImageScaler.fitsWithin(121, 50, 120, 120));
+    }
+
+    @Test
+    public void testReadSubsampled() throws Exception {
+        File file = new File(tempDir, "big.png");
+        ImageIO.write(new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB), "png", file);
+
+        assertEquals(new Dimension(2000, 1000), ImageScaler.readSize(file));
+
+        // decoded at no less than twice the target size
+        BufferedImage image = ImageScaler.read(file, 120, 120);
+        assertTrue(image.getWidth() >= 240 && image.getWidth() < 2000);
+        assertTrue(image.getHeight() >= 120 && image.getHeight() < 1000);
+
+        // small targets don't subsample below the image size
+        assertEquals(2000, ImageScaler.read(file, 4000, 4000).getWidth());
+    }
+
+    @Test
+    public void testScale() {
+        BufferedImage image = new BufferedImage(1000, 700, BufferedImage.TYPE_INT_ARGB);
+
+        BufferedImage scaled = ImageScaler.scaleToFit(image, 120, 120);
+        assertEquals(120, scaled.getWidth());
+        assertEquals(84, scaled.getHeight());
+        assertTrue(scaled.getColorModel().hasAlpha());
+
+        assertSame(image, ImageScaler.scaleToFit(image, 1000, 1000));
+    }
+
+}
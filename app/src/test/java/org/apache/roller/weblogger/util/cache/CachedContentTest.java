@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test CachedContent.
+ */
+public class CachedContentTest {
+
+    @Test
+    public void testBuffered() throws Exception {
+        CachedContent content = new CachedContent(4, "text/plain");
+        content.getCachedWriter().write("café ");
+        content.flush();
+        content.getCachedWriter().write("after flush");
+        assertEquals("café ", content.getContentAsString());
+
+        content.close();
+        assertEquals("café after flush", content.getContentAsString());
+        assertEquals("text/plain", content.getContentType());
+        assertThrows(IllegalStateException.class, content::flush);
+    }
+
+    @Test
+    public void testTee() throws Exception {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        CachedContent content = new CachedContent(0, null, client);
+        content.getCachedWriter().write("streamed");
+        content.getCachedWriter().flush();
+        assertEquals("streamed", client.toString(UTF_8));
+
+        content.getCachedWriter().write(" page");
+        content.close();
+        assertEquals("streamed page", client.toString(UTF_8));
+        assertArrayEquals(client.toByteArray(), content.getContent());
+    }
+
+    @Test
+    public void testTeeThreshold() throws Exception {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        CachedContent content = new CachedContent(0, null, client, 8);
+        content.getCachedWriter().write("held");
+        content.getCachedWriter().flush();
+        assertEquals(0, client.size());
+        assertFalse(content.isPassedThrough());
+
+        content.getCachedWriter().write(" back, then streamed");
+        content.getCachedWriter().flush();
+        assertTrue(content.isPassedThrough());
+        assertEquals("held back, then streamed", client.toString(UTF_8));
+
+        content.getCachedWriter().write(" on");
+        content.close();
+        assertEquals("held back, then streamed on", client.toString(UTF_8));
+        assertArrayEquals(client.toByteArray(), content.getContent());
+    }
+
+    @Test
+    public void testTeeUnderThreshold() throws Exception {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        CachedContent content = new CachedContent(0, null, client, 1024);
+        content.getCachedWriter().write("small page");
+        content.close();
+        assertEquals(0, client.size());
+        assertFalse(content.isPassedThrough());
+        assertEquals("small page", content.getContentAsString());
+    }
+
+    @Test
+    public void testTeeFailureKeepsCapturing() throws Exception {
+        OutputStream gone = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("client went away");
+            }
+        };
+        CachedContent content = new CachedContent(0, null, gone);
+        content.getCachedWriter().write("still cached");
+        content.close();
+        assertEquals("still cached", content.getContentAsString());
+    }
+
+}